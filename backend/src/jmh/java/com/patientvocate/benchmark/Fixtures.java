@@ -0,0 +1,164 @@
+package com.patientvocate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patientvocate.service.OCRService;
+import com.patientvocate.service.cache.OcrCache;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import com.patientvocate.service.ocr.ImagePreprocessor;
+import com.patientvocate.service.ocr.TesseractPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Benchmark inputs. Text fixtures are captured reports and model responses under
+ * {@code fixtures/}; the PDF, scan and photo images are rendered from the report text at setup so
+ * every run measures the same document without binary files in the repository.
+ */
+final class Fixtures {
+
+    static final String LAB_REPORT = "lab-report.txt";
+    static final String OLLAMA_ANALYSIS = "ollama-analysis.json";
+    static final String OPENROUTER_REASONING = "openrouter-reasoning.txt";
+
+    private static final float FONT_SIZE = 9;
+    private static final float LEADING = 12;
+    private static final float MARGIN = 50;
+
+    private Fixtures() {}
+
+    static String text(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing benchmark fixture: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A text-layer PDF with the report repeated over {@code pages} pages.
+     */
+    static byte[] reportPdf(int pages) {
+        return reportPdf(text(LAB_REPORT), pages);
+    }
+
+    /**
+     * A text-layer PDF with {@code text} repeated over {@code pages} pages.
+     */
+    static byte[] reportPdf(String text, int pages) {
+        List<String> lines = text.lines().toList();
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.COURIER);
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, FONT_SIZE);
+                    content.setLeading(LEADING);
+                    content.newLineAtOffset(MARGIN, PDRectangle.LETTER.getHeight() - MARGIN);
+                    for (String line : lines) {
+                        content.showText(line);
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The first page of the report rendered as a PNG "scan" at roughly 150 DPI.
+     */
+    static byte[] reportScanPng() {
+        List<String> lines = text(LAB_REPORT).lines().toList();
+        BufferedImage image = new BufferedImage(1275, 1650, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setColor(Color.BLACK);
+            g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 18));
+            int y = 80;
+            for (String line : lines) {
+                g.drawString(line, 60, y);
+                y += 24;
+            }
+        } finally {
+            g.dispose();
+        }
+        return encode(image, "png");
+    }
+
+    /**
+     * The first page of the report as a 12 MP phone photo (3024x4032 JPEG): large text,
+     * rotated 1.5 degrees, with uneven lighting.
+     */
+    static byte[] reportPhotoJpeg() {
+        List<String> lines = text(LAB_REPORT).lines().toList();
+        BufferedImage image = new BufferedImage(3024, 4032, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setPaint(new GradientPaint(0, 0, new Color(235, 232, 225), 3024, 4032, new Color(150, 146, 140)));
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.transform(AffineTransform.getRotateInstance(Math.toRadians(1.5), 1512, 2016));
+            g.setColor(new Color(30, 30, 35));
+            g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 44));
+            int y = 260;
+            for (String line : lines) {
+                g.drawString(line, 200, y);
+                y += 60;
+            }
+        } finally {
+            g.dispose();
+        }
+        return encode(image, "jpg");
+    }
+
+    static ImagePreprocessor imagePreprocessor() {
+        return new ImagePreprocessor(true, true, 32, 24_000_000, 256);
+    }
+
+    /**
+     * An OCRService that preprocesses on the calling thread. Recognition needs the native
+     * Tesseract library and tessdata, which benchmark runs do not assume.
+     */
+    static OCRService ocrService() {
+        return new OCRService(new TesseractPool("", "eng", 1, false, 120), imagePreprocessor(),
+                new SyncTaskExecutor(), new PipelineMetrics(new SimpleMeterRegistry()),
+                new OcrCache(new ObjectMapper(), false, 1, 1, "", 1, false, 0, 0));
+    }
+
+    private static byte[] encode(BufferedImage image, String format) {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            ImageIO.write(image, format, out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.patientvocate.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load driver for the backend API. For each concurrency step, that many workers
+ * send requests back to back for a fixed duration; every request completing after the
+ * warm-up period and within the step is counted and timed. Reports throughput and
+ * p50/p95/p99 latency per step, so the step where throughput stops growing while latency
+ * climbs marks the saturation point.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:java@load} against a backend wired to
+ * {@link StubLlmServer}. Settings are system properties:
+ * <ul>
+ *   <li>{@code load.url} (http://localhost:8080)</li>
+ *   <li>{@code load.scenario}: analyze-text (default), analyze-file, chat or chat-stream</li>
+ *   <li>{@code load.provider} (ollama)</li>
+ *   <li>{@code load.concurrency} (1,2,4,8,16,32): comma-separated steps</li>
+ *   <li>{@code load.duration-seconds} (30) and {@code load.warmup-seconds} (5) per step</li>
+ *   <li>{@code load.unique} (true): make every report unique so the analysis cache is bypassed</li>
+ *   <li>{@code load.report-file}: report text to send; defaults to the benchmark fixture</li>
+ *   <li>{@code load.output} (target/load-result.json): machine-readable results</li>
+ * </ul>
+ */
+public class LoadDriver {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+    private static final String QUESTION = "What does my ferritin result mean?";
+
+    /** Results of one concurrency step; latencies in milliseconds. */
+    public record StepResult(int concurrency, long requests, long errors, double throughputPerSecond,
+                             double p50Ms, double p95Ms, double p99Ms, double maxMs) {}
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final String baseUrl;
+    private final String scenario;
+    private final String provider;
+    private final String report;
+    private final boolean unique;
+    private final AtomicLong sequence = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public LoadDriver(String baseUrl, String scenario, String provider, String report, boolean unique) {
+        if (!List.of("analyze-text", "analyze-file", "chat", "chat-stream").contains(scenario)) {
+            throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        }
+        this.baseUrl = baseUrl.replaceAll("/+$", "");
+        this.scenario = scenario;
+        this.provider = provider;
+        this.report = report;
+        this.unique = unique;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String reportFile = System.getProperty("load.report-file");
+        String report = reportFile != null ? Files.readString(Path.of(reportFile)) : Fixtures.text(Fixtures.LAB_REPORT);
+        LoadDriver driver = new LoadDriver(
+                System.getProperty("load.url", "http://localhost:8080"),
+                System.getProperty("load.scenario", "analyze-text"),
+                System.getProperty("load.provider", "ollama"),
+                report,
+                Boolean.parseBoolean(System.getProperty("load.unique", "true")));
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration-seconds", 30));
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+
+        System.out.printf("Scenario %s against %s (provider %s), %ds per step after %ds warm-up%n",
+                driver.scenario, driver.baseUrl, driver.provider, duration.toSeconds(), warmup.toSeconds());
+        System.out.printf("%11s %9s %7s %10s %9s %9s %9s %9s%n",
+                "concurrency", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+        List<StepResult> steps = new ArrayList<>();
+        for (String step : System.getProperty("load.concurrency", "1,2,4,8,16,32").split(",")) {
+            StepResult result = driver.runStep(Integer.parseInt(step.trim()), warmup, duration);
+            steps.add(result);
+            System.out.printf("%11d %9d %7d %10.2f %9.1f %9.1f %9.1f %9.1f%n", result.concurrency(),
+                    result.requests(), result.errors(), result.throughputPerSecond(),
+                    result.p50Ms(), result.p95Ms(), result.p99Ms(), result.maxMs());
+        }
+        steps.stream().max(Comparator.comparingDouble(StepResult::throughputPerSecond)).ifPresent(peak ->
+                System.out.printf("Peak throughput %.2f req/s at concurrency %d%n",
+                        peak.throughputPerSecond(), peak.concurrency()));
+
+        Path output = Path.of(System.getProperty("load.output", "target/load-result.json"));
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("scenario", driver.scenario);
+        results.put("provider", driver.provider);
+        results.put("url", driver.baseUrl);
+        results.put("durationSeconds", duration.toSeconds());
+        results.put("warmupSeconds", warmup.toSeconds());
+        results.put("steps", steps);
+        if (output.getParent() != null) Files.createDirectories(output.getParent());
+        MAPPER.writeValue(output.toFile(), results);
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    /**
+     * Run {@code concurrency} workers for {@code warmup + duration}, timing requests that
+     * complete after the warm-up.
+     */
+    public StepResult runStep(int concurrency, Duration warmup, Duration duration) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        // Chat turns within a session are serialized server-side, so each worker gets its own,
+        // opened before the clock starts
+        List<String> sessions = new ArrayList<>();
+        if (scenario.startsWith("chat")) {
+            Callable<String> open = this::openSession;
+            for (Future<String> session : workers.invokeAll(Collections.nCopies(concurrency, open))) {
+                sessions.add(session.get());
+            }
+        }
+
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        List<Future<long[]>> latencies = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        for (int i = 0; i < concurrency; i++) {
+            String analysisId = sessions.isEmpty() ? null : sessions.get(i);
+            latencies.add(workers.submit(() -> work(analysisId, measureFrom, end, errors)));
+        }
+        workers.shutdown();
+
+        List<Long> all = new ArrayList<>();
+        for (Future<long[]> worker : latencies) {
+            try {
+                for (long nanos : worker.get()) all.add(nanos);
+            } catch (ExecutionException e) {
+                System.err.println("Worker failed: " + e.getCause());
+            }
+        }
+        long[] sorted = all.stream().mapToLong(Long::longValue).sorted().toArray();
+        double seconds = duration.toNanos() / 1e9;
+        return new StepResult(concurrency, sorted.length, errors.get(), sorted.length / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private long[] work(String analysisId, long measureFrom, long end, AtomicLong errors) throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        while (System.nanoTime() < end) {
+            HttpRequest request = nextRequest(analysisId);
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                ok = response.statusCode() == 200 && succeeded(response.body());
+            } catch (IOException e) {
+                ok = false;
+            }
+            long finished = System.nanoTime();
+            if (finished < measureFrom || finished > end) {
+                continue; // completed during warm-up or after the step ended
+            }
+            if (ok) {
+                latencies.add(finished - start);
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+        return latencies.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private boolean succeeded(String body) throws IOException {
+        return switch (scenario) {
+            case "chat-stream" -> body.contains("event:done");
+            default -> MAPPER.readTree(body).path("success").asBoolean(false);
+        };
+    }
+
+    private HttpRequest nextRequest(String analysisId) throws IOException {
+        return switch (scenario) {
+            case "analyze-text" -> postJson("/api/reports/analyze/text", Map.of("reportText", nextReport()));
+            case "analyze-file" -> postPdf(Fixtures.reportPdf(nextReport(), 1));
+            case "chat" -> postJson("/api/reports/chat", Map.of("analysisId", analysisId, "question", QUESTION));
+            default -> postJson("/api/reports/chat/stream", Map.of("analysisId", analysisId, "question", QUESTION));
+        };
+    }
+
+    private String openSession() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(
+                postJson("/api/reports/analyze/text", Map.of("reportText", nextReport())),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode body = MAPPER.readTree(response.body());
+        if (!body.hasNonNull("analysisId")) {
+            throw new IllegalStateException("Analysis did not open a chat session: " + response.body());
+        }
+        return body.get("analysisId").asText();
+    }
+
+    private String nextReport() {
+        // Prepended so it survives rendering into a single-page PDF
+        return unique ? "Load test reference: " + runId + "-" + sequence.incrementAndGet() + "\n" + report : report;
+    }
+
+    private HttpRequest postJson(String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(uri(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private HttpRequest postPdf(byte[] pdf) throws IOException {
+        String boundary = "----load" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(pdf.length + 256);
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"report.pdf\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(pdf);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(uri("/api/reports/analyze"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path + "?provider=" + provider);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+}
@@ -0,0 +1,57 @@
+package com.patientvocate.benchmark;
+
+import com.patientvocate.service.OCRService;
+import net.sourceforge.tess4j.util.ImageHelper;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image decoding and OCR preprocessing for an uploaded scan (1275x1650 PNG) and a phone
+ * photo (3024x4032 JPEG). {@code legacyPreprocess} is the previous grayscale + 2x upscale
+ * path, kept as the baseline; run with {@code -prof gc} to compare allocation per call.
+ * Tesseract recognition itself is left out: it needs native libraries and tessdata, and is
+ * measured by the pool stats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OcrPreprocessBenchmark {
+
+    @Param({"scan", "photo"})
+    public String input;
+
+    private OCRService ocrService;
+    private byte[] encoded;
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() throws IOException {
+        ocrService = Fixtures.ocrService();
+        encoded = "photo".equals(input) ? Fixtures.reportPhotoJpeg() : Fixtures.reportScanPng();
+        image = ImageIO.read(new ByteArrayInputStream(encoded));
+    }
+
+    @Benchmark
+    public BufferedImage decode() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(encoded));
+    }
+
+    @Benchmark
+    public BufferedImage preprocess() {
+        return ocrService.preprocess(image);
+    }
+
+    @Benchmark
+    public BufferedImage legacyPreprocess() {
+        BufferedImage gray = ImageHelper.convertImageToGrayscale(image);
+        return ImageHelper.getScaledInstance(gray, gray.getWidth() * 2, gray.getHeight() * 2);
+    }
+}
@@ -0,0 +1,40 @@
+package com.patientvocate.benchmark;
+
+import com.patientvocate.service.OCRService;
+import com.patientvocate.service.PDFParserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text-layer PDF extraction ({@link PDFParserService#extractText}) for one- and ten-page reports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfExtractionBenchmark {
+
+    @Param({"1", "10"})
+    public int pages;
+
+    private PDFParserService pdfParserService;
+    private byte[] pdf;
+
+    @Setup
+    public void setUp() {
+        // Text-layer PDFs never reach OCR, so the pool is never asked for an engine
+        OCRService ocrService = Fixtures.ocrService();
+        pdfParserService = new PDFParserService(ocrService, DataSize.ofMegabytes(16), "");
+        pdf = Fixtures.reportPdf(pages);
+    }
+
+    @Benchmark
+    public String extractText() {
+        return pdfParserService.extractText(new MockMultipartFile("file", "report.pdf", "application/pdf", pdf));
+    }
+}
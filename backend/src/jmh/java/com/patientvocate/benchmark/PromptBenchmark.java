@@ -0,0 +1,70 @@
+package com.patientvocate.benchmark;
+
+import com.patientvocate.model.ChatMessage;
+import com.patientvocate.model.Finding;
+import com.patientvocate.service.ai.AIPromptTemplates;
+import com.patientvocate.service.ai.PromptBudget;
+import com.patientvocate.service.ai.TokenEstimator;
+import com.patientvocate.service.extract.LabValueExtractor;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local work before a provider call: lab value extraction, prompt formatting and fitting
+ * a follow-up prompt into the token budget.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptBenchmark {
+
+    private final LabValueExtractor extractor = new LabValueExtractor();
+    private final PromptBudget budget = new PromptBudget("ollama", 3072, new TokenEstimator(3.5),
+            new PipelineMetrics(new SimpleMeterRegistry()));
+
+    private String report;
+    private String summary;
+    private List<Finding> findings;
+    private List<ChatMessage> history;
+
+    @Setup
+    public void setUp() {
+        report = Fixtures.text(Fixtures.LAB_REPORT);
+        summary = "Several results related to red blood cells and iron are outside their reference ranges.";
+        findings = extractor.extract(report);
+        history = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            history.add(new ChatMessage("user", "What does my ferritin result of 8 mean, question " + i + "?"));
+            history.add(new ChatMessage("assistant", "Ferritin is a protein that stores iron. " + summary));
+        }
+    }
+
+    @Benchmark
+    public List<Finding> extractLabValues() {
+        return extractor.extract(report);
+    }
+
+    @Benchmark
+    public String analysisPrompt() {
+        return AIPromptTemplates.buildAnalysisUserPrompt(report);
+    }
+
+    @Benchmark
+    public String explanationPrompt() {
+        return AIPromptTemplates.buildFindingsExplanationUserPrompt(report, findings, Set.of("hemoglobin"), Set.of());
+    }
+
+    @Benchmark
+    public PromptBudget.FittedPrompt fitFollowUp() {
+        return budget.fit(report, summary, "Is my low iron related to my hemoglobin?", history);
+    }
+}
@@ -0,0 +1,66 @@
+package com.patientvocate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.ReportSummaryListener;
+import com.patientvocate.service.ai.JsonResponseExtractor;
+import com.patientvocate.service.ai.ReportSummaryStreamParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing captured model responses into a ReportSummary: a plain Ollama JSON response, an
+ * OpenRouter response with a reasoning block and code fence, and the incremental parser
+ * fed the Ollama response in stream-sized fragments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    private static final int STREAM_FRAGMENT_CHARS = 12;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader summaryReader = objectMapper.readerFor(ReportSummary.class);
+
+    private String ollamaResponse;
+    private String openRouterResponse;
+    private List<String> fragments;
+
+    @Setup
+    public void setUp() {
+        ollamaResponse = Fixtures.text(Fixtures.OLLAMA_ANALYSIS);
+        openRouterResponse = Fixtures.text(Fixtures.OPENROUTER_REASONING);
+        fragments = new ArrayList<>();
+        for (int i = 0; i < ollamaResponse.length(); i += STREAM_FRAGMENT_CHARS) {
+            fragments.add(ollamaResponse.substring(i, Math.min(ollamaResponse.length(), i + STREAM_FRAGMENT_CHARS)));
+        }
+    }
+
+    @Benchmark
+    public ReportSummary ollamaResponse() throws IOException {
+        return JsonResponseExtractor.read(summaryReader, ollamaResponse);
+    }
+
+    @Benchmark
+    public ReportSummary openRouterReasoningResponse() throws IOException {
+        return JsonResponseExtractor.read(summaryReader, openRouterResponse);
+    }
+
+    @Benchmark
+    public int streamedResponse() {
+        ReportSummaryStreamParser parser = new ReportSummaryStreamParser(objectMapper, ReportSummaryListener.NONE);
+        for (String fragment : fragments) {
+            parser.feed(fragment);
+        }
+        return parser.getEmitted();
+    }
+}
@@ -0,0 +1,304 @@
+package com.patientvocate.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Stand-in LLM server for load tests. Speaks the Ollama protocol ({@code /api/generate},
+ * {@code /api/chat}, {@code /api/tags}) and the OpenAI-compatible {@code /chat/completions}
+ * protocol used for OpenRouter, streaming and non-streaming, with configurable latency, token
+ * rate and error profile. Responses are replayed round-robin from recorded files.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:java@llm-stub} and point the backend at
+ * it ({@code --ai.ollama.base-url=http://localhost:11435 --ai.openrouter.base-url=http://localhost:11435}).
+ * Settings are system properties:
+ * <ul>
+ *   <li>{@code stub.port} (11435)</li>
+ *   <li>{@code stub.latency-ms} (300) and {@code stub.jitter-ms} (100): time to the first token</li>
+ *   <li>{@code stub.tokens-per-second} (50, 0 = no pacing): generation rate after the first token</li>
+ *   <li>{@code stub.error-rate} (0.0) and {@code stub.error-status} (500): requests failed up front</li>
+ *   <li>{@code stub.stall-rate} (0.0): streams that end half way through, without the final chunk</li>
+ *   <li>{@code stub.replay-dir}: recorded responses in {@code analysis/} (structured JSON requests)
+ *       and {@code chat/} (everything else); defaults to the benchmark fixtures</li>
+ *   <li>{@code stub.threads} (256)</li>
+ * </ul>
+ */
+public class StubLlmServer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final String DEFAULT_CHAT_ANSWER =
+            "Ferritin is a protein that stores iron in your body, so a low ferritin level usually means the "
+                    + "body's iron stores are low. Your doctor can explain what this means for you and whether "
+                    + "any follow-up testing is needed.";
+
+    /** Latency, rate and error settings. */
+    public record Profile(long latencyMs, long jitterMs, double tokensPerSecond,
+                          double errorRate, int errorStatus, double stallRate) {
+
+        static Profile fromSystemProperties() {
+            return new Profile(
+                    Long.getLong("stub.latency-ms", 300),
+                    Long.getLong("stub.jitter-ms", 100),
+                    Double.parseDouble(System.getProperty("stub.tokens-per-second", "50")),
+                    Double.parseDouble(System.getProperty("stub.error-rate", "0")),
+                    Integer.getInteger("stub.error-status", 500),
+                    Double.parseDouble(System.getProperty("stub.stall-rate", "0")));
+        }
+    }
+
+    private final Profile profile;
+    private final List<String> analysisResponses;
+    private final List<String> chatResponses;
+    private final AtomicInteger nextAnalysis = new AtomicInteger();
+    private final AtomicInteger nextChat = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StubLlmServer(Profile profile, List<String> analysisResponses, List<String> chatResponses) {
+        if (analysisResponses.isEmpty() || chatResponses.isEmpty()) {
+            throw new IllegalArgumentException("At least one analysis and one chat response are required");
+        }
+        this.profile = profile;
+        this.analysisResponses = List.copyOf(analysisResponses);
+        this.chatResponses = List.copyOf(chatResponses);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String replayDir = System.getProperty("stub.replay-dir");
+        List<String> analysis = replayDir != null
+                ? load(Path.of(replayDir, "analysis"))
+                : List.of(compact(Fixtures.text(Fixtures.OLLAMA_ANALYSIS)));
+        List<String> chat = replayDir != null ? load(Path.of(replayDir, "chat")) : List.of(DEFAULT_CHAT_ANSWER);
+
+        StubLlmServer stub = new StubLlmServer(Profile.fromSystemProperties(), analysis, chat);
+        int port = stub.start(Integer.getInteger("stub.port", 11435), Integer.getInteger("stub.threads", 256));
+        System.out.printf("LLM stub listening on http://localhost:%d with %s (%d analysis / %d chat responses)%n",
+                port, stub.profile, analysis.size(), chat.size());
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::stop));
+
+        long reported = -1;
+        while (true) {
+            TimeUnit.SECONDS.sleep(10);
+            if (stub.requests.get() != reported) {
+                reported = stub.requests.get();
+                System.out.printf("requests=%d errors=%d stalls=%d in-flight=%d%n",
+                        reported, stub.errors.get(), stub.stalls.get(), stub.inFlight.get());
+            }
+        }
+    }
+
+    /**
+     * Start serving on {@code port} (0 picks a free port) and return the bound port.
+     */
+    public int start(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        inFlight.incrementAndGet();
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if ("GET".equals(exchange.getRequestMethod())) {
+                send(exchange, path.endsWith("/api/tags") || path.endsWith("/models") ? 200 : 404, "{\"models\":[]}");
+                return;
+            }
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            boolean openAi = path.endsWith("/chat/completions");
+            if (!openAi && !path.endsWith("/api/generate") && !path.endsWith("/api/chat")) {
+                send(exchange, 404, "{\"error\":\"not found\"}");
+                return;
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            sleepMillis(profile.latencyMs() + (profile.jitterMs() > 0 ? random.nextLong(profile.jitterMs() + 1) : 0));
+            if (random.nextDouble() < profile.errorRate()) {
+                errors.incrementAndGet();
+                send(exchange, profile.errorStatus(), openAi
+                        ? "{\"error\":{\"message\":\"stub error\",\"code\":" + profile.errorStatus() + "}}"
+                        : "{\"error\":\"stub error\"}");
+                return;
+            }
+
+            boolean structured = openAi ? request.has("response_format") : request.has("format");
+            String content = structured ? next(analysisResponses, nextAnalysis) : next(chatResponses, nextChat);
+            List<String> tokens = tokenize(content);
+            boolean stream = openAi ? request.path("stream").asBoolean(false) : request.path("stream").asBoolean(true);
+
+            if (stream) {
+                stream(exchange, path, tokens, random.nextDouble() < profile.stallRate());
+            } else {
+                pace(System.nanoTime(), tokens.size());
+                send(exchange, 200, complete(path, content, tokens.size()));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // Client went away
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void stream(HttpExchange exchange, String path, List<String> tokens, boolean stall) throws IOException {
+        boolean openAi = path.endsWith("/chat/completions");
+        exchange.getResponseHeaders().set("Content-Type", openAi ? "text/event-stream" : "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int limit = stall ? tokens.size() / 2 : tokens.size();
+        long start = System.nanoTime();
+        for (int i = 0; i < limit; i++) {
+            pace(start, i);
+            write(out, chunk(path, tokens.get(i)));
+        }
+        if (stall) {
+            // End the stream without the final chunk, as a provider that dies mid-generation would
+            stalls.incrementAndGet();
+            out.close();
+            return;
+        }
+        write(out, openAi ? "data: [DONE]\n\n" : finalChunk(path, tokens.size()));
+        out.close();
+    }
+
+    private static String chunk(String path, String token) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (path.endsWith("/chat/completions")) {
+            body.put("choices", List.of(Map.of("index", 0, "delta", Map.of("content", token))));
+            return "data: " + MAPPER.writeValueAsString(body) + "\n\n";
+        }
+        if (path.endsWith("/api/chat")) {
+            body.put("message", Map.of("role", "assistant", "content", token));
+        } else {
+            body.put("response", token);
+        }
+        body.put("done", false);
+        return MAPPER.writeValueAsString(body) + "\n";
+    }
+
+    private static String finalChunk(String path, int tokenCount) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (path.endsWith("/api/chat")) {
+            body.put("message", Map.of("role", "assistant", "content", ""));
+        } else {
+            body.put("response", "");
+            body.put("context", List.of(1, 2, 3));
+        }
+        body.put("done", true);
+        body.put("eval_count", tokenCount);
+        return MAPPER.writeValueAsString(body) + "\n";
+    }
+
+    private static String complete(String path, String content, int tokenCount) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (path.endsWith("/chat/completions")) {
+            body.put("id", "stub-" + UUID.randomUUID());
+            body.put("object", "chat.completion");
+            body.put("choices", List.of(Map.of("index", 0, "finish_reason", "stop",
+                    "message", Map.of("role", "assistant", "content", content))));
+            body.put("usage", Map.of("prompt_tokens", 0, "completion_tokens", tokenCount));
+        } else if (path.endsWith("/api/chat")) {
+            body.put("message", Map.of("role", "assistant", "content", content));
+            body.put("done", true);
+        } else {
+            body.put("response", content);
+            body.put("done", true);
+            body.put("context", List.of(1, 2, 3));
+            body.put("eval_count", tokenCount);
+        }
+        return MAPPER.writeValueAsString(body);
+    }
+
+    /**
+     * Wait until token {@code index} is due at the configured generation rate.
+     */
+    private void pace(long startNanos, int index) {
+        if (profile.tokensPerSecond() <= 0) return;
+        long due = startNanos + (long) (index * 1_000_000_000L / profile.tokensPerSecond());
+        long wait = due - System.nanoTime();
+        if (wait > 0) sleepMillis(TimeUnit.NANOSECONDS.toMillis(wait));
+    }
+
+    private static List<String> tokenize(String content) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < content.length(); i += CHARS_PER_TOKEN) {
+            tokens.add(content.substring(i, Math.min(content.length(), i + CHARS_PER_TOKEN)));
+        }
+        return tokens;
+    }
+
+    private static String next(List<String> responses, AtomicInteger cursor) {
+        return responses.get(Math.floorMod(cursor.getAndIncrement(), responses.size()));
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void write(OutputStream out, String data) throws IOException {
+        out.write(data.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sleepMillis(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrupted"));
+        }
+    }
+
+    private static List<String> load(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("Replay directory not found: " + dir);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            List<String> responses = new ArrayList<>();
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                responses.add(Files.readString(file));
+            }
+            return responses;
+        }
+    }
+
+    private static String compact(String json) throws IOException {
+        return MAPPER.writeValueAsString(MAPPER.readTree(json));
+    }
+}
@@ -1,12 +1,16 @@
 package com.patientvocate.config;
 
+import com.patientvocate.service.ai.CircuitBreaker;
+import com.patientvocate.service.ai.PromptBudget;
+import com.patientvocate.service.ai.ProviderHttpClient;
+import com.patientvocate.service.ai.TokenEstimator;
+import com.patientvocate.service.metrics.PipelineMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.Duration;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import java.util.Map;
 
 @Configuration
 public class AIConfig {
@@ -17,12 +21,80 @@ public class AIConfig {
     @Value("${ai.ollama.timeout}")
     private int timeoutSeconds;
 
+    @Value("${ai.ollama.max-concurrency:4}")
+    private int ollamaMaxConcurrency;
+
+    @Value("${ai.openrouter.base-url:https://openrouter.ai/api/v1}")
+    private String openRouterBaseUrl;
+
+    @Value("${ai.openrouter.api-key}")
+    private String openRouterApiKey;
+
+    @Value("${ai.openrouter.timeout}")
+    private int openRouterTimeoutSeconds;
+
+    @Value("${ai.openrouter.max-concurrency:32}")
+    private int openRouterMaxConcurrency;
+
+    @Value("${ai.ollama.prompt-budget.max-tokens:3072}")
+    private int ollamaMaxPromptTokens;
+
+    @Value("${ai.ollama.prompt-budget.chars-per-token:3.5}")
+    private double ollamaCharsPerToken;
+
+    @Value("${ai.openrouter.prompt-budget.max-tokens:16000}")
+    private int openRouterMaxPromptTokens;
+
+    @Value("${ai.openrouter.prompt-budget.chars-per-token:4.0}")
+    private double openRouterCharsPerToken;
+
+    @Value("${ai.stream.idle-timeout:60}")
+    private int streamIdleTimeoutSeconds;
+
+    @Value("${ai.circuit-breaker.failure-threshold:3}")
+    private int breakerFailureThreshold;
+
+    @Value("${ai.circuit-breaker.open-seconds:30}")
+    private int breakerOpenSeconds;
+
+    @Bean
+    public ProviderHttpClient ollamaHttpClient() {
+        return new ProviderHttpClient("ollama", ollamaBaseUrl,
+                Duration.ofSeconds(10),
+                Duration.ofSeconds(timeoutSeconds),
+                Duration.ofSeconds(streamIdleTimeoutSeconds),
+                ollamaMaxConcurrency,
+                Map.of(),
+                circuitBreaker("ollama"));
+    }
+
+    @Bean
+    public ProviderHttpClient openRouterHttpClient() {
+        return new ProviderHttpClient("openrouter", openRouterBaseUrl,
+                Duration.ofSeconds(10),
+                Duration.ofSeconds(openRouterTimeoutSeconds),
+                Duration.ofSeconds(streamIdleTimeoutSeconds),
+                openRouterMaxConcurrency,
+                Map.of(
+                        "Authorization", "Bearer " + openRouterApiKey,
+                        "HTTP-Referer", "http://localhost:8080", // Required by OpenRouter
+                        "X-Title", "PatientVocate" // Recommended by OpenRouter
+                ),
+                circuitBreaker("openrouter"));
+    }
+
+    private CircuitBreaker circuitBreaker(String provider) {
+        return new CircuitBreaker(provider, breakerFailureThreshold, Duration.ofSeconds(breakerOpenSeconds));
+    }
+
+    @Bean
+    public PromptBudget ollamaPromptBudget(PipelineMetrics metrics) {
+        return new PromptBudget("ollama", ollamaMaxPromptTokens, new TokenEstimator(ollamaCharsPerToken), metrics);
+    }
+
     @Bean
-    public RestTemplate ollamaRestTemplate(RestTemplateBuilder builder) {
-        return builder
-                .rootUri(ollamaBaseUrl)
-                .setConnectTimeout(Duration.ofSeconds(10))
-                .setReadTimeout(Duration.ofSeconds(timeoutSeconds))
-                .build();
+    public PromptBudget openRouterPromptBudget(PipelineMetrics metrics) {
+        return new PromptBudget("openrouter", openRouterMaxPromptTokens, new TokenEstimator(openRouterCharsPerToken),
+                metrics);
     }
 }
@@ -0,0 +1,67 @@
+package com.patientvocate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executors for work that must not run on Tomcat request threads,
+ * plus scheduling for background housekeeping.
+ */
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    /**
+     * Executor that relays streamed chat tokens from the AI provider to SSE clients.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor chatStreamExecutor(
+            @Value("${ai.stream.max-concurrent:16}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(maxConcurrent * 4);
+        executor.setThreadNamePrefix("chat-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for streamed report analyses. Kept apart from {@link #chatStreamExecutor} because
+     * an analysis holds its thread through extraction, OCR and the provider call, so a burst of
+     * uploads would otherwise starve follow-up chat.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor analysisStreamExecutor(
+            @Value("${analysis.stream.max-concurrent:8}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(maxConcurrent * 2);
+        executor.setThreadNamePrefix("analysis-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * CPU-bound executor for page-level OCR. When the queue is full the submitting
+     * thread runs the page itself, which throttles producers instead of failing.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor ocrExecutor(@Value("${ocr.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 8);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("ocr-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,124 @@
+package com.patientvocate.controller;
+
+import com.patientvocate.dto.ReportAnalysisResponse;
+import com.patientvocate.service.AnalysisStage;
+import com.patientvocate.service.SpooledMultipartFile;
+import com.patientvocate.service.batch.BatchAnalysisService;
+import com.patientvocate.service.batch.BatchListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST controller for analyzing many reports in one request.
+ */
+@RestController
+@RequestMapping("/api/reports/batch")
+public class BatchController {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchController.class);
+
+    private final BatchAnalysisService batchService;
+    private final long timeoutMillis;
+
+    public BatchController(BatchAnalysisService batchService,
+                           @Value("${batch.stream-timeout:3600}") long timeoutSeconds) {
+        this.batchService = batchService;
+        this.timeoutMillis = Duration.ofSeconds(timeoutSeconds).toMillis();
+    }
+
+    /**
+     * Upload several PDFs/images (or zip archives of them) for analysis. Emits an "accepted"
+     * event listing the files by index, "stage" and "result" events for each file as it
+     * progresses and completes (in completion order, not upload order), and a final "done"
+     * event with the totals. A rejected batch gets a single "error" event.
+     */
+    @PostMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter analyzeBatch(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "provider", defaultValue = "ollama") String provider) {
+
+        log.info("Received batch analysis request: {} uploads (provider: {})", files.size(), provider);
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        List<SpooledMultipartFile> spooled;
+        try {
+            spooled = batchService.spool(files);
+        } catch (IllegalArgumentException e) {
+            return fail(emitter, e.getMessage());
+        } catch (IOException e) {
+            log.error("Failed to spool batch upload", e);
+            return fail(emitter, "Failed to read uploaded files: " + e.getMessage());
+        }
+
+        List<String> names = new ArrayList<>(spooled.size());
+        spooled.forEach(file -> names.add(file.getOriginalFilename()));
+        sendEvent(emitter, "accepted", Map.of("files", names));
+
+        try {
+            batchService.submit(spooled, provider, new BatchListener() {
+                @Override
+                public void onStage(int index, String fileName, AnalysisStage stage) {
+                    sendEvent(emitter, "stage", Map.of("index", index, "fileName", fileName, "stage", stage.name()));
+                }
+
+                @Override
+                public void onResult(int index, String fileName, ReportAnalysisResponse response) {
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    result.put("index", index);
+                    result.put("fileName", fileName);
+                    result.put("response", response);
+                    sendEvent(emitter, "result", result);
+                }
+
+                @Override
+                public void onComplete(int succeeded, int failed, long elapsedMillis) {
+                    sendEvent(emitter, "done", Map.of("total", succeeded + failed,
+                            "succeeded", succeeded, "failed", failed, "elapsedMs", elapsedMillis));
+                    emitter.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            spooled.forEach(SpooledMultipartFile::delete);
+            return fail(emitter, "Too many reports in progress. Please try again shortly.");
+        }
+        return emitter;
+    }
+
+    /**
+     * Pipeline queue depths and counters.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(batchService.getStats());
+    }
+
+    private SseEmitter fail(SseEmitter emitter, String message) {
+        sendEvent(emitter, "error", ReportAnalysisResponse.error(message));
+        emitter.complete();
+        return emitter;
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // Client went away; the batch service cancels the remaining items
+            throw new UncheckedIOException("Client disconnected", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.patientvocate.controller;
+
+import com.patientvocate.dto.JobStatusResponse;
+import com.patientvocate.dto.TextAnalysisRequest;
+import com.patientvocate.service.job.AnalysisJob;
+import com.patientvocate.service.job.AnalysisJobService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST controller for asynchronous (job-based) report analysis.
+ */
+@RestController
+@RequestMapping("/api/reports/jobs")
+public class JobController {
+
+    private static final Logger log = LoggerFactory.getLogger(JobController.class);
+
+    private final AnalysisJobService jobService;
+
+    public JobController(AnalysisJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Submit a PDF or image file for background analysis. Returns immediately with a job id.
+     */
+    @PostMapping
+    public ResponseEntity<?> submitFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "provider", defaultValue = "ollama") String provider) {
+
+        log.info("Received async file analysis request: {} (provider: {})", file.getOriginalFilename(), provider);
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "File is empty"));
+        }
+
+        try {
+            AnalysisJob job = jobService.submitFile(file, provider);
+            return ResponseEntity.accepted().body(JobStatusResponse.from(job));
+        } catch (RejectedExecutionException e) {
+            return busy();
+        }
+    }
+
+    /**
+     * Submit raw text for background analysis. Returns immediately with a job id.
+     */
+    @PostMapping("/text")
+    public ResponseEntity<?> submitText(
+            @Valid @RequestBody TextAnalysisRequest request,
+            @RequestParam(value = "provider", defaultValue = "ollama") String provider) {
+
+        log.info("Received async text analysis request (provider: {})", provider);
+
+        try {
+            AnalysisJob job = jobService.submitText(request.getReportText(), provider);
+            return ResponseEntity.accepted().body(JobStatusResponse.from(job));
+        } catch (RejectedExecutionException e) {
+            return busy();
+        }
+    }
+
+    /**
+     * Poll job status, per-stage progress and (once finished) the analysis result.
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobStatusResponse> getJob(@PathVariable String jobId) {
+        AnalysisJob job = jobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(JobStatusResponse.from(job));
+    }
+
+    /**
+     * Cancel a queued or running job.
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<JobStatusResponse> cancelJob(@PathVariable String jobId) {
+        AnalysisJob job = jobService.cancel(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(JobStatusResponse.from(job));
+    }
+
+    private ResponseEntity<Map<String, Object>> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "success", false,
+                "error", "Too many analyses in progress. Please try again shortly."
+        ));
+    }
+}
@@ -1,15 +1,33 @@
 package com.patientvocate.controller;
 
 import com.patientvocate.dto.*;
+import com.patientvocate.model.DiscussionQuestion;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.GlossaryEntry;
+import com.patientvocate.service.AnalysisProgressListener;
 import com.patientvocate.service.ReportService;
+import com.patientvocate.service.ReportSummaryListener;
+import com.patientvocate.service.SpooledMultipartFile;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 /**
  * REST controller for report analysis and follow-up chat endpoints.
@@ -21,9 +39,24 @@ public class ReportController {
     private static final Logger log = LoggerFactory.getLogger(ReportController.class);
 
     private final ReportService reportService;
+    private final TaskExecutor chatStreamExecutor;
+    private final TaskExecutor analysisStreamExecutor;
+    private final long streamTimeoutMillis;
+    private final long analysisStreamTimeoutMillis;
+    private final Path spoolDir;
 
-    public ReportController(ReportService reportService) {
+    public ReportController(ReportService reportService,
+                            @Qualifier("chatStreamExecutor") TaskExecutor chatStreamExecutor,
+                            @Qualifier("analysisStreamExecutor") TaskExecutor analysisStreamExecutor,
+                            @Value("${ai.stream.timeout:300}") long streamTimeoutSeconds,
+                            @Value("${analysis.stream.timeout:600}") long analysisStreamTimeoutSeconds,
+                            @Value("${jobs.spool-dir:}") String spoolDir) {
         this.reportService = reportService;
+        this.chatStreamExecutor = chatStreamExecutor;
+        this.analysisStreamExecutor = analysisStreamExecutor;
+        this.streamTimeoutMillis = Duration.ofSeconds(streamTimeoutSeconds).toMillis();
+        this.analysisStreamTimeoutMillis = Duration.ofSeconds(analysisStreamTimeoutSeconds).toMillis();
+        this.spoolDir = spoolDir == null || spoolDir.isBlank() ? null : Path.of(spoolDir);
     }
 
     /**
@@ -71,6 +104,115 @@ public class ReportController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Streaming file analysis. Emits "stage" events as the pipeline progresses, then "summary",
+     * "finding", "glossary", "question" and "disclaimer" events as each part of the analysis
+     * is complete, and finally a "done" event with the full response (or an "error" event).
+     */
+    @PostMapping(value = "/reports/analyze/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter analyzeFileStream(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "provider", defaultValue = "ollama") String provider) {
+
+        log.info("Received streaming file analysis request: {} (provider: {})", file.getOriginalFilename(), provider);
+
+        SseEmitter emitter = new SseEmitter(analysisStreamTimeoutMillis);
+        if (file.isEmpty()) {
+            sendEvent(emitter, "error", ReportAnalysisResponse.error("File is empty"));
+            emitter.complete();
+            return emitter;
+        }
+
+        // The servlet container deletes its copy of the upload when this request thread returns
+        SpooledMultipartFile spooled;
+        try {
+            spooled = SpooledMultipartFile.spool(file, spoolDir);
+        } catch (IOException e) {
+            log.error("Failed to spool upload {}", file.getOriginalFilename(), e);
+            sendEvent(emitter, "error", ReportAnalysisResponse.error("Failed to read uploaded file"));
+            emitter.complete();
+            return emitter;
+        }
+        return streamAnalysis(emitter, (progress, parts) -> {
+            try {
+                return reportService.streamAnalyzeFile(spooled, provider, progress, parts);
+            } finally {
+                spooled.delete();
+            }
+        }, spooled::delete);
+    }
+
+    /**
+     * Streaming text analysis, with the same events as {@link #analyzeFileStream}.
+     */
+    @PostMapping(value = "/reports/analyze/text/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter analyzeTextStream(
+            @Valid @RequestBody TextAnalysisRequest request,
+            @RequestParam(value = "provider", defaultValue = "ollama") String provider) {
+
+        log.info("Received streaming text analysis request (provider: {})", provider);
+
+        return streamAnalysis(new SseEmitter(analysisStreamTimeoutMillis),
+                (progress, parts) -> reportService.streamAnalyzeText(request.getReportText(), provider, progress, parts),
+                () -> {});
+    }
+
+    private SseEmitter streamAnalysis(SseEmitter emitter,
+                                      BiFunction<AnalysisProgressListener, ReportSummaryListener, ReportAnalysisResponse> analysis,
+                                      Runnable onRejected) {
+        AnalysisProgressListener progress = stage -> sendEvent(emitter, "stage", Map.of("stage", stage.name()));
+        ReportSummaryListener parts = new ReportSummaryListener() {
+            @Override
+            public void onSummary(String summary) {
+                sendEvent(emitter, "summary", Map.of("content", summary));
+            }
+
+            @Override
+            public void onFinding(Finding finding) {
+                sendEvent(emitter, "finding", finding);
+            }
+
+            @Override
+            public void onGlossaryEntry(GlossaryEntry entry) {
+                sendEvent(emitter, "glossary", entry);
+            }
+
+            @Override
+            public void onDiscussionQuestion(DiscussionQuestion question) {
+                sendEvent(emitter, "question", question);
+            }
+
+            @Override
+            public void onDisclaimer(String disclaimer) {
+                sendEvent(emitter, "disclaimer", Map.of("content", disclaimer));
+            }
+        };
+
+        try {
+            analysisStreamExecutor.execute(() -> {
+                try {
+                    ReportAnalysisResponse response = analysis.apply(progress, parts);
+                    sendEvent(emitter, response.isSuccess() ? "done" : "error", response);
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.error("Streaming analysis failed", e);
+                    try {
+                        sendEvent(emitter, "error", ReportAnalysisResponse.error("Analysis failed: " + e.getMessage()));
+                        emitter.complete();
+                    } catch (Exception ignored) {
+                        emitter.completeWithError(e);
+                    }
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Streaming analysis rejected, executor saturated");
+            onRejected.run();
+            sendEvent(emitter, "error", ReportAnalysisResponse.error("Server is busy, please try again shortly."));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
     /**
      * Follow-up chat endpoint for patient questions.
      */
@@ -82,15 +224,20 @@ public class ReportController {
         log.info("Received chat request (provider: {})", provider);
         
         try {
-            String answer = reportService.handleFollowUp(
-                    request.getReportText(),
-                    request.getAnalysisSummary(),
-                    request.getQuestion(),
-                    request.getConversationHistory(),
-                    provider
-            );
+            String answer = useSession(request)
+                    ? reportService.handleFollowUp(request.getAnalysisId(), request.getQuestion(), provider)
+                    : reportService.handleFollowUp(
+                            request.getReportText(),
+                            request.getAnalysisSummary(),
+                            request.getQuestion(),
+                            request.getConversationHistory(),
+                            provider
+                    );
             
             return ResponseEntity.ok(ChatResponse.success(answer));
+        } catch (IllegalArgumentException e) {
+            log.warn("Follow-up chat rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ChatResponse.error(e.getMessage()));
         } catch (Exception e) {
             log.error("Follow-up chat failed", e);
             return ResponseEntity.internalServerError()
@@ -99,21 +246,92 @@ public class ReportController {
     }
 
     /**
-     * Health check endpoint — verifies server and AI model status.
+     * Streaming follow-up chat. Emits "token" events as the model generates the answer,
+     * then a single "done" event with the full answer (or an "error" event).
+     */
+    @PostMapping(value = "/reports/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(
+            @Valid @RequestBody ChatRequest request,
+            @RequestParam(value = "provider", defaultValue = "ollama") String provider) {
+
+        log.info("Received streaming chat request (provider: {})", provider);
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        try {
+            chatStreamExecutor.execute(() -> {
+                try {
+                    Consumer<String> onToken = token -> sendEvent(emitter, "token", Map.of("content", token));
+                    String answer = useSession(request)
+                            ? reportService.streamFollowUp(request.getAnalysisId(), request.getQuestion(), provider, onToken)
+                            : reportService.streamFollowUp(
+                                    request.getReportText(),
+                                    request.getAnalysisSummary(),
+                                    request.getQuestion(),
+                                    request.getConversationHistory(),
+                                    provider,
+                                    onToken
+                            );
+                    sendEvent(emitter, "done", ChatResponse.success(answer));
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.error("Streaming follow-up chat failed", e);
+                    try {
+                        sendEvent(emitter, "error", ChatResponse.error("Failed to process your question: " + e.getMessage()));
+                        emitter.complete();
+                    } catch (Exception ignored) {
+                        emitter.completeWithError(e);
+                    }
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Streaming chat rejected, executor saturated");
+            sendEvent(emitter, "error", ChatResponse.error("Server is busy, please try again shortly."));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Use the server-side session when the client references one. If the session has expired
+     * but the client also sent the report text, fall back to the stateless path.
+     */
+    private boolean useSession(ChatRequest request) {
+        String analysisId = request.getAnalysisId();
+        if (analysisId == null || analysisId.isBlank()) {
+            return false;
+        }
+        boolean hasReportText = request.getReportText() != null && !request.getReportText().isBlank();
+        return !hasReportText || reportService.hasSession(analysisId);
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // Client went away — abort so the provider stream is closed too
+            throw new UncheckedIOException("Client disconnected", e);
+        }
+    }
+
+    /**
+     * Health check endpoint — verifies server and AI model status. {@code aiModel} names the
+     * default provider and its configured model; {@code aiModel.providers} lists every provider.
      */
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
-        boolean aiAvailable = reportService.isAIAvailable();
-
         Map<String, Object> status = Map.of(
                 "status", "UP",
-                "aiModel", Map.of(
-                        "available", aiAvailable,
-                        "provider", "ollama",
-                        "model", "mistral"
-                )
+                "aiModel", reportService.getAIStatus()
         );
 
         return ResponseEntity.ok(status);
     }
+
+    /**
+     * Runtime statistics (cache hit rates, etc.).
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(reportService.getStats());
+    }
 }
@@ -1,15 +1,19 @@
 package com.patientvocate.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.patientvocate.model.ChatMessage;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import java.util.List;
 
 /**
- * Request DTO for follow-up chat endpoint.
+ * Request DTO for follow-up chat endpoint. Either {@code analysisId} (server-side session)
+ * or {@code reportText} (stateless, history sent by the client) must be provided.
  */
 public class ChatRequest {
 
-    @NotBlank(message = "Report text is required for context")
+    private String analysisId;
+
     private String reportText;
 
     private String analysisSummary;
@@ -21,6 +25,16 @@ public class ChatRequest {
 
     public ChatRequest() {}
 
+    @JsonIgnore
+    @AssertTrue(message = "Report text or analysisId is required for context")
+    public boolean isContextProvided() {
+        return (analysisId != null && !analysisId.isBlank())
+                || (reportText != null && !reportText.isBlank());
+    }
+
+    public String getAnalysisId() { return analysisId; }
+    public void setAnalysisId(String analysisId) { this.analysisId = analysisId; }
+
     public String getReportText() { return reportText; }
     public void setReportText(String reportText) { this.reportText = reportText; }
 
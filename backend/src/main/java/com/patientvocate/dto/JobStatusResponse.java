@@ -0,0 +1,73 @@
+package com.patientvocate.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.patientvocate.service.AnalysisStage;
+import com.patientvocate.service.job.AnalysisJob;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Response DTO describing an asynchronous analysis job.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobStatusResponse {
+
+    private String jobId;
+    private String status;
+    private String currentStage;
+    private int progress;
+    private Map<AnalysisStage, AnalysisJob.StageState> stages;
+    private ReportAnalysisResponse result;
+    private String error;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    public JobStatusResponse() {}
+
+    public static JobStatusResponse from(AnalysisJob job) {
+        JobStatusResponse response = new JobStatusResponse();
+        response.setJobId(job.getId());
+        response.setStatus(job.getStatus().name());
+        response.setCurrentStage(job.getCurrentStage() != null ? job.getCurrentStage().name() : null);
+        response.setProgress(job.getProgress());
+        response.setStages(job.getStages());
+        response.setResult(job.getResult());
+        response.setError(job.getError());
+        response.setCreatedAt(job.getCreatedAt());
+        response.setStartedAt(job.getStartedAt());
+        response.setFinishedAt(job.getFinishedAt());
+        return response;
+    }
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getCurrentStage() { return currentStage; }
+    public void setCurrentStage(String currentStage) { this.currentStage = currentStage; }
+
+    public int getProgress() { return progress; }
+    public void setProgress(int progress) { this.progress = progress; }
+
+    public Map<AnalysisStage, AnalysisJob.StageState> getStages() { return stages; }
+    public void setStages(Map<AnalysisStage, AnalysisJob.StageState> stages) { this.stages = stages; }
+
+    public ReportAnalysisResponse getResult() { return result; }
+    public void setResult(ReportAnalysisResponse result) { this.result = result; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+}
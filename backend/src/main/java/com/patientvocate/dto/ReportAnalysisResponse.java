@@ -10,6 +10,7 @@ public class ReportAnalysisResponse {
     private boolean success;
     private ReportSummary analysis;
     private String reportText;
+    private String analysisId;
     private String error;
 
     public ReportAnalysisResponse() {}
@@ -38,6 +39,9 @@ public class ReportAnalysisResponse {
     public String getReportText() { return reportText; }
     public void setReportText(String reportText) { this.reportText = reportText; }
 
+    public String getAnalysisId() { return analysisId; }
+    public void setAnalysisId(String analysisId) { this.analysisId = analysisId; }
+
     public String getError() { return error; }
     public void setError(String error) { this.error = error; }
 }
@@ -1,5 +1,6 @@
 package com.patientvocate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.util.List;
 
@@ -12,6 +13,9 @@ public class ReportSummary {
     private List<DiscussionQuestion> discussionQuestions;
     private String disclaimer;
 
+    @JsonIgnore
+    private boolean fallback; // true when the AI response could not be structured
+
     public ReportSummary() {}
 
     public ReportSummary(String summary, List<Finding> findings, List<GlossaryEntry> glossary,
@@ -37,4 +41,9 @@ public class ReportSummary {
 
     public String getDisclaimer() { return disclaimer; }
     public void setDisclaimer(String disclaimer) { this.disclaimer = disclaimer; }
+
+    @JsonIgnore
+    public boolean isFallback() { return fallback; }
+    @JsonIgnore
+    public void setFallback(boolean fallback) { this.fallback = fallback; }
 }
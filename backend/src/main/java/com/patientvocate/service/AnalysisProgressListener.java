@@ -0,0 +1,16 @@
+package com.patientvocate.service;
+
+/**
+ * Receives stage transitions while {@link ReportService} processes a report.
+ * Implementations may throw a runtime exception to abort the pipeline (e.g. on cancellation).
+ */
+@FunctionalInterface
+public interface AnalysisProgressListener {
+
+    AnalysisProgressListener NONE = stage -> {};
+
+    /**
+     * Called when the pipeline enters a new stage.
+     */
+    void stageStarted(AnalysisStage stage);
+}
@@ -0,0 +1,10 @@
+package com.patientvocate.service;
+
+/**
+ * Stages of the report analysis pipeline, in execution order.
+ */
+public enum AnalysisStage {
+    EXTRACTION,
+    OCR,
+    AI_ANALYSIS
+}
@@ -1,24 +1,45 @@
 package com.patientvocate.service;
 
-import net.sourceforge.tess4j.Tesseract;
+import com.patientvocate.service.cache.OcrCache;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import com.patientvocate.service.ocr.ImagePreprocessor;
+import com.patientvocate.service.ocr.Recognition;
+import com.patientvocate.service.ocr.TesseractPool;
+import io.micrometer.core.instrument.Timer;
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
 import net.sourceforge.tess4j.TesseractException;
-import net.sourceforge.tess4j.util.ImageHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * Service for extracting text from images using Tesseract OCR.
+ * Multi-page inputs (multi-frame TIFFs, scanned PDF pages) are recognized in
+ * parallel on the OCR executor and stitched back together in page order.
+ * Each page starts with a cheap pass on the raw image and only escalates to
+ * heavier passes while Tesseract's word confidence stays low. Recognized pages
+ * are cached by pixel content, so re-uploads of the same image skip Tesseract.
  */
 @Service
 public class OCRService {
@@ -29,14 +50,75 @@ public class OCRService {
             "image/jpeg", "image/jpg", "image/png", "image/tiff", "image/bmp"
     );
 
-    @Value("${ocr.tessdata-path:}")
-    private String tessdataPath;
+    static final String PAGE_SEPARATOR = "\n\n";
+
+    private static final String CACHE_PASS = "cache";
+
+    /**
+     * OCR passes in escalation order, from cheapest to most expensive.
+     */
+    private enum Pass {
+        /** Raw image, rows read as one uniform block (keeps table rows together). */
+        FAST("fast", false, TessPageSegMode.PSM_SINGLE_BLOCK),
+        /** Scaled, deskewed and binarized image. */
+        PREPROCESSED("preprocessed", true, TessPageSegMode.PSM_SINGLE_BLOCK),
+        /** Preprocessed image with automatic layout analysis, for multi-column or mixed layouts. */
+        AUTO_LAYOUT("auto_layout", true, TessPageSegMode.PSM_AUTO);
+
+        private final String tag;
+        private final boolean preprocessed;
+        private final int pageSegMode;
+
+        Pass(String tag, boolean preprocessed, int pageSegMode) {
+            this.tag = tag;
+            this.preprocessed = preprocessed;
+            this.pageSegMode = pageSegMode;
+        }
+    }
+
+    /**
+     * Text kept for one page, the pass that produced it, how many passes ran and its mean
+     * word confidence.
+     */
+    public record PageResult(String text, String pass, int passes, int confidence) {}
+
+    private final TesseractPool tesseractPool;
+    private final ImagePreprocessor preprocessor;
+    private final TaskExecutor ocrExecutor;
+    private final int parallelism;
+    private final PipelineMetrics metrics;
+    private final OcrCache cache;
 
     @Value("${ocr.language:eng}")
     private String language;
 
+    @Value("${ocr.passes.max:3}")
+    private int maxPasses = 3;
+
+    @Value("${ocr.passes.accept-confidence:80}")
+    private int acceptConfidence = 80;
+
+    @Value("${ocr.passes.low-word-confidence:60}")
+    private int lowWordConfidence = 60;
+
+    @Value("${ocr.passes.max-low-word-ratio:0.2}")
+    private double maxLowWordRatio = 0.2;
+
+    public OCRService(TesseractPool tesseractPool, ImagePreprocessor preprocessor,
+                      @Qualifier("ocrExecutor") TaskExecutor ocrExecutor, PipelineMetrics metrics,
+                      OcrCache cache) {
+        this.tesseractPool = tesseractPool;
+        this.preprocessor = preprocessor;
+        this.metrics = metrics;
+        this.ocrExecutor = ocrExecutor;
+        this.parallelism = ocrExecutor instanceof ThreadPoolTaskExecutor pool
+                ? pool.getMaxPoolSize() : Runtime.getRuntime().availableProcessors();
+        this.cache = cache;
+    }
+
     /**
      * Extract text from an image file using Tesseract OCR.
+     * Every frame of a multi-page image (e.g. TIFF) is recognized.
      *
      * @param file the uploaded image file
      * @return extracted text content
@@ -44,61 +126,62 @@ public class OCRService {
     public String extractText(MultipartFile file) {
         log.info("Starting OCR for image: {}, size: {} bytes", file.getOriginalFilename(), file.getSize());
 
-        try (InputStream inputStream = file.getInputStream()) {
-            BufferedImage image = ImageIO.read(inputStream);
-            if (image == null) {
+        try (InputStream inputStream = file.getInputStream();
+             ImageInputStream imageStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = imageStream != null ? ImageIO.getImageReaders(imageStream) : null;
+            if (readers == null || !readers.hasNext()) {
                 throw new RuntimeException("Could not read image file: " + file.getOriginalFilename());
             }
 
-            // Preprocess image to improve OCR accuracy, especially for low DPI scans
+            ImageReader reader = readers.next();
+            List<CompletableFuture<PageResult>> pages = new ArrayList<>();
+            Semaphore window = newPageWindow();
             try {
-                // Convert to grayscale
-                image = ImageHelper.convertImageToGrayscale(image);
-                // Scale up by 2x to improve resolution (simulating higher DPI)
-                image = ImageHelper.getScaledInstance(image, image.getWidth() * 2, image.getHeight() * 2);
-                log.info("Preprocessed image for OCR (grayscale, 2x scale)");
-            } catch (Exception e) {
-                log.warn("Image preprocessing skipped due to error: {}", e.getMessage());
-            }
-
-            Tesseract tesseract = new Tesseract();
-            if (tessdataPath != null && !tessdataPath.isEmpty()) {
-                tesseract.setDatapath(tessdataPath);
-            } else {
-                // Try to auto-detect Tesseract data path on Linux if not set
-                String os = System.getProperty("os.name").toLowerCase();
-                if (!os.contains("win")) {
-                    String[] commonPaths = {
-                            "/usr/share/tesseract-ocr/4.00/tessdata",
-                            "/usr/share/tesseract-ocr/5/tessdata",
-                            "/usr/share/tessdata"
-                    };
-                    for (String path : commonPaths) {
-                        Path tessDataPath = Paths.get(path);
-                        if (Files.exists(tessDataPath) && Files.exists(tessDataPath.resolve(language + ".traineddata"))) {
-                            log.info("Auto-detected Tesseract data path: {}", path);
-                            tesseract.setDatapath(path);
-                            break;
-                        }
+                reader.setInput(imageStream, false, true);
+                // Submit each frame as soon as it is decoded so decoding overlaps recognition,
+                // but decode no further ahead than the OCR threads
+                for (int i = 0; ; i++) {
+                    window.acquire();
+                    BufferedImage frame;
+                    try {
+                        frame = reader.read(i);
+                    } catch (IndexOutOfBoundsException e) {
+                        window.release();
+                        break;
+                    } catch (IOException | RuntimeException e) {
+                        window.release();
+                        throw e;
                     }
+                    pages.add(recognizeAsync(frame, window));
                 }
+            } catch (InterruptedException e) {
+                pages.forEach(p -> p.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while decoding image frames for OCR");
+            } catch (IOException | RuntimeException e) {
+                pages.forEach(p -> p.cancel(true));
+                throw e;
+            } finally {
+                reader.dispose();
             }
-            tesseract.setLanguage(language);
 
-            String text = tesseract.doOCR(image);
+            if (pages.isEmpty()) {
+                throw new RuntimeException("Could not read image file: " + file.getOriginalFilename());
+            }
+            if (pages.size() > 1) {
+                log.info("Image has {} frames, running OCR in parallel", pages.size());
+            }
+
+            String text = joinPages(pages);
 
-            if (text == null || text.trim().isEmpty()) {
+            if (text.isEmpty()) {
                 throw new RuntimeException("OCR could not extract text from the image. " +
                         "This may be due to low resolution (DPI < 300) or blurriness.");
             }
 
             log.info("OCR successfully extracted {} characters", text.length());
-            return text.trim();
+            return text;
 
-        } catch (TesseractException e) {
-            log.error("Tesseract OCR failed for: {}", file.getOriginalFilename(), e);
-            throw new RuntimeException("OCR processing failed. Please ensure Tesseract is installed " +
-                    "and tessdata is available: " + e.getMessage(), e);
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -107,6 +190,167 @@ public class OCRService {
         }
     }
 
+    /**
+     * Recognize a single image (one page) on the OCR executor.
+     */
+    public CompletableFuture<PageResult> recognizeAsync(BufferedImage image) {
+        return CompletableFuture.supplyAsync(() -> recognize(image), ocrExecutor);
+    }
+
+    /**
+     * A window of one permit per OCR thread, bounding how many pages of one document are
+     * rendered or decoded but not yet recognized. Acquire a permit before producing each
+     * page image and pass the window to {@link #recognizeAsync(BufferedImage, Semaphore)}.
+     */
+    public Semaphore newPageWindow() {
+        return new Semaphore(parallelism);
+    }
+
+    /**
+     * Recognize a page on the OCR executor, releasing its permit of {@code window} once the
+     * page completes (or is cancelled).
+     */
+    public CompletableFuture<PageResult> recognizeAsync(BufferedImage image, Semaphore window) {
+        CompletableFuture<PageResult> page;
+        try {
+            page = recognizeAsync(image);
+        } catch (RuntimeException e) {
+            window.release();
+            throw e;
+        }
+        page.whenComplete((result, error) -> window.release());
+        return page;
+    }
+
+    /**
+     * Wait for page results and concatenate them in page order, skipping blank pages.
+     * Logs the passes and confidence of every page.
+     */
+    public String joinPages(List<CompletableFuture<PageResult>> pages) {
+        StringBuilder text = new StringBuilder();
+        List<String> summary = new ArrayList<>(pages.size());
+        try {
+            for (CompletableFuture<PageResult> page : pages) {
+                PageResult result = page.join();
+                summary.add(result.pass() + "/" + result.passes() + " passes/" + result.confidence() + "%");
+                String pageText = result.text();
+                if (pageText == null || pageText.isBlank()) continue;
+                if (text.length() > 0) text.append(PAGE_SEPARATOR);
+                text.append(pageText.trim());
+            }
+        } catch (CompletionException e) {
+            pages.forEach(p -> p.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+        log.info("OCR pages (kept pass/passes run/mean word confidence): {}", summary);
+        return text.toString();
+    }
+
+    /**
+     * Recognize one image, escalating through the {@link Pass}es until one is confident
+     * enough. If none is, the best result seen is kept. Cached pages return with pass
+     * "cache" and zero passes run.
+     */
+    public PageResult recognize(BufferedImage image) {
+        // Grayscale once: it is the cache key input and what Tesseract reads on the fast pass
+        BufferedImage gray = ImagePreprocessor.toGray(image);
+        OcrCache.Fingerprint fingerprint = cache.fingerprint(gray, language);
+        OcrCache.Entry cached = cache.get(fingerprint);
+        if (cached != null) {
+            metrics.recordOcrPage(CACHE_PASS, 0, cached.confidence());
+            return new PageResult(cached.text(), CACHE_PASS, 0, cached.confidence());
+        }
+
+        PageResult result = escalate(gray);
+        cache.put(fingerprint, new OcrCache.Entry(result.text(), result.pass(), result.confidence()));
+        return result;
+    }
+
+    private PageResult escalate(BufferedImage image) {
+        BufferedImage prepared = null;
+        Recognition best = null;
+        Pass bestPass = null;
+        int passes = 0;
+        for (Pass pass : Pass.values()) {
+            if (passes >= Math.max(1, maxPasses)) break;
+            if (pass.preprocessed && prepared == null) {
+                prepared = preprocess(image);
+            }
+            Timer.Sample sample = metrics.start();
+            Recognition result = recognize(pass.preprocessed ? prepared : image, pass.pageSegMode);
+            passes++;
+            boolean accepted = isConfident(result);
+            metrics.recordOcrPass(pass.tag, sample, accepted);
+            log.debug("OCR pass {}: {} words, mean confidence {}, {} low-confidence",
+                    pass.tag, result.words(), result.meanConfidence(), result.lowConfidenceWords());
+            if (accepted || best == null || isBetter(result, best)) {
+                best = result;
+                bestPass = pass;
+            }
+            if (accepted) break;
+        }
+        metrics.recordOcrPage(bestPass.tag, passes, best.meanConfidence());
+        return new PageResult(best.text(), bestPass.tag, passes, best.meanConfidence());
+    }
+
+    private boolean isConfident(Recognition result) {
+        return !result.isBlank()
+                && result.meanConfidence() >= acceptConfidence
+                && result.lowConfidenceRatio() <= maxLowWordRatio;
+    }
+
+    /**
+     * Higher mean confidence wins, unless it comes from reading far fewer words (a pass
+     * that only recognized a few clean words has not read the page better).
+     */
+    private static boolean isBetter(Recognition candidate, Recognition current) {
+        if (candidate.isBlank()) return false;
+        if (current.isBlank()) return true;
+        if (candidate.words() * 2 < current.words()) return false;
+        if (current.words() * 2 < candidate.words()) return true;
+        return candidate.meanConfidence() > current.meanConfidence();
+    }
+
+    private Recognition recognize(BufferedImage image, int pageSegMode) {
+        try {
+            return tesseractPool.withEngine(language,
+                    engine -> engine.recognize(image, pageSegMode, lowWordConfidence));
+        } catch (TesseractException e) {
+            log.error("Tesseract OCR failed", e);
+            throw new RuntimeException("OCR processing failed. Please ensure Tesseract is installed " +
+                    "and tessdata is available: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Preprocess an image to improve OCR accuracy: scaled so text is a size Tesseract reads
+     * well (up for low DPI scans, down for large photos), deskewed and binarized. Used by the
+     * escalation passes only. Returns the original image if preprocessing fails.
+     */
+    public BufferedImage preprocess(BufferedImage image) {
+        try {
+            return preprocessor.process(image);
+        } catch (Exception e) {
+            log.warn("Image preprocessing skipped due to error: {}", e.getMessage());
+            return image;
+        }
+    }
+
+    /**
+     * Tesseract engine pool statistics.
+     */
+    public Map<String, Object> getPoolStats() {
+        return tesseractPool.getStats();
+    }
+
+    /**
+     * OCR result cache statistics.
+     */
+    public Map<String, Object> getCacheStats() {
+        return cache.getStats();
+    }
+
     /**
      * Check if a file is a supported image type.
      */
@@ -120,7 +364,8 @@ public class OCRService {
         if (filename != null) {
             String lower = filename.toLowerCase();
             return lower.endsWith(".jpg") || lower.endsWith(".jpeg") ||
-                   lower.endsWith(".png") || lower.endsWith(".tiff") || lower.endsWith(".bmp");
+                   lower.endsWith(".png") || lower.endsWith(".tiff") || lower.endsWith(".tif") ||
+                   lower.endsWith(".bmp");
         }
         return false;
     }
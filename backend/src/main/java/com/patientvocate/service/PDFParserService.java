@@ -1,23 +1,71 @@
 package com.patientvocate.service;
 
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
 /**
  * Service for extracting text content from PDF files using Apache PDFBox.
+ * Documents are read from a file rather than a heap byte array, and PDFBox's
+ * stream cache spills to scratch files past a configurable memory limit, so peak
+ * heap per request stays flat regardless of PDF size.
+ * Text-layer detection is per page: pages with enough extractable text keep it,
+ * and only image-only pages (scans, embedded photos of notes) are rendered and
+ * sent to OCR, so mixed documents lose nothing and pay OCR only where needed.
  */
 @Service
 public class PDFParserService {
 
     private static final Logger log = LoggerFactory.getLogger(PDFParserService.class);
 
+    /**
+     * Receives the text of each page as soon as it has been extracted.
+     */
+    @FunctionalInterface
+    public interface PageTextConsumer {
+        void accept(int pageNumber, String text);
+    }
+
+    private final OCRService ocrService;
+    private final long maxMainMemoryBytes;
+    private final Path scratchDir;
+
+    @Value("${ocr.pdf-render-dpi:300}")
+    private float renderDpi;
+
+    @Value("${pdf.min-text-chars-per-page:32}")
+    private int minTextChars = 32;
+
+    public PDFParserService(OCRService ocrService,
+                            @Value("${pdf.max-main-memory:16MB}") DataSize maxMainMemory,
+                            @Value("${pdf.scratch-dir:}") String scratchDir) {
+        this.ocrService = ocrService;
+        this.maxMainMemoryBytes = maxMainMemory.toBytes();
+        this.scratchDir = scratchDir == null || scratchDir.isBlank() ? null : Path.of(scratchDir);
+    }
+
     /**
      * Extract text from a PDF file.
      *
@@ -27,15 +75,18 @@ public class PDFParserService {
     public String extractText(MultipartFile file) {
         log.info("Extracting text from PDF: {}, size: {} bytes", file.getOriginalFilename(), file.getSize());
 
-        try (PDDocument document = Loader.loadPDF(file.getBytes())) {
+        try (LoadedPdf pdf = load(file)) {
 
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document);
+            // Pages without a content stream never reach the consumer and stay empty
+            String[] pageTexts = new String[pdf.document.getNumberOfPages()];
+            Arrays.fill(pageTexts, "");
+            extractPages(pdf.document, (page, pageText) -> pageTexts[page - 1] = pageText);
+            String text = ocrImagePages(pdf.document, pageTexts, file.getOriginalFilename());
 
-            if (text == null || text.trim().isEmpty()) {
+            if (text.trim().isEmpty()) {
                 log.warn("PDF text extraction returned empty result for: {}", file.getOriginalFilename());
-                throw new RuntimeException("Could not extract text from PDF. The file may be scanned/image-based. " +
-                        "Try uploading an image (JPG/PNG) instead for OCR processing.");
+                throw new RuntimeException("Could not extract text from PDF, even with OCR. " +
+                        "The scan may be too low resolution or blurry.");
             }
 
             log.info("Successfully extracted {} characters from PDF", text.length());
@@ -49,6 +100,129 @@ public class PDFParserService {
         }
     }
 
+    /**
+     * Incremental extraction: hands each page's text to {@code consumer} as soon as that
+     * page has been processed, so callers never need to hold the whole document's text.
+     * Pages without a text layer are delivered as empty strings.
+     *
+     * @return the number of pages processed
+     */
+    public int extractTextByPage(MultipartFile file, PageTextConsumer consumer) {
+        try (LoadedPdf pdf = load(file)) {
+            extractPages(pdf.document, consumer);
+            return pdf.document.getNumberOfPages();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to extract text from PDF: {}", file.getOriginalFilename(), e);
+            throw new RuntimeException("Failed to read PDF file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run a single PDFTextStripper pass over the document, flushing the text of each
+     * page to the consumer at the end of that page.
+     */
+    private void extractPages(PDDocument document, PageTextConsumer consumer) throws IOException {
+        StringWriter pageBuffer = new StringWriter();
+        PDFTextStripper stripper = new PDFTextStripper() {
+            @Override
+            protected void endPage(PDPage page) throws IOException {
+                super.endPage(page);
+                consumer.accept(getCurrentPageNo(), pageBuffer.toString());
+                pageBuffer.getBuffer().setLength(0);
+            }
+        };
+        stripper.writeText(document, pageBuffer);
+    }
+
+    /**
+     * Open a PDF from disk. Uploads that are not already backed by a file we own are
+     * spooled to a temp file first; that copy is deleted when the document is closed.
+     */
+    private LoadedPdf load(MultipartFile file) throws IOException {
+        SpooledMultipartFile spooled = file instanceof SpooledMultipartFile s ? s : null;
+        SpooledMultipartFile owned = null;
+        if (spooled == null) {
+            owned = SpooledMultipartFile.spool(file, scratchDir);
+            spooled = owned;
+        }
+
+        try {
+            MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+            if (scratchDir != null) {
+                memory.setTempDir(scratchDir.toFile());
+            }
+            PDDocument document = Loader.loadPDF(new RandomAccessReadBufferedFile(spooled.getPath()),
+                    "", memory.streamCache);
+            return new LoadedPdf(document, owned);
+        } catch (IOException | RuntimeException e) {
+            if (owned != null) owned.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Merge the text layer with OCR of the pages that lack one, in page order. Pages with
+     * fewer than {@code pdf.min-text-chars-per-page} non-whitespace characters (a scan with
+     * at most a stamped page number) are OCR'd; pages with no content at all are skipped.
+     * Rendering is sequential (PDFRenderer is not thread-safe) and each page is handed to
+     * the OCR executor as soon as it is rendered, so recognition of earlier pages overlaps
+     * rendering of later ones. Rendering pauses while every OCR thread has a page, so only
+     * a few page bitmaps are held at a time however long the document.
+     */
+    private String ocrImagePages(PDDocument document, String[] pageTexts, String filename) throws IOException {
+        List<CompletableFuture<OCRService.PageResult>> pages = new ArrayList<>(pageTexts.length);
+        int ocrPages = 0;
+        long start = System.currentTimeMillis();
+        PDFRenderer renderer = null;
+        Semaphore window = ocrService.newPageWindow();
+        try {
+            for (int i = 0; i < pageTexts.length; i++) {
+                String pageText = pageTexts[i];
+                if (hasTextLayer(pageText) || !document.getPage(i).hasContents()) {
+                    pages.add(CompletableFuture.completedFuture(
+                            new OCRService.PageResult(pageText, "text_layer", 0, 100)));
+                    continue;
+                }
+                if (renderer == null) renderer = new PDFRenderer(document);
+                window.acquire();
+                BufferedImage image;
+                try {
+                    image = renderer.renderImageWithDPI(i, renderDpi, ImageType.GRAY);
+                } catch (IOException | RuntimeException e) {
+                    window.release();
+                    throw e;
+                }
+                pages.add(ocrService.recognizeAsync(image, window));
+                ocrPages++;
+            }
+        } catch (InterruptedException e) {
+            pages.forEach(p -> p.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while rendering PDF pages for OCR");
+        } catch (IOException | RuntimeException e) {
+            pages.forEach(p -> p.cancel(true));
+            throw e;
+        }
+
+        if (ocrPages == 0) {
+            return String.join("", pageTexts);
+        }
+        String text = ocrService.joinPages(pages);
+        log.info("PDF {}: {} of {} pages had no text layer, OCR took {} ms",
+                filename, ocrPages, pageTexts.length, System.currentTimeMillis() - start);
+        return text;
+    }
+
+    private boolean hasTextLayer(String pageText) {
+        int chars = 0;
+        for (int i = 0; i < pageText.length() && chars < minTextChars; i++) {
+            if (!Character.isWhitespace(pageText.charAt(i))) chars++;
+        }
+        return chars >= Math.max(1, minTextChars);
+    }
+
     /**
      * Check if a file is a PDF based on content type and extension.
      */
@@ -59,4 +233,26 @@ public class PDFParserService {
         return (contentType != null && contentType.equals("application/pdf")) ||
                (filename != null && filename.toLowerCase().endsWith(".pdf"));
     }
+
+    /**
+     * An open document plus the temp file (if any) that must be removed with it.
+     */
+    private static final class LoadedPdf implements AutoCloseable {
+        final PDDocument document;
+        final SpooledMultipartFile ownedSpool;
+
+        LoadedPdf(PDDocument document, SpooledMultipartFile ownedSpool) {
+            this.document = document;
+            this.ownedSpool = ownedSpool;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                document.close();
+            } finally {
+                if (ownedSpool != null) ownedSpool.delete();
+            }
+        }
+    }
 }
@@ -1,17 +1,42 @@
 package com.patientvocate.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.patientvocate.dto.ReportAnalysisResponse;
 import com.patientvocate.model.ChatMessage;
+import com.patientvocate.model.DiscussionQuestion;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.GlossaryEntry;
 import com.patientvocate.model.ReportSummary;
 import com.patientvocate.service.ai.AIService;
+import com.patientvocate.service.ai.ProviderHealthMonitor;
+import com.patientvocate.service.ai.ProviderHttpClient;
+import com.patientvocate.service.ai.ReportSummaryStreamParser;
+import com.patientvocate.service.cache.AnalysisCache;
+import com.patientvocate.service.cache.ContentHash;
+import com.patientvocate.service.cache.KnowledgeCache;
+import com.patientvocate.service.cache.SingleFlight;
+import com.patientvocate.service.chunk.ChunkedAnalyzer;
+import com.patientvocate.service.extract.LabValueExtractor;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import com.patientvocate.service.routing.ProviderRouter;
+import com.patientvocate.service.session.ChatSession;
+import com.patientvocate.service.session.ChatSessionStore;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 /**
  * Orchestrates the report analysis workflow:
@@ -23,70 +48,442 @@ public class ReportService {
     private static final Logger log = LoggerFactory.getLogger(ReportService.class);
 
     private final Map<String, AIService> aiServices;
+    private final AIService routingService;
     private final PDFParserService pdfParserService;
     private final OCRService ocrService;
+    private final AnalysisCache analysisCache;
+    private final ChatSessionStore sessionStore;
+    private final LabValueExtractor labValueExtractor;
+    private final KnowledgeCache knowledgeCache;
+    private final ChunkedAnalyzer chunkedAnalyzer;
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+    private final ProviderHealthMonitor healthMonitor;
+    private final String defaultProvider;
+    private final boolean extractorEnabled;
+    private final int extractorMinFindings;
+    private final SingleFlight<String> extractionFlights;
+    private final SingleFlight<Analysis> analysisFlights;
 
-    public ReportService(List<AIService> services, PDFParserService pdfParserService, OCRService ocrService) {
+    public ReportService(List<AIService> services, PDFParserService pdfParserService, OCRService ocrService,
+                         AnalysisCache analysisCache, ChatSessionStore sessionStore,
+                         LabValueExtractor labValueExtractor, KnowledgeCache knowledgeCache,
+                         ChunkedAnalyzer chunkedAnalyzer, ObjectMapper objectMapper, PipelineMetrics metrics,
+                         ProviderHealthMonitor healthMonitor, ProviderRouter router,
+                         @Value("${ai.provider:openrouter}") String defaultProvider,
+                         @Value("${analysis.extractor.enabled:true}") boolean extractorEnabled,
+                         @Value("${analysis.extractor.min-findings:3}") int extractorMinFindings,
+                         @Value("${analysis.coalescing.enabled:true}") boolean coalescingEnabled) {
         this.aiServices = new HashMap<>(); // Standard Map implementation
         for (AIService service : services) {
             this.aiServices.put(service.getProviderName(), service);
         }
+        this.routingService = router.getRoutingService();
         this.pdfParserService = pdfParserService;
         this.ocrService = ocrService;
+        this.analysisCache = analysisCache;
+        this.sessionStore = sessionStore;
+        this.labValueExtractor = labValueExtractor;
+        this.knowledgeCache = knowledgeCache;
+        this.chunkedAnalyzer = chunkedAnalyzer;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.healthMonitor = healthMonitor;
+        this.defaultProvider = defaultProvider;
+        this.extractorEnabled = extractorEnabled;
+        this.extractorMinFindings = extractorMinFindings;
+        this.extractionFlights = new SingleFlight<>(coalescingEnabled);
+        this.analysisFlights = new SingleFlight<>(coalescingEnabled);
     }
 
     /**
      * Analyze a report from an uploaded file (PDF or image).
      */
     public ReportAnalysisResponse analyzeFile(MultipartFile file, String provider) {
+        return analyzeFile(file, provider, AnalysisProgressListener.NONE);
+    }
+
+    /**
+     * Analyze a report from an uploaded file, reporting stage transitions to {@code listener}.
+     */
+    public ReportAnalysisResponse analyzeFile(MultipartFile file, String provider, AnalysisProgressListener listener) {
+        return analyzeFile(file, provider, listener, null);
+    }
+
+    /**
+     * Analyze a report from an uploaded file, passing each part of the summary to {@code parts}
+     * as soon as it is available (see {@link #streamAnalyzeText}).
+     */
+    public ReportAnalysisResponse streamAnalyzeFile(MultipartFile file, String provider,
+                                                    AnalysisProgressListener listener, ReportSummaryListener parts) {
+        return analyzeFile(file, provider, listener, parts);
+    }
+
+    private ReportAnalysisResponse analyzeFile(MultipartFile file, String provider, AnalysisProgressListener listener,
+                                               ReportSummaryListener parts) {
+        return analyzePrepared(prepareFile(file, provider, listener), provider, listener, parts);
+    }
+
+    /**
+     * An uploaded file after the CPU-bound half of the pipeline (type detection, PDF text
+     * extraction, OCR), ready for {@link #analyzePrepared}. Holds the extraction error
+     * instead if that half failed.
+     */
+    public static final class PreparedReport {
+
+        private final MultipartFile file;
+        private final Timer.Sample started;
+        private final PipelineMetrics.Scope scope;
+        private final FileType type;
+        private final String text;
+        private final Exception error;
+
+        private PreparedReport(MultipartFile file, Timer.Sample started, PipelineMetrics.Scope scope,
+                               FileType type, String text, Exception error) {
+            this.file = file;
+            this.started = started;
+            this.scope = scope;
+            this.type = type;
+            this.text = text;
+            this.error = error;
+        }
+
+        public MultipartFile getFile() { return file; }
+
+        public boolean isFailed() { return error != null; }
+    }
+
+    /**
+     * Detect the file type and extract its text. Images are left for the provider when it
+     * analyzes them directly. Never throws: failures are carried in the result and reported
+     * by {@link #analyzePrepared}.
+     */
+    public PreparedReport prepareFile(MultipartFile file, String provider, AnalysisProgressListener listener) {
+        Timer.Sample started = metrics.start();
+        PipelineMetrics.Scope scope = scope(provider, "analysis");
+        FileType type = null;
+        try {
+            type = scope.time(PipelineMetrics.DETECT, () -> detectFileType(file));
+            // Direct image analysis (e.g. Gemini Vision) happens in the analysis half
+            String text = type == FileType.IMAGE && supportsImages(provider)
+                    ? null
+                    : extractText(file, type, listener, scope);
+            return new PreparedReport(file, started, scope, type, text, null);
+        } catch (Exception e) {
+            return new PreparedReport(file, started, scope, type, null, e);
+        }
+    }
+
+    /**
+     * The provider-bound half of a file analysis, see {@link #prepareFile}.
+     */
+    public ReportAnalysisResponse analyzePrepared(PreparedReport report, String provider,
+                                                  AnalysisProgressListener listener, ReportSummaryListener parts) {
+        MultipartFile file = report.file;
+        Timer.Sample started = report.started;
+        PipelineMetrics.Scope scope = report.scope;
         try {
-            // Check for direct image analysis support (e.g., Gemini Vision)
-            if (ocrService.isImage(file)) {
+            if (report.error != null) throw report.error;
+            String reportText = report.text;
+
+            if (reportText == null) {
                 try {
                     AIService service = getService(provider);
-                    if (service.supportsImages()) {
-                        log.info("Using AI provider for direct image analysis: {}", service.getProviderName());
-                        ReportSummary summary = service.analyzeImage(file);
-                        return ReportAnalysisResponse.success(summary, "[Direct Image Analysis by " + provider + "]");
-                    }
-                } catch (IllegalArgumentException e) {
-                    log.warn("Provider lookup failed for image check: {}", e.getMessage());
+                    log.info("Using AI provider for direct image analysis: {}", service.getProviderName());
+                    listener.stageStarted(AnalysisStage.AI_ANALYSIS);
+                    ReportSummary summary = scope.time(PipelineMetrics.PROVIDER_CALL, () -> service.analyzeImage(file));
+                    if (parts != null) replay(summary, parts, true);
+                    recordAnalysis(started, service, "image", summary);
+                    return ReportAnalysisResponse.success(summary, "[Direct Image Analysis by " + provider + "]");
+                } catch (CancellationException e) {
+                    throw e;
                 } catch (Exception e) {
                     log.error("Direct image analysis failed, falling back to OCR: {}", e.getMessage());
-                    // Fallback continues below
+                    reportText = extractText(file, report.type, listener, scope);
                 }
             }
 
-            String reportText = extractTextFromFile(file);
-            return analyzeText(reportText, provider);
+            return analyzeText(reportText, provider, listener, parts, started);
         } catch (Exception e) {
+            metrics.recordAnalysis(started, scope.provider(), scope.model(), PipelineMetrics.NONE,
+                    PipelineMetrics.outcomeOf(e));
             log.error("Failed to analyze file: {}", file.getOriginalFilename(), e);
             return ReportAnalysisResponse.error("Failed to process file: " + e.getMessage());
         }
     }
 
+    private boolean supportsImages(String provider) {
+        try {
+            return getService(provider).supportsImages();
+        } catch (IllegalArgumentException e) {
+            log.warn("Provider lookup failed for image check: {}", e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Analyze a report from raw text input.
      */
     public ReportAnalysisResponse analyzeText(String reportText, String provider) {
+        return analyzeText(reportText, provider, AnalysisProgressListener.NONE);
+    }
+
+    /**
+     * Analyze a report from raw text input, reporting stage transitions to {@code listener}.
+     */
+    public ReportAnalysisResponse analyzeText(String reportText, String provider, AnalysisProgressListener listener) {
+        return analyzeText(reportText, provider, listener, null);
+    }
+
+    /**
+     * Analyze report text, passing each part of the summary to {@code parts} as soon as it is
+     * available: locally extracted findings right away (without explanations), a full model
+     * analysis as the streamed JSON is parsed, and cached or chunked results once complete.
+     * The returned response holds the complete, authoritative result.
+     */
+    public ReportAnalysisResponse streamAnalyzeText(String reportText, String provider,
+                                                    AnalysisProgressListener listener, ReportSummaryListener parts) {
+        return analyzeText(reportText, provider, listener, parts);
+    }
+
+    private ReportAnalysisResponse analyzeText(String reportText, String provider, AnalysisProgressListener listener,
+                                               ReportSummaryListener parts) {
+        return analyzeText(reportText, provider, listener, parts, metrics.start());
+    }
+
+    /**
+     * @param started timing sample for the whole request, started before any text extraction
+     */
+    private ReportAnalysisResponse analyzeText(String reportText, String provider, AnalysisProgressListener listener,
+                                               ReportSummaryListener parts, Timer.Sample started) {
+        AIService service = null;
         try {
             if (reportText == null || reportText.trim().isEmpty()) {
+                metrics.recordAnalysis(started, PipelineMetrics.NONE, PipelineMetrics.NONE,
+                        PipelineMetrics.NONE, PipelineMetrics.ERROR);
                 return ReportAnalysisResponse.error("Report text is empty. Please provide lab report content.");
             }
 
             log.info("Analyzing report text ({} characters) using provider: {}", reportText.length(), provider);
             
-            AIService service = getService(provider);
-            ReportSummary summary = service.analyzeReport(reportText);
+            service = getService(provider);
+            listener.stageStarted(AnalysisStage.AI_ANALYSIS);
+
+            String cacheKey = analysisCache.key(reportText, service.getProviderName(), service.getModelName());
+            ReportSummary cached = analysisCache.get(cacheKey);
+            if (cached != null) {
+                log.info("Analysis cache hit for provider {} / model {}", service.getProviderName(), service.getModelName());
+                if (parts != null) replay(cached, parts, true);
+                recordAnalysis(started, service, "cache", cached);
+                return withSession(ReportAnalysisResponse.success(cached, reportText));
+            }
+
+            AIService selected = service;
+            DetachableParts leaderParts = parts != null ? new DetachableParts(parts) : null;
+            SingleFlight.Result<Analysis> result = analysisFlights.execute(cacheKey,
+                    () -> analyze(selected, reportText, leaderParts, cacheKey));
+            // Our client went away while leading: the analysis still finished for the others
+            if (leaderParts != null) leaderParts.throwIfFailed();
+            Analysis analysis = result.value();
+            String path = analysis.path();
+            if (result.shared()) {
+                log.info("Joined an identical in-flight analysis for provider {} / model {}",
+                        service.getProviderName(), service.getModelName());
+                metrics.coalesced("analysis");
+                if (parts != null) replay(analysis.summary(), parts, true);
+                path = "coalesced";
+            }
+            recordAnalysis(started, service, path, analysis.summary());
             
-            return ReportAnalysisResponse.success(summary, reportText);
+            return withSession(ReportAnalysisResponse.success(analysis.summary(), reportText));
 
         } catch (Exception e) {
+            metrics.recordAnalysis(started,
+                    service != null ? service.getProviderName() : PipelineMetrics.NONE,
+                    service != null ? service.getModelName() : PipelineMetrics.NONE,
+                    PipelineMetrics.NONE, PipelineMetrics.outcomeOf(e));
             log.error("Failed to analyze report text", e);
             return ReportAnalysisResponse.error("Analysis failed: " + e.getMessage());
         }
     }
 
+    /**
+     * A finished model analysis and the pipeline path that produced it.
+     */
+    private record Analysis(ReportSummary summary, String path) {}
+
+    /**
+     * Forwards parts to the leading request's listener until it throws (e.g. the client
+     * disconnected), then drops the rest, so the analysis shared with identical requests
+     * is not aborted with it. The failure is rethrown to the leader afterwards.
+     */
+    private static final class DetachableParts implements ReportSummaryListener {
+
+        private final ReportSummaryListener target;
+        private volatile RuntimeException failure;
+
+        DetachableParts(ReportSummaryListener target) {
+            this.target = target;
+        }
+
+        @Override
+        public void onSummary(String summary) { forward(() -> target.onSummary(summary)); }
+
+        @Override
+        public void onFinding(Finding finding) { forward(() -> target.onFinding(finding)); }
+
+        @Override
+        public void onGlossaryEntry(GlossaryEntry entry) { forward(() -> target.onGlossaryEntry(entry)); }
+
+        @Override
+        public void onDiscussionQuestion(DiscussionQuestion question) { forward(() -> target.onDiscussionQuestion(question)); }
+
+        @Override
+        public void onDisclaimer(String disclaimer) { forward(() -> target.onDisclaimer(disclaimer)); }
+
+        void throwIfFailed() {
+            if (failure != null) throw failure;
+        }
+
+        private void forward(Runnable part) {
+            if (failure != null) return;
+            try {
+                part.run();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Run the model analysis for a cache miss and cache the result. Concurrent identical
+     * requests share one call of this (see {@link SingleFlight}); {@code parts} belongs to the
+     * request that runs it and must not throw.
+     */
+    private Analysis analyze(AIService service, String reportText, ReportSummaryListener parts, String cacheKey) {
+        List<Finding> extracted = extractorEnabled ? labValueExtractor.extract(reportText) : List.of();
+        ReportSummary summary;
+        String path;
+        if (extracted.size() >= extractorMinFindings) {
+            if (parts != null) extracted.forEach(parts::onFinding);
+            summary = explainExtracted(service, reportText, extracted);
+            if (parts != null) replay(summary, parts, false);
+            path = "extractor";
+        } else if (parts != null && !chunkedAnalyzer.appliesTo(reportText)) {
+            summary = streamAnalysis(service, reportText, parts);
+            path = "streamed";
+        } else {
+            path = chunkedAnalyzer.appliesTo(reportText) ? "chunked" : "single";
+            summary = chunkedAnalyzer.analyze(service, reportText);
+            if (parts != null) replay(summary, parts, true);
+        }
+        // Cache before the flight ends so later requests find it
+        analysisCache.put(cacheKey, summary);
+        return new Analysis(summary, path);
+    }
+
+    /**
+     * Fast path for reports whose result rows were parsed locally: explanations and glossary
+     * entries come from the knowledge cache where possible, and the model is only asked for the
+     * rest. The extracted findings are still returned if the provider fails.
+     */
+    private ReportSummary explainExtracted(AIService service, String reportText, List<Finding> extracted) {
+        KnowledgeCache.Lookup known = knowledgeCache.lookup(extracted, reportText);
+        Set<String> knownTests = known.knownTests(extracted);
+        log.info("Extracted {} findings locally ({} explanations, {} glossary terms cached), requesting the rest",
+                extracted.size(), knownTests.size(), known.glossary().size());
+        ReportSummary explained;
+        try {
+            explained = ProviderHttpClient.await(
+                    service.explainFindingsAsync(reportText, extracted, knownTests, known.knownTerms()));
+            knowledgeCache.learn(extracted, explained, known);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("AI explanation failed, returning locally extracted findings: {}", e.getMessage());
+            scope(service, "explain").fallback("provider_error");
+            explained = labValueExtractor.unavailableSummary();
+        }
+        return labValueExtractor.mergeExplanations(extracted, knowledgeCache.fill(explained, extracted, known));
+    }
+
+    /**
+     * Full analysis with the provider's streamed output parsed incrementally into {@code parts}.
+     */
+    private ReportSummary streamAnalysis(AIService service, String reportText, ReportSummaryListener parts) {
+        ReportSummaryStreamParser parser = new ReportSummaryStreamParser(objectMapper, parts);
+        ReportSummary summary = service.streamAnalyzeReport(reportText, parser::feed);
+        if (parser.getEmitted() == 0) {
+            // The provider did not stream, or its output could not be parsed incrementally
+            replay(summary, parts, true);
+        }
+        return summary;
+    }
+
+    /**
+     * Pass the parts of an already complete summary to {@code parts}.
+     */
+    private static void replay(ReportSummary summary, ReportSummaryListener parts, boolean includeFindings) {
+        if (summary.getSummary() != null) parts.onSummary(summary.getSummary());
+        if (includeFindings && summary.getFindings() != null) summary.getFindings().forEach(parts::onFinding);
+        if (summary.getGlossary() != null) summary.getGlossary().forEach(parts::onGlossaryEntry);
+        if (summary.getDiscussionQuestions() != null) summary.getDiscussionQuestions().forEach(parts::onDiscussionQuestion);
+        if (summary.getDisclaimer() != null) parts.onDisclaimer(summary.getDisclaimer());
+    }
+
+    /**
+     * Open a chat session for a successful analysis so follow-ups can reference it by id.
+     */
+    private ReportAnalysisResponse withSession(ReportAnalysisResponse response) {
+        ChatSession session = sessionStore.create(response.getReportText(), response.getAnalysis().getSummary());
+        response.setAnalysisId(session.getId());
+        return response;
+    }
+
+    /**
+     * Handle a follow-up chat question within the session opened by an analysis. The turn is
+     * added to the session only when the provider answers; a failure leaves the history as it was.
+     *
+     * @throws IllegalArgumentException if the session is unknown or has expired
+     */
+    public String handleFollowUp(String analysisId, String question, String provider) {
+        AIService service = getService(provider);
+        ChatSession session = requireSession(analysisId);
+        synchronized (session) {
+            String answer = service.answerFollowUp(session, question);
+            session.addTurn(question, answer);
+            return answer;
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #handleFollowUp(String, String, String)}.
+     */
+    public String streamFollowUp(String analysisId, String question, String provider, Consumer<String> onToken) {
+        AIService service = getService(provider);
+        ChatSession session = requireSession(analysisId);
+        synchronized (session) {
+            String answer = service.streamFollowUp(session, question, onToken);
+            session.addTurn(question, answer);
+            return answer;
+        }
+    }
+
+    /**
+     * Whether a chat session exists for the given analysis id.
+     */
+    public boolean hasSession(String analysisId) {
+        return sessionStore.get(analysisId) != null;
+    }
+
+    private ChatSession requireSession(String analysisId) {
+        ChatSession session = sessionStore.get(analysisId);
+        if (session == null) {
+            throw new IllegalArgumentException("Chat session not found or expired. Please re-analyze the report.");
+        }
+        return session;
+    }
+
     /**
      * Handle a follow-up chat question.
      */
@@ -96,14 +493,27 @@ public class ReportService {
         return service.answerFollowUp(reportText, analysisSummary, question, conversationHistory);
     } 
 
+    /**
+     * Handle a follow-up chat question, forwarding answer fragments as they are generated.
+     */
+    public String streamFollowUp(String reportText, String analysisSummary, String question,
+                                 List<ChatMessage> conversationHistory, String provider,
+                                 Consumer<String> onToken) {
+        AIService service = getService(provider);
+        return service.streamFollowUp(reportText, analysisSummary, question, conversationHistory, onToken);
+    }
+
     private AIService getService(String provider) {
         if (provider == null || provider.isEmpty()) {
-            return aiServices.get("openrouter"); // Default
+            provider = defaultProvider;
         }
         String providerKey = provider.toLowerCase();
         if ("gemini".equals(providerKey)) {
             providerKey = "openrouter";
         }
+        if (ProviderRouter.AUTO.equals(providerKey)) {
+            return routingService;
+        }
         AIService service = aiServices.get(providerKey);
         if (service == null) {
             throw new IllegalArgumentException("Unsupported AI provider: " + provider);
@@ -112,25 +522,122 @@ public class ReportService {
     }
 
     /**
-     * Check AI service availability.
+     * Availability and configured model of the default provider, plus the cached health of
+     * every provider keyed by provider name. Never calls a provider.
+     */
+    public Map<String, Object> getAIStatus() {
+        Map<String, Object> providers = new LinkedHashMap<>();
+        boolean anyAvailable = false;
+        for (AIService service : aiServices.values()) {
+            Map<String, Object> status = healthMonitor.describe(service);
+            anyAvailable |= Boolean.TRUE.equals(status.get("available"));
+            providers.put(service.getProviderName(), status);
+        }
+        AIService fallback = getService(null);
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("available", anyAvailable);
+        status.put("provider", fallback.getProviderName());
+        status.put("model", fallback.getModelName());
+        status.put("providers", providers);
+        return status;
+    }
+
+    /**
+     * Runtime counters for the analysis pipeline.
      */
-    public boolean isAIAvailable() {
-        return aiServices.values().stream().anyMatch(AIService::isAvailable);
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("analysisCache", analysisCache.getStats());
+        stats.put("ocrPool", ocrService.getPoolStats());
+        stats.put("ocrCache", ocrService.getCacheStats());
+        stats.put("knowledgeCache", knowledgeCache.getStats());
+        stats.put("chatSessions", sessionStore.getStats());
+        Map<String, Object> providers = new LinkedHashMap<>();
+        aiServices.forEach((name, service) -> providers.put(name, service.getStats()));
+        stats.put("providers", providers);
+        stats.put("routing", routingService.getStats());
+        Map<String, Object> coalescing = new LinkedHashMap<>();
+        coalescing.put("extraction", extractionFlights.getStats());
+        coalescing.put("analysis", analysisFlights.getStats());
+        stats.put("coalescing", coalescing);
+        return stats;
+    }
+
+    private void recordAnalysis(Timer.Sample started, AIService service, String path, ReportSummary summary) {
+        metrics.recordAnalysis(started, service.getProviderName(), service.getModelName(), path,
+                summary.isFallback() ? PipelineMetrics.FALLBACK : PipelineMetrics.SUCCESS);
+    }
+
+    private PipelineMetrics.Scope scope(AIService service, String operation) {
+        return metrics.scope(service.getProviderName(), service.getModelName(), operation);
+    }
+
+    /**
+     * Metrics scope for a requested provider name, tagged "none" if it is not supported
+     * (the error surfaces once analysis starts).
+     */
+    private PipelineMetrics.Scope scope(String provider, String operation) {
+        try {
+            return scope(getService(provider), operation);
+        } catch (IllegalArgumentException e) {
+            return metrics.scope(PipelineMetrics.NONE, PipelineMetrics.NONE, operation);
+        }
+    }
+
+    private enum FileType { PDF, IMAGE, UNSUPPORTED }
+
+    private FileType detectFileType(MultipartFile file) {
+        if (pdfParserService.isPDF(file)) return FileType.PDF;
+        if (ocrService.isImage(file)) return FileType.IMAGE;
+        return FileType.UNSUPPORTED;
+    }
+
+    /**
+     * Extract text from an uploaded file, sharing the work with an identical upload
+     * (same bytes) that is already being extracted.
+     */
+    private String extractText(MultipartFile file, FileType type, AnalysisProgressListener listener,
+                               PipelineMetrics.Scope scope) {
+        if (type == FileType.UNSUPPORTED) {
+            return extractTextFromFile(file, type, scope);
+        }
+        listener.stageStarted(type == FileType.PDF ? AnalysisStage.EXTRACTION : AnalysisStage.OCR);
+        SingleFlight.Result<String> result = extractionFlights.execute(uploadKey(file, type),
+                () -> extractTextFromFile(file, type, scope));
+        if (result.shared()) {
+            log.info("Reusing text extracted for an identical in-flight upload: {}", file.getOriginalFilename());
+            metrics.coalesced("extraction");
+        }
+        return result.value();
+    }
+
+    /**
+     * Content hash of an upload, or null (no coalescing) if it cannot be read.
+     */
+    private String uploadKey(MultipartFile file, FileType type) {
+        try (InputStream in = file.getInputStream()) {
+            return ContentHash.sha256Hex(in, type.name());
+        } catch (IOException e) {
+            log.warn("Could not hash upload {}: {}", file.getOriginalFilename(), e.getMessage());
+            return null;
+        }
     }
 
     /**
      * Extract text from an uploaded file based on its type.
      */
-    private String extractTextFromFile(MultipartFile file) {
-        if (pdfParserService.isPDF(file)) {
-            log.info("Processing as PDF: {}", file.getOriginalFilename());
-            return pdfParserService.extractText(file);
-        } else if (ocrService.isImage(file)) {
-            log.info("Processing as image (OCR): {}", file.getOriginalFilename());
-            return ocrService.extractText(file);
-        } else {
-            throw new RuntimeException(
+    private String extractTextFromFile(MultipartFile file, FileType type, PipelineMetrics.Scope scope) {
+        return switch (type) {
+            case PDF -> {
+                log.info("Processing as PDF: {}", file.getOriginalFilename());
+                yield scope.time(PipelineMetrics.PDF_EXTRACTION, () -> pdfParserService.extractText(file));
+            }
+            case IMAGE -> {
+                log.info("Processing as image (OCR): {}", file.getOriginalFilename());
+                yield scope.time(PipelineMetrics.OCR, () -> ocrService.extractText(file));
+            }
+            case UNSUPPORTED -> throw new RuntimeException(
                     "Unsupported file type. Please upload a PDF or image (JPG, PNG, TIFF, BMP).");
-        }
+        };
     }
 }
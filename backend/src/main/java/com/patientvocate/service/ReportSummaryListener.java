@@ -0,0 +1,28 @@
+package com.patientvocate.service;
+
+import com.patientvocate.model.DiscussionQuestion;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.GlossaryEntry;
+
+/**
+ * Receives parts of a {@code ReportSummary} as soon as they are complete, while the analysis
+ * is still being generated. Parts arrive in the order the model writes them; the final summary
+ * returned by {@link ReportService} remains authoritative.
+ * Implementations may throw a runtime exception (e.g. client disconnect) to fail the request;
+ * the model analysis itself still completes and is cached, as identical concurrent requests
+ * may be sharing it.
+ */
+public interface ReportSummaryListener {
+
+    ReportSummaryListener NONE = new ReportSummaryListener() {};
+
+    default void onSummary(String summary) {}
+
+    default void onFinding(Finding finding) {}
+
+    default void onGlossaryEntry(GlossaryEntry entry) {}
+
+    default void onDiscussionQuestion(DiscussionQuestion question) {}
+
+    default void onDisclaimer(String disclaimer) {}
+}
@@ -0,0 +1,121 @@
+package com.patientvocate.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A {@link MultipartFile} backed by a temp file we own, so an upload can outlive the
+ * HTTP request that delivered it (the servlet container deletes its own part files
+ * once the request completes).
+ */
+public class SpooledMultipartFile implements MultipartFile {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final Path path;
+    private final long size;
+
+    private SpooledMultipartFile(String name, String originalFilename, String contentType, Path path, long size) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.path = path;
+        this.size = size;
+    }
+
+    /**
+     * Copy an upload into a new temp file under {@code dir} (or the default temp dir if null).
+     */
+    public static SpooledMultipartFile spool(MultipartFile file, Path dir) throws IOException {
+        Path target = dir != null
+                ? Files.createTempFile(Files.createDirectories(dir), "upload-", ".tmp")
+                : Files.createTempFile("upload-", ".tmp");
+        try (InputStream in = file.getInputStream()) {
+            long size = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            return new SpooledMultipartFile(file.getName(), file.getOriginalFilename(),
+                    file.getContentType(), target, size);
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    /**
+     * Copy at most {@code maxBytes} of a stream (e.g. a zip entry) into a new temp file.
+     *
+     * @throws IOException if the stream is longer than {@code maxBytes}
+     */
+    public static SpooledMultipartFile spool(InputStream in, String originalFilename, Path dir, long maxBytes)
+            throws IOException {
+        Path target = dir != null
+                ? Files.createTempFile(Files.createDirectories(dir), "upload-", ".tmp")
+                : Files.createTempFile("upload-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[8192];
+            long size = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw new IOException(originalFilename + " is larger than " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+            return new SpooledMultipartFile("file", originalFilename, null, target, size);
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    public Path getPath() { return path; }
+
+    /**
+     * Delete the backing temp file.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Temp dir cleanup will catch it
+        }
+    }
+
+    @Override
+    public String getName() { return name; }
+
+    @Override
+    public String getOriginalFilename() { return originalFilename; }
+
+    @Override
+    public String getContentType() { return contentType; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public long getSize() { return size; }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
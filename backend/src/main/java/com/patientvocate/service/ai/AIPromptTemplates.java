@@ -1,5 +1,12 @@
 package com.patientvocate.service.ai;
 
+import com.patientvocate.model.ChatMessage;
+import com.patientvocate.model.Finding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Contains all prompt templates used by the AI service.
  * Centralized here for easy modification and tuning.
@@ -80,6 +87,37 @@ public final class AIPromptTemplates {
             Provide the analysis in the requested JSON format.
             """;
 
+    public static final String FINDINGS_EXPLANATION_USER_PROMPT_TEMPLATE = """
+            Please write an educational explanation of the following medical lab report. \
+            The test results listed below were already extracted from the report and \
+            categorized; do NOT re-extract or re-categorize them.
+
+            LAB REPORT TEXT:
+            ---
+            %s
+            ---
+
+            EXTRACTED RESULTS (test | value | reference range | status):
+            %s
+
+            In "findings", return one entry for each of the following tests only, containing \
+            ONLY "testName" (exactly as listed) and "explanation": %s
+            Each explanation must describe in general terms what the test measures and why it is \
+            performed, without mentioning this patient's value or status.
+            In "glossary", do not define these terms, which are already defined: %s
+            Provide the summary, discussionQuestions and disclaimer as usual, in the requested \
+            JSON format.
+            """;
+
+    public static final String SECTION_SUMMARY_SYSTEM_PROMPT = """
+            You are PatientVocate, an educational assistant. A patient's lab report was analyzed \
+            section by section. Combine the section summaries into one overall summary of 3-5 \
+            sentences for the patient. Use calm, simple language; do not diagnose and do not \
+            recommend treatments.
+
+            You must output ONLY valid JSON of the form {"summary": "..."}.
+            """;
+
     public static final String FOLLOW_UP_SYSTEM_PROMPT_TEMPLATE = """
             You are PatientVocate, an educational assistant helping a patient understand their \
             lab results. You have already provided an initial analysis, and the patient is \
@@ -119,6 +157,71 @@ public final class AIPromptTemplates {
         return String.format(REPORT_ANALYSIS_USER_PROMPT_TEMPLATE, reportText);
     }
 
+    /**
+     * Build the explanation-only user prompt for findings extracted locally from the report.
+     * Tests in {@code knownTests} and terms in {@code knownTerms} already have cached text and
+     * are excluded from what the model is asked to write.
+     */
+    public static String buildFindingsExplanationUserPrompt(String reportText, List<Finding> findings,
+                                                            Set<String> knownTests, Set<String> knownTerms) {
+        StringBuilder rows = new StringBuilder();
+        List<String> toExplain = new ArrayList<>();
+        for (Finding finding : findings) {
+            if (!knownTests.contains(finding.getTestName())) {
+                toExplain.add(finding.getTestName());
+            }
+            rows.append("- ").append(finding.getTestName())
+                    .append(" | ").append(finding.getValue())
+                    .append(" | ").append(finding.getReferenceRange())
+                    .append(" | ").append(finding.getStatus())
+                    .append('\n');
+        }
+        return String.format(FINDINGS_EXPLANATION_USER_PROMPT_TEMPLATE, reportText, rows.toString().strip(),
+                toExplain.isEmpty() ? "(none - return an empty findings array)" : String.join(", ", toExplain),
+                knownTerms.isEmpty() ? "(none)" : String.join(", ", knownTerms));
+    }
+
+    /**
+     * Build the final-pass prompt for a report analyzed in sections.
+     */
+    public static String buildSectionSummaryUserPrompt(List<String> sectionSummaries, List<Finding> findings) {
+        StringBuilder prompt = new StringBuilder("SECTION SUMMARIES:\n");
+        for (String summary : sectionSummaries) {
+            prompt.append("- ").append(summary.strip()).append('\n');
+        }
+        prompt.append("\nRESULTS OUTSIDE THE REFERENCE RANGE:\n");
+        int flagged = 0;
+        for (Finding finding : findings) {
+            if (finding.getStatus() != null && !"NORMAL".equalsIgnoreCase(finding.getStatus())
+                    && !"NOT SPECIFIED".equalsIgnoreCase(finding.getStatus())) {
+                prompt.append("- ").append(finding.getTestName()).append(": ").append(finding.getValue())
+                        .append(" (").append(finding.getStatus()).append(")\n");
+                flagged++;
+            }
+        }
+        if (flagged == 0) {
+            prompt.append("(none)\n");
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Build a single follow-up prompt carrying earlier turns, for providers that are sent the
+     * conversation as one prompt rather than as chat messages.
+     */
+    public static String buildConversationPrompt(List<ChatMessage> history, String question) {
+        if (history == null || history.isEmpty()) {
+            return question;
+        }
+        StringBuilder prompt = new StringBuilder("CONVERSATION SO FAR:\n");
+        for (ChatMessage message : history) {
+            prompt.append("assistant".equalsIgnoreCase(message.getRole()) ? "Assistant: " : "Patient: ")
+                    .append(message.getContent().strip()).append("\n\n");
+        }
+        prompt.append("NEW QUESTION:\n").append(question);
+        return prompt.toString();
+    }
+
     /**
      * Build the follow-up system prompt by injecting report text and analysis summary.
      */
@@ -1,10 +1,17 @@
 package com.patientvocate.service.ai;
 
 import com.patientvocate.model.ChatMessage;
+import com.patientvocate.model.Finding;
 import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.session.ChatSession;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Abstraction layer for AI model integration.
@@ -32,16 +39,128 @@ public interface AIService {
     String answerFollowUp(String reportText, String analysisSummary,
                           String question, List<ChatMessage> conversationHistory);
 
+    /**
+     * Non-blocking variant of {@link #analyzeReport}. Implementations backed by an async
+     * HTTP client complete the future without holding a thread for the duration of the call,
+     * and cancelling it aborts the provider request.
+     */
+    default CompletableFuture<ReportSummary> analyzeReportAsync(String reportText) {
+        return CompletableFuture.supplyAsync(() -> analyzeReport(reportText));
+    }
+
+    /**
+     * Streaming variant of {@link #analyzeReport}: raw model output is passed to {@code onText}
+     * as the provider generates it (e.g. for incremental parsing), and the parsed summary is
+     * returned once complete. Default implementation makes a single blocking call and emits nothing.
+     */
+    default ReportSummary streamAnalyzeReport(String reportText, Consumer<String> onText) {
+        return analyzeReport(reportText);
+    }
+
+    /**
+     * Non-blocking variant of {@link #answerFollowUp}.
+     */
+    default CompletableFuture<String> answerFollowUpAsync(String reportText, String analysisSummary,
+                                                          String question, List<ChatMessage> conversationHistory) {
+        return CompletableFuture.supplyAsync(() -> answerFollowUp(reportText, analysisSummary, question, conversationHistory));
+    }
+
+    /**
+     * Streaming variant of {@link #answerFollowUp}: each chunk of the answer is passed to
+     * {@code onToken} as soon as the provider produces it.
+     * Default implementation falls back to a single blocking call.
+     *
+     * @param onToken callback invoked with each generated text fragment
+     * @return the complete answer
+     */
+    default String streamFollowUp(String reportText, String analysisSummary,
+                                  String question, List<ChatMessage> conversationHistory,
+                                  Consumer<String> onToken) {
+        String answer = answerFollowUp(reportText, analysisSummary, question, conversationHistory);
+        onToken.accept(answer);
+        return answer;
+    }
+
+    /**
+     * Explain findings that were already extracted from the report text. The model only
+     * supplies the summary, discussion questions and general explanations and glossary
+     * entries for tests and terms not in {@code knownTests} / {@code knownTerms}; the caller
+     * merges these with the extracted values and cached knowledge. Providers without a
+     * dedicated prompt fall back to a full analysis.
+     */
+    default CompletableFuture<ReportSummary> explainFindingsAsync(String reportText, List<Finding> findings,
+                                                                  Set<String> knownTests, Set<String> knownTerms) {
+        return analyzeReportAsync(reportText);
+    }
+
+    /**
+     * Write one overall summary from the per-section summaries of a report that was analyzed
+     * in chunks. The default joins the section summaries.
+     */
+    default CompletableFuture<String> summarizeSectionsAsync(List<String> sectionSummaries, List<Finding> findings) {
+        return CompletableFuture.completedFuture(String.join(" ", sectionSummaries));
+    }
+
+    /**
+     * Answer a follow-up question within a server-side chat session. The session supplies
+     * the report, analysis summary and history; providers that can keep conversation state
+     * (e.g. Ollama's context tokens) may store it on the session to avoid re-processing
+     * the prompt prefix. The caller records the resulting turn in the session history.
+     */
+    default String answerFollowUp(ChatSession session, String question) {
+        return answerFollowUp(session.getReportText(), session.getAnalysisSummary(), question, session.getHistory());
+    }
+
+    /**
+     * Streaming variant of {@link #answerFollowUp(ChatSession, String)}.
+     */
+    default String streamFollowUp(ChatSession session, String question, Consumer<String> onToken) {
+        return streamFollowUp(session.getReportText(), session.getAnalysisSummary(), question,
+                session.getHistory(), onToken);
+    }
+
+    /**
+     * Provider runtime counters (HTTP client, prompt budget).
+     */
+    default Map<String, Object> getStats() {
+        return Map.of();
+    }
+
     /**
      * Check if the AI service is available and responsive.
      */
     boolean isAvailable();
 
+    /**
+     * Health probe for the background prober: completes normally if the provider can serve
+     * requests, or exceptionally with the reason it cannot. The default runs
+     * {@link #isAvailable()} on the common pool.
+     */
+    default CompletableFuture<Void> probeAsync(Duration timeout) {
+        return CompletableFuture.runAsync(() -> {
+            if (!isAvailable()) {
+                throw new IllegalStateException(getProviderName() + " is not available");
+            }
+        });
+    }
+
+    /**
+     * Circuit breaker guarding this provider's HTTP calls, or null if it has none.
+     */
+    default CircuitBreaker getCircuitBreaker() {
+        return null;
+    }
+
     /**
      * Get the name of the AI provider.
      */
     String getProviderName();
 
+    /**
+     * Get the name of the model this provider is configured to use.
+     */
+    String getModelName();
+
     /**
      * Check if the AI provider supports direct image analysis (multimodal).
      * Default is false (text-only).
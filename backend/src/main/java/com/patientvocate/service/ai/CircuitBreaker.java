@@ -0,0 +1,166 @@
+package com.patientvocate.service.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-provider circuit breaker. After {@code failureThreshold} consecutive failures the
+ * circuit opens and calls are rejected without reaching the provider. Once
+ * {@code openDuration} has passed, a single trial call (a user request or the background
+ * health probe, whichever comes first) is let through: success closes the circuit,
+ * failure re-opens it for another period.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private Runnable onOpen = () -> {};
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private String lastError;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Callback run (outside the breaker's lock) whenever the circuit opens, e.g. to reject
+     * calls already queued for the provider.
+     */
+    public void setOnOpen(Runnable onOpen) {
+        this.onOpen = onOpen;
+    }
+
+    /**
+     * Ask permission for one call. Every granted call must be followed by exactly one of
+     * {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) break;
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+                log.info("{} circuit half-open, allowing a trial call", name);
+                return tryTrial();
+            case HALF_OPEN:
+                return tryTrial();
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Grant the single half-open trial call unless it is already taken.
+     */
+    private boolean tryTrial() {
+        if (trialInFlight) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("{} circuit closed after a successful call", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public void onFailure(Throwable error) {
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        boolean justOpened;
+        int failures;
+        synchronized (this) {
+            lastError = message;
+            failures = ++consecutiveFailures;
+            justOpened = state == State.HALF_OPEN
+                    || (state == State.CLOSED && consecutiveFailures >= failureThreshold);
+            if (justOpened) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                trialInFlight = false;
+                opened.incrementAndGet();
+            }
+        }
+        if (justOpened) {
+            log.warn("{} circuit opened after {} consecutive failures (retry in {} s): {}",
+                    name, failures, Duration.ofNanos(openNanos).toSeconds(), message);
+            onOpen.run();
+        }
+    }
+
+    /**
+     * The call ended without saying anything about provider health (cancelled by the
+     * caller, or failed in the caller's own code).
+     */
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Whether a failure should count against the provider: transport errors, timeouts,
+     * server errors and rate limiting. Client errors and cancellation do not.
+     */
+    public static boolean isProviderFailure(Throwable error) {
+        Throwable cause = ProviderHttpClient.unwrap(error);
+        if (cause instanceof ProviderHttpException http) {
+            return http.getStatusCode() >= 500 || http.getStatusCode() == 429;
+        }
+        return cause instanceof IOException;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN; // the next call will be let through
+        }
+        return state;
+    }
+
+    public synchronized String getLastError() { return lastError; }
+
+    /**
+     * Time until an open circuit lets a trial call through.
+     */
+    public synchronized Duration getRetryIn() {
+        if (state != State.OPEN) return Duration.ZERO;
+        return Duration.ofNanos(Math.max(0, openNanos - (System.nanoTime() - openedAt)));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("state", getState().name());
+            stats.put("consecutiveFailures", consecutiveFailures);
+            stats.put("lastError", lastError);
+        }
+        stats.put("opened", opened.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
@@ -0,0 +1,130 @@
+package com.patientvocate.service.ai;
+
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Finds and parses the JSON object in a model response in a single forward scan.
+ * Reasoning blocks ({@code <think>...</think>}) are skipped, code fences and any other text
+ * around the object are ignored, and the outermost object is brace-matched (string and
+ * escape aware). Jackson then reads that range straight from the response string, so large
+ * reasoning blocks cost one scan instead of regex passes and intermediate copies.
+ */
+public final class JsonResponseExtractor {
+
+    private static final String THINK_OPEN = "<think>";
+    private static final String THINK_CLOSE = "</think>";
+
+    private JsonResponseExtractor() {}
+
+    /**
+     * Parse the first JSON object in {@code response} that {@code reader} accepts. A candidate
+     * that fails to parse (e.g. braces in a preamble) is skipped in favour of the next one.
+     *
+     * @return the parsed value, or null if the response contains no JSON object
+     * @throws IOException if candidates were found but none could be parsed
+     */
+    public static <T> T read(ObjectReader reader, String response) throws IOException {
+        if (response == null) {
+            return null;
+        }
+        // Models sometimes escape apostrophes (\'), which strict JSON rejects
+        ObjectReader lenient = reader.with(JsonReadFeature.ALLOW_BACKSLASH_ESCAPING_ANY_CHARACTER);
+        IOException failure = null;
+        int from = 0;
+        int start;
+        while ((start = findObjectStart(response, from)) >= 0) {
+            int end = matchBrace(response, start);
+            try (Reader in = new RangeReader(response, start, end)) {
+                return lenient.readValue(in);
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+            if (end >= response.length()) break; // unterminated object: nothing further to try
+            from = end;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return null;
+    }
+
+    /**
+     * Offset of the next '{' at or after {@code from} outside reasoning blocks, or -1.
+     * An unclosed {@code <think>} (truncated reasoning) only skips the tag itself.
+     */
+    static int findObjectStart(String text, int from) {
+        int n = text.length();
+        for (int i = from; i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                return i;
+            }
+            if (c == '<' && text.startsWith(THINK_OPEN, i)) {
+                int close = text.indexOf(THINK_CLOSE, i + THINK_OPEN.length());
+                i = (close < 0 ? i + THINK_OPEN.length() : close + THINK_CLOSE.length()) - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Exclusive end of the object starting at {@code start}, or the end of the text if the
+     * object is never closed (truncated output).
+     */
+    static int matchBrace(String text, int start) {
+        int depth = 0;
+        boolean inString = false;
+        int n = text.length();
+        for (int i = start; i < n; i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Reader over a range of a string, without copying it.
+     */
+    private static final class RangeReader extends Reader {
+
+        private final String text;
+        private final int end;
+        private int pos;
+
+        RangeReader(String text, int start, int end) {
+            this.text = text;
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (pos >= end) {
+                return -1;
+            }
+            int count = Math.min(length, end - pos);
+            text.getChars(pos, pos + count, buffer, offset);
+            pos += count;
+            return count;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -1,17 +1,28 @@
 package com.patientvocate.service.ai;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.patientvocate.model.ChatMessage;
+import com.patientvocate.model.Finding;
 import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import com.patientvocate.service.session.ChatSession;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Ollama-based AI service implementation using the Mistral model.
@@ -22,70 +33,255 @@ public class OllamaAIService implements AIService {
 
     private static final Logger log = LoggerFactory.getLogger(OllamaAIService.class);
 
-    private final RestTemplate restTemplate;
+    private final ProviderHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final ObjectReader summaryReader;
+    private final PromptBudget promptBudget;
+    private final PipelineMetrics metrics;
 
     @Value("${ai.ollama.model}")
     private String model;
 
-    public OllamaAIService(@Qualifier("ollamaRestTemplate") RestTemplate restTemplate,
-                           ObjectMapper objectMapper) {
-        this.restTemplate = restTemplate;
+    @Value("${ai.ollama.keep-alive:30m}")
+    private String keepAlive;
+
+    public OllamaAIService(@Qualifier("ollamaHttpClient") ProviderHttpClient httpClient,
+                           ObjectMapper objectMapper,
+                           @Qualifier("ollamaPromptBudget") PromptBudget promptBudget,
+                           PipelineMetrics metrics) {
+        this.httpClient = httpClient;
         this.objectMapper = objectMapper;
+        this.summaryReader = objectMapper.readerFor(ReportSummary.class);
+        this.promptBudget = promptBudget;
+        this.metrics = metrics;
     }
 
     @Override
     public ReportSummary analyzeReport(String reportText) {
+        return ProviderHttpClient.join(analyzeReportAsync(reportText));
+    }
+
+    @Override
+    public CompletableFuture<ReportSummary> analyzeReportAsync(String reportText) {
         log.info("Starting report analysis with Ollama model: {}", model);
 
+        PipelineMetrics.Scope scope = scope("analysis");
         String systemPrompt = AIPromptTemplates.REPORT_ANALYSIS_SYSTEM_PROMPT;
-        String userPrompt = AIPromptTemplates.buildAnalysisUserPrompt(reportText);
+        String userPrompt = scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> AIPromptTemplates.buildAnalysisUserPrompt(reportText));
 
-        String response = callOllama(systemPrompt, userPrompt, null);
+        CompletableFuture<String> call = callOllama(scope, systemPrompt, userPrompt);
+        return ProviderHttpClient.linkCancellation(call, call.thenApply(response -> parseSummary(scope, response)));
+    }
 
-        try {
-            // Clean up the response — remove any markdown code fences if present
-            String cleaned = cleanJsonResponse(response);
-            ReportSummary summary = objectMapper.readValue(cleaned, ReportSummary.class);
-            log.info("Report analysis completed. Findings: {}, Questions: {}",
-                    summary.getFindings() != null ? summary.getFindings().size() : 0,
-                    summary.getDiscussionQuestions() != null ? summary.getDiscussionQuestions().size() : 0);
-            return summary;
-        } catch (Exception e) {
-            log.error("Failed to parse AI response as ReportSummary. Raw response: {}", response, e);
-            // Return a fallback summary with the raw response
-            return createFallbackSummary(response);
-        }
+    @Override
+    public ReportSummary streamAnalyzeReport(String reportText, Consumer<String> onText) {
+        log.info("Starting streaming report analysis with Ollama model: {}", model);
+
+        PipelineMetrics.Scope scope = scope("analysis");
+        String userPrompt = scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> AIPromptTemplates.buildAnalysisUserPrompt(reportText));
+        return parseSummary(scope,
+                callOllamaStream(scope, AIPromptTemplates.REPORT_ANALYSIS_SYSTEM_PROMPT, userPrompt, onText));
+    }
+
+    @Override
+    public CompletableFuture<ReportSummary> explainFindingsAsync(String reportText, List<Finding> findings,
+                                                                 Set<String> knownTests, Set<String> knownTerms) {
+        log.info("Explaining {} extracted findings with Ollama model: {}", findings.size(), model);
+
+        PipelineMetrics.Scope scope = scope("explain");
+        String userPrompt = scope.time(PipelineMetrics.PROMPT_BUILD, () ->
+                AIPromptTemplates.buildFindingsExplanationUserPrompt(reportText, findings, knownTests, knownTerms));
+        CompletableFuture<String> call = callOllama(scope, AIPromptTemplates.REPORT_ANALYSIS_SYSTEM_PROMPT, userPrompt);
+        return ProviderHttpClient.linkCancellation(call, call.thenApply(response -> parseSummary(scope, response)));
+    }
+
+    @Override
+    public CompletableFuture<String> summarizeSectionsAsync(List<String> sectionSummaries, List<Finding> findings) {
+        PipelineMetrics.Scope scope = scope("sections");
+        String userPrompt = scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> AIPromptTemplates.buildSectionSummaryUserPrompt(sectionSummaries, findings));
+        CompletableFuture<String> call = callOllama(scope, AIPromptTemplates.SECTION_SUMMARY_SYSTEM_PROMPT, userPrompt);
+        return ProviderHttpClient.linkCancellation(call, call.thenApply(response -> scope.time(PipelineMetrics.PARSE, () -> {
+            JsonNode node = readJsonResponse(objectMapper.readerFor(JsonNode.class), response);
+            return node != null ? node.path("summary").asText("") : "";
+        })));
     }
 
     @Override
     public String answerFollowUp(String reportText, String analysisSummary,
                                   String question, List<ChatMessage> conversationHistory) {
+        return ProviderHttpClient.join(answerFollowUpAsync(reportText, analysisSummary, question, conversationHistory));
+    }
+
+    @Override
+    public CompletableFuture<String> answerFollowUpAsync(String reportText, String analysisSummary,
+                                                         String question, List<ChatMessage> conversationHistory) {
         log.info("Processing follow-up question: {}", question);
 
-        String systemPrompt = AIPromptTemplates.buildFollowUpSystemPrompt(reportText, analysisSummary);
+        PipelineMetrics.Scope scope = scope("chat");
+        List<Map<String, String>> messages = scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> buildChatMessages(reportText, analysisSummary, question, conversationHistory));
+        return callOllamaChat(scope, messages);
+    }
+
+    @Override
+    public String streamFollowUp(String reportText, String analysisSummary,
+                                 String question, List<ChatMessage> conversationHistory,
+                                 Consumer<String> onToken) {
+        log.info("Processing streaming follow-up question: {}", question);
+
+        PipelineMetrics.Scope scope = scope("chat");
+        List<Map<String, String>> messages = scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> buildChatMessages(reportText, analysisSummary, question, conversationHistory));
+        return callOllamaChatStream(scope, messages, onToken);
+    }
+
+    @Override
+    public String answerFollowUp(ChatSession session, String question) {
+        return generateInSession(session, question, null);
+    }
+
+    @Override
+    public String streamFollowUp(ChatSession session, String question, Consumer<String> onToken) {
+        return generateInSession(session, question, onToken);
+    }
+
+    /**
+     * Session follow-up via /api/generate. The first turn sends the system prompt with the
+     * report; every turn's response carries Ollama's "context" (the encoded conversation),
+     * which is stored on the session and sent back with the next question so that only the
+     * new question has to be evaluated. keep_alive keeps the model loaded between turns.
+     * Without a usable context (history built with another provider, or a context that
+     * outgrew the budget) the fitted report and history are sent once as a fresh prompt, and
+     * the context it returns is carried from then on.
+     */
+    private String generateInSession(ChatSession session, String question, Consumer<String> onToken) {
+        // Turns within a session are sequential: turn N's context feeds turn N+1
+        synchronized (session) {
+            OllamaContext previous = session.getProviderState(getProviderName()) instanceof OllamaContext ctx
+                    && ctx.model().equals(model) ? ctx : null;
+            List<ChatMessage> history = session.getHistory();
+
+            if (previous != null && !promptBudget.hasRoomFor(previous.tokens().length, question)) {
+                // The carried context has outgrown the budget; start over from a trimmed prompt
+                log.info("Ollama context for session {} is {} tokens (budget {}), compacting",
+                        session.getId(), previous.tokens().length, promptBudget.getMaxTokens());
+                session.setProviderState(getProviderName(), null);
+                previous = null;
+            }
+
+            log.info("Processing session follow-up question (session: {}, reusing context: {}, history: {} messages)",
+                    session.getId(), previous != null, history.size());
+
+            PipelineMetrics.Scope scope = scope("chat");
+            Map<String, Object> request = new HashMap<>();
+            request.put("model", model);
+            request.put("keep_alive", keepAlive);
+            if (previous != null) {
+                request.put("prompt", question);
+                request.put("context", previous.tokens());
+                scope.promptSize(question.length());
+            } else {
+                PromptBudget.FittedPrompt prompt = scope.time(PipelineMetrics.PROMPT_BUILD, () -> promptBudget.fit(
+                        session.getReportText(), session.getAnalysisSummary(), question, history));
+                String system = AIPromptTemplates.buildFollowUpSystemPrompt(prompt.reportText(), prompt.analysisSummary());
+                String user = AIPromptTemplates.buildConversationPrompt(prompt.history(), question);
+                request.put("system", system);
+                request.put("prompt", user);
+                scope.promptSize(system.length() + user.length());
+            }
+
+            StringBuilder answer = new StringBuilder();
+            int[][] context = new int[1][];
+            Timer.Sample call = metrics.start();
+            try {
+                if (onToken != null) {
+                    request.put("stream", true);
+                    ProviderHttpClient.await(httpClient.postStreaming("/api/generate", toJson(request),
+                            "application/x-ndjson", line -> {
+                                if (line.isBlank()) return;
+                                JsonNode chunk = readTree(line);
+                                if (chunk.hasNonNull("error")) {
+                                    throw new RuntimeException(chunk.get("error").asText());
+                                }
+                                String token = chunk.path("response").asText("");
+                                if (!token.isEmpty()) {
+                                    answer.append(token);
+                                    onToken.accept(token);
+                                }
+                                if (chunk.has("context")) {
+                                    context[0] = toIntArray(chunk.get("context"));
+                                }
+                                if (chunk.path("done").asBoolean(false)) {
+                                    recordUsage(scope, chunk);
+                                }
+                            }));
+                } else {
+                    request.put("stream", false);
+                    JsonNode response = readTree(ProviderHttpClient.await(
+                            httpClient.postJson("/api/generate", toJson(request))));
+                    answer.append(response.path("response").asText(""));
+                    if (response.has("context")) {
+                        context[0] = toIntArray(response.get("context"));
+                    }
+                    recordUsage(scope, response);
+                }
+                scope.record(PipelineMetrics.PROVIDER_CALL, call, PipelineMetrics.SUCCESS);
+                scope.responseSize(answer.length());
+            } catch (CancellationException e) {
+                scope.record(PipelineMetrics.PROVIDER_CALL, call, PipelineMetrics.CANCELLED);
+                throw e;
+            } catch (Exception e) {
+                scope.record(PipelineMetrics.PROVIDER_CALL, call, PipelineMetrics.outcomeOf(e));
+                log.error("Ollama session follow-up failed", e);
+                throw new RuntimeException("Failed to get chat response from AI model: " + e.getMessage(), e);
+            }
+
+            if (answer.length() == 0) {
+                throw new RuntimeException("Empty response from Ollama");
+            }
+            session.setProviderState(getProviderName(), context[0] != null ? new OllamaContext(model, context[0]) : null);
+            return answer.toString();
+        }
+    }
+
+    private static int[] toIntArray(JsonNode array) {
+        int[] values = new int[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i).asInt();
+        }
+        return values;
+    }
+
+    /**
+     * Build the /api/chat messages list: system prompt, conversation history, current question.
+     */
+    private List<Map<String, String>> buildChatMessages(String reportText, String analysisSummary,
+                                                        String question, List<ChatMessage> conversationHistory) {
+        PromptBudget.FittedPrompt prompt = promptBudget.fit(reportText, analysisSummary, question, conversationHistory);
+        String systemPrompt = AIPromptTemplates.buildFollowUpSystemPrompt(prompt.reportText(), prompt.analysisSummary());
 
-        // Build messages list with conversation history
         List<Map<String, String>> messages = new ArrayList<>();
         messages.add(Map.of("role", "system", "content", systemPrompt));
 
         // Add conversation history
-        if (conversationHistory != null) {
-            for (ChatMessage msg : conversationHistory) {
+        if (prompt.history() != null) {
+            for (ChatMessage msg : prompt.history()) {
                 messages.add(Map.of("role", msg.getRole(), "content", msg.getContent()));
             }
         }
 
         // Add the current question
         messages.add(Map.of("role", "user", "content", question));
-
-        return callOllamaChat(messages);
+        return messages;
     }
 
     @Override
     public boolean isAvailable() {
         try {
-            restTemplate.getForObject("/api/tags", String.class);
+            ProviderHttpClient.join(probeAsync(Duration.ofSeconds(5)));
             return true;
         } catch (Exception e) {
             log.warn("Ollama is not available: {}", e.getMessage());
@@ -93,30 +289,120 @@ public class OllamaAIService implements AIService {
         }
     }
 
+    /**
+     * Lists local models via /api/tags, outside the concurrency limit so a busy or hung
+     * generation queue does not delay the answer.
+     */
+    @Override
+    public CompletableFuture<Void> probeAsync(Duration timeout) {
+        CompletableFuture<String> probe = httpClient.probe("/api/tags", timeout);
+        return ProviderHttpClient.linkCancellation(probe, probe.thenApply(body -> null));
+    }
+
+    @Override
+    public CircuitBreaker getCircuitBreaker() {
+        return httpClient.getCircuitBreaker();
+    }
+
+    private ReportSummary parseSummary(PipelineMetrics.Scope scope, String response) {
+        Timer.Sample sample = metrics.start();
+        try {
+            ReportSummary summary = JsonResponseExtractor.read(summaryReader, response);
+            if (summary == null) {
+                throw new IllegalStateException("No JSON object in response");
+            }
+            scope.record(PipelineMetrics.PARSE, sample, PipelineMetrics.SUCCESS);
+            log.info("Report analysis completed. Findings: {}, Questions: {}",
+                    summary.getFindings() != null ? summary.getFindings().size() : 0,
+                    summary.getDiscussionQuestions() != null ? summary.getDiscussionQuestions().size() : 0);
+            return summary;
+        } catch (Exception e) {
+            scope.record(PipelineMetrics.PARSE, sample, PipelineMetrics.FALLBACK);
+            scope.fallback("unparseable");
+            log.error("Failed to parse AI response as ReportSummary. Raw response: {}", response, e);
+            // Return a fallback summary with the raw response
+            return createFallbackSummary(response);
+        }
+    }
+
     /**
      * Call Ollama /api/generate endpoint (single prompt).
      */
-    private String callOllama(String systemPrompt, String userPrompt,
-                              List<ChatMessage> history) {
+    private CompletableFuture<String> callOllama(PipelineMetrics.Scope scope, String systemPrompt, String userPrompt) {
         Map<String, Object> request = new HashMap<>();
         request.put("model", model);
         request.put("prompt", userPrompt);
         request.put("system", systemPrompt);
         request.put("stream", false);
+        request.put("keep_alive", keepAlive);
 
         // Request JSON format for structured output
         request.put("format", "json");
 
+        scope.promptSize(systemPrompt.length() + userPrompt.length());
+        CompletableFuture<String> call = scope.timeAsync(PipelineMetrics.PROVIDER_CALL,
+                () -> httpClient.postJson("/api/generate", toJson(request)));
+        return ProviderHttpClient.linkCancellation(call, call
+                .thenApply(body -> {
+                    JsonNode response = readTree(body);
+                    if (response.hasNonNull("response")) {
+                        String text = response.get("response").asText();
+                        scope.responseSize(text.length());
+                        recordUsage(scope, response);
+                        return text;
+                    }
+                    throw new RuntimeException("Empty response from Ollama");
+                })
+                .exceptionally(e -> {
+                    Throwable cause = ProviderHttpClient.unwrap(e);
+                    if (cause instanceof CancellationException cancelled) throw cancelled;
+                    log.error("Ollama API call failed", cause);
+                    throw new RuntimeException("Failed to get response from AI model: " + cause.getMessage(), cause);
+                }));
+    }
+
+    /**
+     * Call Ollama /api/generate with streaming, forwarding each fragment of the JSON response.
+     */
+    private String callOllamaStream(PipelineMetrics.Scope scope, String systemPrompt, String userPrompt,
+                                    Consumer<String> onText) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", model);
+        request.put("prompt", userPrompt);
+        request.put("system", systemPrompt);
+        request.put("stream", true);
+        request.put("keep_alive", keepAlive);
+        request.put("format", "json");
+
+        scope.promptSize(systemPrompt.length() + userPrompt.length());
+        StringBuilder full = new StringBuilder();
         try {
-            Map<String, Object> response = restTemplate.postForObject(
-                    "/api/generate", request, Map.class);
+            scope.time(PipelineMetrics.PROVIDER_CALL, () -> ProviderHttpClient.await(httpClient.postStreaming(
+                    "/api/generate", toJson(request), "application/x-ndjson", line -> {
+                        if (line.isBlank()) return;
+                        JsonNode chunk = readTree(line);
+                        if (chunk.hasNonNull("error")) {
+                            throw new RuntimeException(chunk.get("error").asText());
+                        }
+                        String text = chunk.path("response").asText("");
+                        if (!text.isEmpty()) {
+                            full.append(text);
+                            onText.accept(text);
+                        }
+                        if (chunk.path("done").asBoolean(false)) {
+                            recordUsage(scope, chunk);
+                        }
+                    })));
 
-            if (response != null && response.containsKey("response")) {
-                return (String) response.get("response");
+            if (full.length() == 0) {
+                throw new RuntimeException("Empty response from Ollama");
             }
-            throw new RuntimeException("Empty response from Ollama");
+            scope.responseSize(full.length());
+            return full.toString();
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Ollama API call failed", e);
+            log.error("Ollama streaming API call failed", e);
             throw new RuntimeException("Failed to get response from AI model: " + e.getMessage(), e);
         }
     }
@@ -124,49 +410,124 @@ public class OllamaAIService implements AIService {
     /**
      * Call Ollama /api/chat endpoint (multi-turn conversation).
      */
-    private String callOllamaChat(List<Map<String, String>> messages) {
+    private CompletableFuture<String> callOllamaChat(PipelineMetrics.Scope scope, List<Map<String, String>> messages) {
         Map<String, Object> request = new HashMap<>();
         request.put("model", model);
         request.put("messages", messages);
         request.put("stream", false);
+        request.put("keep_alive", keepAlive);
 
+        scope.promptSize(promptChars(messages));
+        CompletableFuture<String> call = scope.timeAsync(PipelineMetrics.PROVIDER_CALL,
+                () -> httpClient.postJson("/api/chat", toJson(request)));
+        return ProviderHttpClient.linkCancellation(call, call
+                .thenApply(body -> {
+                    JsonNode response = readTree(body);
+                    if (response.hasNonNull("message")) {
+                        String text = response.get("message").path("content").asText();
+                        scope.responseSize(text.length());
+                        recordUsage(scope, response);
+                        return text;
+                    }
+                    throw new RuntimeException("Empty response from Ollama chat");
+                })
+                .exceptionally(e -> {
+                    Throwable cause = ProviderHttpClient.unwrap(e);
+                    if (cause instanceof CancellationException cancelled) throw cancelled;
+                    log.error("Ollama chat API call failed", cause);
+                    throw new RuntimeException("Failed to get chat response from AI model: " + cause.getMessage(), cause);
+                }));
+    }
+
+    /**
+     * Call Ollama /api/chat with stream=true. Ollama answers with newline-delimited JSON
+     * objects, each carrying a message fragment, terminated by one with "done": true.
+     */
+    private String callOllamaChatStream(PipelineMetrics.Scope scope, List<Map<String, String>> messages,
+                                        Consumer<String> onToken) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", model);
+        request.put("messages", messages);
+        request.put("stream", true);
+        request.put("keep_alive", keepAlive);
+
+        scope.promptSize(promptChars(messages));
+        StringBuilder full = new StringBuilder();
         try {
-            Map<String, Object> response = restTemplate.postForObject(
-                    "/api/chat", request, Map.class);
+            scope.time(PipelineMetrics.PROVIDER_CALL, () -> ProviderHttpClient.await(httpClient.postStreaming(
+                    "/api/chat", toJson(request), "application/x-ndjson", line -> {
+                        if (line.isBlank()) return;
+                        JsonNode chunk = readTree(line);
+                        if (chunk.hasNonNull("error")) {
+                            throw new RuntimeException(chunk.get("error").asText());
+                        }
+                        String token = chunk.path("message").path("content").asText("");
+                        if (!token.isEmpty()) {
+                            full.append(token);
+                            onToken.accept(token);
+                        }
+                        if (chunk.path("done").asBoolean(false)) {
+                            recordUsage(scope, chunk);
+                        }
+                    })));
 
-            if (response != null && response.containsKey("message")) {
-                Map<String, Object> message = (Map<String, Object>) response.get("message");
-                return (String) message.get("content");
+            if (full.length() == 0) {
+                throw new RuntimeException("Empty response from Ollama chat stream");
             }
-            throw new RuntimeException("Empty response from Ollama chat");
+            scope.responseSize(full.length());
+            return full.toString();
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Ollama chat API call failed", e);
+            log.error("Ollama streaming chat API call failed", e);
             throw new RuntimeException("Failed to get chat response from AI model: " + e.getMessage(), e);
         }
     }
 
+    private PipelineMetrics.Scope scope(String operation) {
+        return metrics.scope(getProviderName(), model, operation);
+    }
+
     /**
-     * Clean up JSON response — remove markdown code fences, trim whitespace.
+     * Record the token counts Ollama reports on a final response (prompt_eval_count is
+     * omitted when the prompt was served from its cache).
      */
-    private String cleanJsonResponse(String response) {
-        if (response == null) return "{}";
+    private static void recordUsage(PipelineMetrics.Scope scope, JsonNode response) {
+        scope.tokens(response.path("prompt_eval_count").asLong(-1), response.path("eval_count").asLong(-1));
+    }
 
-        String cleaned = response.trim();
+    private static int promptChars(List<Map<String, String>> messages) {
+        return messages.stream().mapToInt(m -> m.getOrDefault("content", "").length()).sum();
+    }
 
-        // Remove markdown code fences (```json ... ``` or ``` ... ```)
-        if (cleaned.startsWith("```")) {
-            int firstNewline = cleaned.indexOf('\n');
-            if (firstNewline != -1) {
-                cleaned = cleaned.substring(firstNewline + 1);
-            }
-            if (cleaned.endsWith("```")) {
-                cleaned = cleaned.substring(0, cleaned.length() - 3);
-            }
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T readJsonResponse(ObjectReader reader, String response) {
+        try {
+            return JsonResponseExtractor.read(reader, response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        return cleaned.trim();
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
+    /**
+     * Summary returned when the response could not be parsed: it carries the raw response
+     * and is flagged as a fallback so it is not cached.
+     */
     private ReportSummary createFallbackSummary(String rawResponse) {
         ReportSummary summary = new ReportSummary();
         summary.setSummary("The AI provided an analysis but it could not be fully structured. " +
@@ -174,6 +535,7 @@ public class OllamaAIService implements AIService {
         summary.setFindings(Collections.emptyList());
         summary.setGlossary(Collections.emptyList());
         summary.setDiscussionQuestions(Collections.emptyList());
+        summary.setFallback(true);
         summary.setDisclaimer("This summary is for educational purposes only. " +
                 "Please discuss these results with your healthcare provider.");
         return summary;
@@ -183,4 +545,22 @@ public class OllamaAIService implements AIService {
     public String getProviderName() {
         return "ollama";
     }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("http", httpClient.getStats());
+        stats.put("promptBudget", promptBudget.getStats());
+        return stats;
+    }
+
+    /**
+     * Ollama's encoded conversation state after a session turn.
+     */
+    private record OllamaContext(String model, int[] tokens) {}
+
+    @Override
+    public String getModelName() {
+        return model;
+    }
 }
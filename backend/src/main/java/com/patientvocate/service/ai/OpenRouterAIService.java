@@ -1,21 +1,28 @@
 package com.patientvocate.service.ai;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.patientvocate.model.ChatMessage;
+import com.patientvocate.model.Finding;
 import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * OpenRouter AI service implementation.
@@ -25,10 +32,13 @@ import java.util.*;
 public class OpenRouterAIService implements AIService {
 
     private static final Logger log = LoggerFactory.getLogger(OpenRouterAIService.class);
-    private static final String API_URL = "https://openrouter.ai/api/v1/chat/completions";
+    private static final String COMPLETIONS_PATH = "/chat/completions";
 
-    private final RestTemplate restTemplate;
+    private final ProviderHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final ObjectReader summaryReader;
+    private final PromptBudget promptBudget;
+    private final PipelineMetrics metrics;
 
     @Value("${ai.openrouter.api-key}")
     private String apiKey;
@@ -36,99 +46,232 @@ public class OpenRouterAIService implements AIService {
     @Value("${ai.openrouter.model}")
     private String model;
 
-    public OpenRouterAIService(RestTemplateBuilder builder, ObjectMapper objectMapper,
-                                @Value("${ai.openrouter.timeout}") int timeout) {
-        this.restTemplate = builder
-                .setConnectTimeout(Duration.ofSeconds(10))
-                .setReadTimeout(Duration.ofSeconds(timeout))
-                .build();
+    public OpenRouterAIService(@Qualifier("openRouterHttpClient") ProviderHttpClient httpClient,
+                               ObjectMapper objectMapper,
+                               @Qualifier("openRouterPromptBudget") PromptBudget promptBudget,
+                               PipelineMetrics metrics) {
+        this.httpClient = httpClient;
+        this.promptBudget = promptBudget;
+        this.metrics = metrics;
         // Create a custom copy of the object mapper with more lenient settings
         this.objectMapper = objectMapper.copy()
                 .configure(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_SINGLE_QUOTES, true)
                 .configure(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true)
                 .configure(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_COMMENTS, true)
                 .configure(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_UNQUOTED_CONTROL_CHARS, true);
+        this.summaryReader = this.objectMapper.readerFor(ReportSummary.class);
     }
 
     @Override
     public ReportSummary analyzeReport(String reportText) {
+        return ProviderHttpClient.join(analyzeReportAsync(reportText));
+    }
+
+    @Override
+    public CompletableFuture<ReportSummary> analyzeReportAsync(String reportText) {
         log.info("Starting report analysis with OpenRouter model: {}", model);
+        PipelineMetrics.Scope scope = scope("analysis");
+        return analyze(scope, scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> AIPromptTemplates.buildAnalysisUserPrompt(reportText)));
+    }
 
-        String systemPrompt = AIPromptTemplates.REPORT_ANALYSIS_SYSTEM_PROMPT;
-        String userPrompt = AIPromptTemplates.buildAnalysisUserPrompt(reportText);
+    @Override
+    public CompletableFuture<ReportSummary> explainFindingsAsync(String reportText, List<Finding> findings,
+                                                                 Set<String> knownTests, Set<String> knownTerms) {
+        log.info("Explaining {} extracted findings with OpenRouter model: {}", findings.size(), model);
+        PipelineMetrics.Scope scope = scope("explain");
+        return analyze(scope, scope.time(PipelineMetrics.PROMPT_BUILD, () ->
+                AIPromptTemplates.buildFindingsExplanationUserPrompt(reportText, findings, knownTests, knownTerms)));
+    }
 
-        try {
-            OpenRouterRequest request = new OpenRouterRequest();
-            request.setModel(model);
-            request.addMessage("system", systemPrompt);
-            request.addMessage("user", userPrompt);
-            
-            // Set a higher token limit for reasoning models
-            request.max_tokens = 4000;
-            // Lower temperature to keep it structured
-            request.temperature = 0.1;
-            // Enable reasoning as requested
-            request.reasoning = new OpenRouterRequest.ReasoningConfig(true);
-
-            // Force JSON response
-            request.setResponseFormat(Map.of("type", "json_object"));
-
-            OpenRouterResponse response = callOpenRouter(request);
-            String text = extractText(response);
-            
-            log.debug("Raw AI response length: {}", text.length());
-
-            String cleaned = cleanJsonResponse(text);
-            
-            // If cleaning resulted in empty string or still no braces, the model failed to JSON
-            if (cleaned.isEmpty() || !cleaned.contains("{")) {
-                throw new RuntimeException("AI model failed to provide a structured JSON response. It only provided reasoning text.");
+    @Override
+    public CompletableFuture<String> summarizeSectionsAsync(List<String> sectionSummaries, List<Finding> findings) {
+        PipelineMetrics.Scope scope = scope("sections");
+        OpenRouterRequest request = new OpenRouterRequest();
+        request.setModel(model);
+        request.addMessage("system", AIPromptTemplates.SECTION_SUMMARY_SYSTEM_PROMPT);
+        request.addMessage("user", scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> AIPromptTemplates.buildSectionSummaryUserPrompt(sectionSummaries, findings)));
+        request.max_tokens = 600;
+        request.temperature = 0.3;
+        request.setResponseFormat(Map.of("type", "json_object"));
+
+        CompletableFuture<String> call = callOpenRouter(scope, request);
+        return ProviderHttpClient.linkCancellation(call, call.thenApply(text -> scope.time(PipelineMetrics.PARSE, () -> {
+            try {
+                JsonNode node = JsonResponseExtractor.read(objectMapper.readerFor(JsonNode.class), text);
+                return node != null ? node.path("summary").asText("") : "";
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        })));
+    }
+
+    @Override
+    public ReportSummary streamAnalyzeReport(String reportText, Consumer<String> onText) {
+        log.info("Starting streaming report analysis with OpenRouter model: {}", model);
+
+        PipelineMetrics.Scope scope = scope("analysis");
+        OpenRouterRequest request = buildAnalysisRequest(scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> AIPromptTemplates.buildAnalysisUserPrompt(reportText)));
+        request.stream = true;
+        String text = null;
+        try {
+            text = callOpenRouterStream(scope, request, onText);
+            return parseAnalysis(scope, text);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            Throwable cause = ProviderHttpClient.unwrap(e);
+            log.error("OpenRouter streaming analysis failed", cause);
+            scope.fallback(text != null ? "unparseable" : "provider_error");
+            return createFallbackSummary(cause.getMessage());
+        }
+    }
+
+    private CompletableFuture<ReportSummary> analyze(PipelineMetrics.Scope scope, String userPrompt) {
+        boolean[] received = new boolean[1];
+        CompletableFuture<String> call = callOpenRouter(scope, buildAnalysisRequest(userPrompt));
+        return ProviderHttpClient.linkCancellation(call, call
+                .thenApply(text -> {
+                    received[0] = true;
+                    return parseAnalysis(scope, text);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = ProviderHttpClient.unwrap(e);
+                    if (cause instanceof CancellationException cancelled) throw cancelled;
+                    log.error("OpenRouter analysis failed", cause);
+                    scope.fallback(received[0] ? "unparseable" : "provider_error");
+                    return createFallbackSummary(cause.getMessage());
+                }));
+    }
+
+    private OpenRouterRequest buildAnalysisRequest(String userPrompt) {
+        String systemPrompt = AIPromptTemplates.REPORT_ANALYSIS_SYSTEM_PROMPT;
+
+        OpenRouterRequest request = new OpenRouterRequest();
+        request.setModel(model);
+        request.addMessage("system", systemPrompt);
+        request.addMessage("user", userPrompt);
+
+        // Set a higher token limit for reasoning models
+        request.max_tokens = 4000;
+        // Lower temperature to keep it structured
+        request.temperature = 0.1;
+        // Enable reasoning as requested
+        request.reasoning = new OpenRouterRequest.ReasoningConfig(true);
+
+        // Force JSON response
+        request.setResponseFormat(Map.of("type", "json_object"));
+        return request;
+    }
 
-            return objectMapper.readValue(cleaned, ReportSummary.class);
+    private ReportSummary parseAnalysis(PipelineMetrics.Scope scope, String text) {
+        log.debug("Raw AI response length: {}", text.length());
 
-        } catch (Exception e) {
-            log.error("OpenRouter analysis failed", e);
-            return createFallbackSummary(e.getMessage());
+        Timer.Sample sample = metrics.start();
+        ReportSummary summary;
+        try {
+            summary = JsonResponseExtractor.read(summaryReader, text);
+        } catch (IOException e) {
+            scope.record(PipelineMetrics.PARSE, sample, PipelineMetrics.FALLBACK);
+            throw new UncheckedIOException(e);
+        }
+
+        // No JSON object outside the reasoning blocks: the model failed to produce JSON
+        if (summary == null) {
+            scope.record(PipelineMetrics.PARSE, sample, PipelineMetrics.FALLBACK);
+            throw new RuntimeException("AI model failed to provide a structured JSON response. It only provided reasoning text.");
         }
+        scope.record(PipelineMetrics.PARSE, sample, PipelineMetrics.SUCCESS);
+        return summary;
     }
 
     @Override
     public String answerFollowUp(String reportText, String analysisSummary,
                                  String question, List<ChatMessage> conversationHistory) {
+        return ProviderHttpClient.join(answerFollowUpAsync(reportText, analysisSummary, question, conversationHistory));
+    }
+
+    @Override
+    public CompletableFuture<String> answerFollowUpAsync(String reportText, String analysisSummary,
+                                                         String question, List<ChatMessage> conversationHistory) {
         log.info("Processing follow-up question with OpenRouter: {}", question);
 
-        String systemPrompt = AIPromptTemplates.buildFollowUpSystemPrompt(reportText, analysisSummary);
+        PipelineMetrics.Scope scope = scope("chat");
+        OpenRouterRequest request = scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> buildFollowUpRequest(reportText, analysisSummary, question, conversationHistory));
+        CompletableFuture<String> call = callOpenRouter(scope, request);
+        return ProviderHttpClient.linkCancellation(call, call
+                .exceptionally(e -> {
+                    Throwable cause = ProviderHttpClient.unwrap(e);
+                    if (cause instanceof CancellationException cancelled) throw cancelled;
+                    log.error("OpenRouter follow-up failed", cause);
+                    throw new RuntimeException("Failed to get response from AI model: " + cause.getMessage(), cause);
+                }));
+    }
 
-        try {
-            OpenRouterRequest request = new OpenRouterRequest();
-            request.setModel(model);
-            request.addMessage("system", systemPrompt);
-            request.max_tokens = 1000;
-            request.temperature = 0.5;
-
-            // Add history
-            if (conversationHistory != null) {
-                for (ChatMessage msg : conversationHistory) {
-                    request.addMessage(msg.getRole().toLowerCase(), msg.getContent());
-                }
+    @Override
+    public String streamFollowUp(String reportText, String analysisSummary,
+                                 String question, List<ChatMessage> conversationHistory,
+                                 Consumer<String> onToken) {
+        log.info("Processing streaming follow-up question with OpenRouter: {}", question);
+
+        PipelineMetrics.Scope scope = scope("chat");
+        OpenRouterRequest request = scope.time(PipelineMetrics.PROMPT_BUILD,
+                () -> buildFollowUpRequest(reportText, analysisSummary, question, conversationHistory));
+        request.stream = true;
+        return callOpenRouterStream(scope, request, onToken);
+    }
+
+    private OpenRouterRequest buildFollowUpRequest(String reportText, String analysisSummary,
+                                                   String question, List<ChatMessage> conversationHistory) {
+        PromptBudget.FittedPrompt prompt = promptBudget.fit(reportText, analysisSummary, question, conversationHistory);
+        String systemPrompt = AIPromptTemplates.buildFollowUpSystemPrompt(prompt.reportText(), prompt.analysisSummary());
+
+        OpenRouterRequest request = new OpenRouterRequest();
+        request.setModel(model);
+        request.addMessage("system", systemPrompt);
+        request.max_tokens = 1000;
+        request.temperature = 0.5;
+
+        // Add history
+        if (prompt.history() != null) {
+            for (ChatMessage msg : prompt.history()) {
+                request.addMessage(msg.getRole().toLowerCase(), msg.getContent());
             }
+        }
 
-            // Add current question
-            request.addMessage("user", question);
+        // Add current question
+        request.addMessage("user", question);
+        return request;
+    }
 
-            OpenRouterResponse response = callOpenRouter(request);
-            return extractText(response);
+    @Override
+    public boolean isAvailable() {
+        return apiKey != null && !apiKey.isEmpty() && !apiKey.startsWith("YOUR_");
+    }
 
-        } catch (Exception e) {
-            log.error("OpenRouter follow-up failed", e);
-            return "Sorry, I encountered an error with the AI service: " + e.getMessage();
+    /**
+     * No network probe: OpenRouter is a metered remote service, so its health is taken from
+     * the API key and from the circuit breaker, which real requests keep up to date.
+     */
+    @Override
+    public CompletableFuture<Void> probeAsync(Duration timeout) {
+        if (!isAvailable()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No OpenRouter API key configured"));
+        }
+        CircuitBreaker breaker = httpClient.getCircuitBreaker();
+        if (breaker.getState() == CircuitBreaker.State.OPEN) {
+            return CompletableFuture.failedFuture(new ProviderUnavailableException(getProviderName(),
+                    "Circuit open after repeated failures: " + breaker.getLastError()));
         }
+        return CompletableFuture.completedFuture(null);
     }
 
     @Override
-    public boolean isAvailable() {
-        return apiKey != null && !apiKey.isEmpty() && !apiKey.startsWith("YOUR_");
+    public CircuitBreaker getCircuitBreaker() {
+        return httpClient.getCircuitBreaker();
     }
 
     @Override
@@ -136,66 +279,108 @@ public class OpenRouterAIService implements AIService {
         return "openrouter";
     }
 
-    private OpenRouterResponse callOpenRouter(OpenRouterRequest request) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("Authorization", "Bearer " + apiKey);
-        headers.set("HTTP-Referer", "http://localhost:8080"); // Required by OpenRouter
-        headers.set("X-Title", "PatientVocate"); // Recommended by OpenRouter
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("http", httpClient.getStats());
+        stats.put("promptBudget", promptBudget.getStats());
+        return stats;
+    }
 
-        HttpEntity<OpenRouterRequest> entity = new HttpEntity<>(request, headers);
-        return restTemplate.postForObject(API_URL, entity, OpenRouterResponse.class);
+    @Override
+    public String getModelName() {
+        return model;
     }
 
-    private String extractText(OpenRouterResponse response) {
-        if (response != null && response.choices != null && !response.choices.isEmpty()) {
-            Choice choice = response.choices.get(0);
-            if (choice.message != null && choice.message.content != null) {
-                return choice.message.content;
-            }
+    /**
+     * Call the chat completions endpoint and return the text of the first choice.
+     */
+    private CompletableFuture<String> callOpenRouter(PipelineMetrics.Scope scope, OpenRouterRequest request) {
+        scope.promptSize(request.promptChars());
+        CompletableFuture<String> call = scope.timeAsync(PipelineMetrics.PROVIDER_CALL,
+                () -> httpClient.postJson(COMPLETIONS_PATH, toJson(request)));
+        return ProviderHttpClient.linkCancellation(call, call
+                .thenApply(body -> {
+                    OpenRouterResponse response;
+                    try {
+                        response = objectMapper.readValue(body, OpenRouterResponse.class);
+                    } catch (JsonProcessingException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    recordUsage(scope, response.usage);
+                    String text = extractText(response);
+                    scope.responseSize(text.length());
+                    return text;
+                }));
+    }
+
+    /**
+     * Call the chat completions endpoint with stream=true. OpenRouter answers with
+     * OpenAI-style Server-Sent Events: "data: {chunk}" lines terminated by "data: [DONE]".
+     * Lines starting with ':' are keep-alive comments.
+     */
+    private String callOpenRouterStream(PipelineMetrics.Scope scope, OpenRouterRequest request, Consumer<String> onToken) {
+        scope.promptSize(request.promptChars());
+        StringBuilder full = new StringBuilder();
+        scope.time(PipelineMetrics.PROVIDER_CALL, () -> ProviderHttpClient.await(httpClient.postStreaming(
+                COMPLETIONS_PATH, toJson(request), "text/event-stream", line -> {
+                    if (!line.startsWith("data:")) return;
+                    String data = line.substring(5).trim();
+                    if (data.isEmpty() || data.equals("[DONE]")) return;
+
+                    StreamChunk chunk;
+                    try {
+                        chunk = objectMapper.readValue(data, StreamChunk.class);
+                    } catch (JsonProcessingException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (chunk.error != null) {
+                        throw new RuntimeException("OpenRouter stream error: " + chunk.error.message);
+                    }
+                    // Usage, when reported, arrives on the last chunk
+                    recordUsage(scope, chunk.usage);
+                    if (chunk.choices == null || chunk.choices.isEmpty()) return;
+                    Message delta = chunk.choices.get(0).delta;
+                    if (delta != null && delta.content != null && !delta.content.isEmpty()) {
+                        full.append(delta.content);
+                        onToken.accept(delta.content);
+                    }
+                })));
+
+        if (full.length() == 0) {
+            throw new RuntimeException("Empty response from OpenRouter API. Check if your API key has balance or if the model is reachable.");
         }
-        throw new RuntimeException("Empty response from OpenRouter API. Check if your API key has balance or if the model is reachable.");
+        scope.responseSize(full.length());
+        return full.toString();
     }
 
-    private String cleanJsonResponse(String response) {
-        if (response == null) return "{}";
-        
-        // 1. Remove ALL DeepSeek reasoning blocks <think>...</think>
-        // We use DOTALL to match across multiple lines
-        String cleaned = response.replaceAll("(?s)<think>.*?</think>", "").trim();
-        
-        // 2. If <think> tag is still present (unclosed), remove everything up to the first '{'
-        if (cleaned.contains("<think>")) {
-            int firstBrace = cleaned.indexOf('{');
-            if (firstBrace != -1) {
-                cleaned = cleaned.substring(firstBrace).trim();
-            }
+    private PipelineMetrics.Scope scope(String operation) {
+        return metrics.scope(getProviderName(), model, operation);
+    }
+
+    private static void recordUsage(PipelineMetrics.Scope scope, Usage usage) {
+        if (usage != null) {
+            scope.tokens(usage.prompt_tokens != null ? usage.prompt_tokens : -1,
+                    usage.completion_tokens != null ? usage.completion_tokens : -1);
         }
+    }
 
-        // 3. Isolate the JSON object by finding the outermost braces
-        int firstBrace = cleaned.indexOf('{');
-        int lastBrace = cleaned.lastIndexOf('}');
-        
-        if (firstBrace != -1 && lastBrace != -1 && lastBrace > firstBrace) {
-            cleaned = cleaned.substring(firstBrace, lastBrace + 1);
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        // 4. Handle remaining markdown code blocks (e.g. ```json ... ```)
-        if (cleaned.startsWith("```")) {
-            int firstNewline = cleaned.indexOf('\n');
-            if (firstNewline != -1) {
-                cleaned = cleaned.substring(firstNewline + 1);
-            }
-            if (cleaned.endsWith("```")) {
-                cleaned = cleaned.substring(0, cleaned.length() - 3);
+    private String extractText(OpenRouterResponse response) {
+        if (response != null && response.choices != null && !response.choices.isEmpty()) {
+            Choice choice = response.choices.get(0);
+            if (choice.message != null && choice.message.content != null) {
+                return choice.message.content;
             }
-            cleaned = cleaned.trim();
         }
-
-        // 5. Final sanitization
-        cleaned = cleaned.replace("\\'", "'");
-        
-        return cleaned.trim();
+        throw new RuntimeException("Empty response from OpenRouter API. Check if your API key has balance or if the model is reachable.");
     }
 
     private ReportSummary createFallbackSummary(String error) {
@@ -204,6 +389,7 @@ public class OpenRouterAIService implements AIService {
         summary.setFindings(Collections.emptyList());
         summary.setGlossary(Collections.emptyList());
         summary.setDiscussionQuestions(Collections.emptyList());
+        summary.setFallback(true);
         summary.setDisclaimer("Error while communicating with OpenRouter: " + error);
         return summary;
     }
@@ -218,6 +404,7 @@ public class OpenRouterAIService implements AIService {
         public Integer max_tokens;
         public Double temperature;
         public ReasoningConfig reasoning;
+        public Boolean stream;
 
         public void setModel(String model) {
             this.model = model;
@@ -231,6 +418,10 @@ public class OpenRouterAIService implements AIService {
             this.response_format = format;
         }
 
+        int promptChars() {
+            return messages.stream().mapToInt(m -> m.content != null ? m.content.length() : 0).sum();
+        }
+
         public static class ReasoningConfig {
             public boolean enabled;
             public ReasoningConfig(boolean enabled) {
@@ -254,10 +445,30 @@ public class OpenRouterAIService implements AIService {
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class OpenRouterResponse {
         public List<Choice> choices;
+        public Usage usage;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class Usage {
+        public Long prompt_tokens;
+        public Long completion_tokens;
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class Choice {
         public Message message;
+        public Message delta;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class StreamChunk {
+        public List<Choice> choices;
+        public Usage usage;
+        public StreamError error;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class StreamError {
+        public String message;
     }
 }
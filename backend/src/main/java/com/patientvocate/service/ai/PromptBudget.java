@@ -0,0 +1,255 @@
+package com.patientvocate.service.ai;
+
+import com.patientvocate.model.ChatMessage;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps follow-up prompts within a provider's token budget. When the estimated prompt is
+ * over budget, the oldest conversation turns are compacted into a short note first; if that
+ * is not enough, the report sections least related to the question are dropped.
+ */
+public class PromptBudget {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptBudget.class);
+
+    /** Role/formatting tokens added by chat templates for each message. */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    /** Most recent history messages that are always kept verbatim when possible. */
+    private static final int KEEP_RECENT_MESSAGES = 4;
+    /** History is trimmed further rather than letting the report shrink below this share. */
+    private static final double MIN_REPORT_SHARE = 0.25;
+    private static final int NOTE_QUESTION_CHARS = 80;
+
+    private static final Pattern SECTION_BREAK = Pattern.compile("\\R\\s*\\R");
+    private static final Pattern LINE_BREAK = Pattern.compile("\\R");
+    private static final Pattern WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Standalone flags only, so units like "mmol/L" do not count
+    private static final Pattern ABNORMAL_FLAG = Pattern.compile(
+            "(?<![\\w/])([HL]|(?i:high|low|abnormal|critical|positive))(?![\\w/])|\\*");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "what", "does", "this", "that", "with", "are", "was", "mean",
+            "means", "about", "can", "should", "have", "how", "why", "which", "your", "you", "from");
+
+    private final String provider;
+    private final int maxTokens;
+    private final TokenEstimator estimator;
+    private final PipelineMetrics metrics;
+    private final int templateTokens;
+
+    private final AtomicLong prompts = new AtomicLong();
+    private final AtomicLong trimmedPrompts = new AtomicLong();
+    private final AtomicLong tokensBefore = new AtomicLong();
+    private final AtomicLong tokensAfter = new AtomicLong();
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong droppedSections = new AtomicLong();
+
+    /**
+     * @param maxTokens prompt budget in tokens; 0 or less disables trimming
+     */
+    public PromptBudget(String provider, int maxTokens, TokenEstimator estimator, PipelineMetrics metrics) {
+        this.provider = provider;
+        this.maxTokens = maxTokens;
+        this.estimator = estimator;
+        this.metrics = metrics;
+        this.templateTokens = estimator.estimate(AIPromptTemplates.buildFollowUpSystemPrompt("", ""));
+    }
+
+    /**
+     * A follow-up prompt that fits the budget. {@code analysisSummary} may carry a note
+     * describing compacted turns.
+     */
+    public record FittedPrompt(String reportText, String analysisSummary, List<ChatMessage> history,
+                               int tokensBefore, int tokensAfter) {}
+
+    public FittedPrompt fit(String reportText, String analysisSummary, String question,
+                            List<ChatMessage> conversationHistory) {
+        String report = reportText != null ? reportText : "";
+        List<ChatMessage> history = conversationHistory != null ? conversationHistory : List.of();
+
+        int fixed = templateTokens + estimator.estimate(analysisSummary) + estimator.estimate(question)
+                + 2 * MESSAGE_OVERHEAD_TOKENS;
+        int reportTokens = estimator.estimate(report);
+        int historyTokens = historyTokens(history);
+        int before = fixed + reportTokens + historyTokens;
+
+        prompts.incrementAndGet();
+        tokensBefore.addAndGet(before);
+        if (maxTokens <= 0 || before <= maxTokens) {
+            tokensAfter.addAndGet(before);
+            metrics.recordPromptTokens(provider, before, before);
+            log.debug("Prompt budget ({}): {} tokens (limit {})", provider, before, maxTokens);
+            return new FittedPrompt(reportText, analysisSummary, conversationHistory, before, before);
+        }
+
+        // 1. Compact the oldest turns, keeping recent exchanges verbatim
+        List<ChatMessage> kept = new ArrayList<>(history);
+        List<ChatMessage> dropped = new ArrayList<>();
+        int minReportTokens = Math.min(reportTokens, (int) (maxTokens * MIN_REPORT_SHARE));
+        while (!kept.isEmpty()) {
+            boolean overBudget = fixed + reportTokens + historyTokens(kept) > maxTokens;
+            boolean starvesReport = maxTokens - fixed - historyTokens(kept) < minReportTokens;
+            if (!(overBudget && (kept.size() > KEEP_RECENT_MESSAGES || starvesReport))) {
+                break;
+            }
+            dropped.add(kept.remove(0));
+        }
+        String summary = analysisSummary;
+        if (!dropped.isEmpty()) {
+            summary = (analysisSummary != null ? analysisSummary : "") + compactionNote(dropped);
+            fixed += estimator.estimate(summary) - estimator.estimate(analysisSummary);
+        }
+
+        // 2. Drop the least relevant report sections
+        int reportBudget = maxTokens - fixed - historyTokens(kept);
+        int[] droppedSectionCount = new int[1];
+        if (reportTokens > reportBudget) {
+            report = selectSections(report, question, kept, Math.max(0, reportBudget), droppedSectionCount);
+            reportTokens = estimator.estimate(report);
+        }
+
+        int after = fixed + reportTokens + historyTokens(kept);
+        trimmedPrompts.incrementAndGet();
+        tokensAfter.addAndGet(after);
+        droppedMessages.addAndGet(dropped.size());
+        droppedSections.addAndGet(droppedSectionCount[0]);
+        metrics.recordPromptTokens(provider, before, after);
+        log.info("Prompt budget ({}): {} -> {} tokens (limit {}), compacted {} history messages, dropped {} report sections",
+                provider, before, after, maxTokens, dropped.size(), droppedSectionCount[0]);
+        return new FittedPrompt(report, summary, kept, before, after);
+    }
+
+    /**
+     * Whether a prompt already holding {@code usedTokens} (e.g. an Ollama context) still has
+     * room for {@code question}.
+     */
+    public boolean hasRoomFor(int usedTokens, String question) {
+        return maxTokens <= 0
+                || usedTokens + estimator.estimate(question) + MESSAGE_OVERHEAD_TOKENS <= maxTokens;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = prompts.get();
+        stats.put("maxTokens", maxTokens);
+        stats.put("charsPerToken", estimator.getCharsPerToken());
+        stats.put("prompts", count);
+        stats.put("trimmedPrompts", trimmedPrompts.get());
+        stats.put("avgTokensBefore", count == 0 ? 0.0 : (double) tokensBefore.get() / count);
+        stats.put("avgTokensAfter", count == 0 ? 0.0 : (double) tokensAfter.get() / count);
+        stats.put("droppedHistoryMessages", droppedMessages.get());
+        stats.put("droppedReportSections", droppedSections.get());
+        return stats;
+    }
+
+    private int historyTokens(List<ChatMessage> history) {
+        int tokens = 0;
+        for (ChatMessage message : history) {
+            tokens += estimator.estimate(message.getContent()) + MESSAGE_OVERHEAD_TOKENS;
+        }
+        return tokens;
+    }
+
+    private static String compactionNote(List<ChatMessage> dropped) {
+        StringBuilder note = new StringBuilder("\n\nEarlier in this conversation the patient asked:");
+        for (ChatMessage message : dropped) {
+            if (!"user".equalsIgnoreCase(message.getRole()) || message.getContent() == null) continue;
+            String q = message.getContent().strip().replaceAll("\\s+", " ");
+            if (q.length() > NOTE_QUESTION_CHARS) {
+                q = q.substring(0, NOTE_QUESTION_CHARS) + "...";
+            }
+            note.append("\n- ").append(q);
+        }
+        return note.toString();
+    }
+
+    /**
+     * Keep the report sections most relevant to the question (and the recent turns) that fit
+     * in {@code budget} tokens, preserving their original order.
+     */
+    private String selectSections(String report, String question, List<ChatMessage> recent,
+                                  int budget, int[] droppedCount) {
+        String[] sections = SECTION_BREAK.split(report.strip());
+        String separator = "\n\n";
+        if (sections.length == 1) {
+            sections = LINE_BREAK.split(report.strip());
+            separator = "\n";
+        }
+
+        Set<String> terms = new HashSet<>(terms(question));
+        for (ChatMessage message : recent) {
+            if ("user".equalsIgnoreCase(message.getRole())) terms.addAll(terms(message.getContent()));
+        }
+
+        Integer[] order = new Integer[sections.length];
+        int[] scores = new int[sections.length];
+        for (int i = 0; i < sections.length; i++) {
+            order[i] = i;
+            scores[i] = score(sections[i], terms);
+        }
+        // Highest score first; ties keep report order so headers and early results win
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Integer.compare(scores[b], scores[a]) : Integer.compare(a, b));
+
+        boolean[] keep = new boolean[sections.length];
+        int used = 0;
+        int markerTokens = estimator.estimate("[...]") + 1;
+        for (int index : order) {
+            int cost = estimator.estimate(sections[index]) + markerTokens;
+            if (used + cost <= budget) {
+                keep[index] = true;
+                used += cost;
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        boolean gap = false;
+        for (int i = 0; i < sections.length; i++) {
+            if (!keep[i]) {
+                droppedCount[0]++;
+                gap = true;
+                continue;
+            }
+            if (gap && result.length() > 0) result.append(separator).append("[...]");
+            if (result.length() > 0) result.append(separator);
+            result.append(sections[i]);
+            gap = false;
+        }
+        if (result.length() == 0 && budget > 0) {
+            // Nothing fits whole: keep the head of the most relevant section
+            String best = sections[order[0]];
+            int chars = (int) (budget * estimator.getCharsPerToken());
+            result.append(best, 0, Math.min(best.length(), chars)).append(" [...]");
+        } else if (gap) {
+            result.append(separator).append("[...]");
+        }
+        return result.toString();
+    }
+
+    private static int score(String section, Set<String> terms) {
+        String lower = section.toLowerCase(Locale.ROOT);
+        int score = 0;
+        for (String term : terms) {
+            if (lower.contains(term)) score += 2;
+        }
+        if (ABNORMAL_FLAG.matcher(section).find()) score += 1;
+        return score;
+    }
+
+    private static List<String> terms(String text) {
+        if (text == null) return List.of();
+        List<String> terms = new ArrayList<>();
+        for (String word : WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.length() >= 3 && !STOP_WORDS.contains(word)) terms.add(word);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,124 @@
+package com.patientvocate.service.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Probes every AI provider in the background and caches the result, so health checks
+ * answer instantly instead of calling (and possibly hanging on) each provider. Probes run
+ * asynchronously with a short timeout; a provider whose previous probe is still pending
+ * is skipped. Probe failures also feed the provider's circuit breaker.
+ */
+@Component
+public class ProviderHealthMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderHealthMonitor.class);
+
+    /**
+     * Result of the latest probe. {@code lastError} is kept after the provider recovers.
+     */
+    public record ProviderStatus(boolean available, long latencyMs, Instant checkedAt,
+                                 String lastError, Instant lastErrorAt) {}
+
+    private final List<AIService> services;
+    private final Duration timeout;
+    private final Map<String, ProviderStatus> statuses = new ConcurrentHashMap<>();
+    private final Set<String> probing = ConcurrentHashMap.newKeySet();
+
+    public ProviderHealthMonitor(List<AIService> services,
+                                 @Value("${ai.health.timeout-seconds:5}") long timeoutSeconds) {
+        this.services = services;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${ai.health.interval-ms:15000}")
+    public void probeAll() {
+        services.forEach(this::probe);
+    }
+
+    /**
+     * Latest probe result for a provider, or null if it has not been probed yet.
+     */
+    public ProviderStatus getStatus(String provider) {
+        return statuses.get(provider);
+    }
+
+    /**
+     * Cached health of one provider: probe result, latency, last error and circuit state.
+     * A provider counts as available if its last probe succeeded and its circuit is not open.
+     */
+    public Map<String, Object> describe(AIService service) {
+        ProviderStatus status = statuses.get(service.getProviderName());
+        CircuitBreaker breaker = service.getCircuitBreaker();
+        CircuitBreaker.State circuit = breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("available", status != null && status.available() && circuit != CircuitBreaker.State.OPEN);
+        description.put("model", service.getModelName());
+        description.put("circuit", circuit.name());
+        description.put("latencyMs", status != null ? status.latencyMs() : null);
+        description.put("checkedAt", status != null ? status.checkedAt() : null);
+        description.put("lastError", status != null ? status.lastError() : null);
+        description.put("lastErrorAt", status != null ? status.lastErrorAt() : null);
+        return description;
+    }
+
+    private void probe(AIService service) {
+        String provider = service.getProviderName();
+        if (!probing.add(provider)) {
+            return; // previous probe still pending
+        }
+        long start = System.nanoTime();
+        CompletableFuture<Void> check;
+        try {
+            check = service.probeAsync(timeout);
+        } catch (RuntimeException e) {
+            check = CompletableFuture.failedFuture(e);
+        }
+        // Backstop for probes that do not enforce the timeout themselves
+        check.orTimeout(timeout.toMillis() + 1000, TimeUnit.MILLISECONDS).whenComplete((ignored, error) -> {
+            try {
+                record(provider, Duration.ofNanos(System.nanoTime() - start).toMillis(), error);
+            } finally {
+                probing.remove(provider);
+            }
+        });
+    }
+
+    private void record(String provider, long latencyMs, Throwable error) {
+        Instant now = Instant.now();
+        ProviderStatus previous = statuses.get(provider);
+        ProviderStatus status;
+        if (error == null) {
+            status = new ProviderStatus(true, latencyMs, now,
+                    previous != null ? previous.lastError() : null, previous != null ? previous.lastErrorAt() : null);
+            if (previous != null && !previous.available()) {
+                log.info("AI provider {} is available again ({} ms)", provider, latencyMs);
+            }
+        } else {
+            Throwable cause = ProviderHttpClient.unwrap(error);
+            String message = cause instanceof TimeoutException || cause.getMessage() == null
+                    ? cause.getClass().getSimpleName() + (cause instanceof TimeoutException ? " after " + latencyMs + " ms" : "")
+                    : cause.getMessage();
+            status = new ProviderStatus(false, latencyMs, now, message, now);
+            if (previous == null || previous.available()) {
+                log.warn("AI provider {} is unavailable: {}", provider, message);
+            }
+        }
+        statuses.put(provider, status);
+    }
+}
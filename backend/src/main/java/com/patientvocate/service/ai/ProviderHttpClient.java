@@ -0,0 +1,417 @@
+package com.patientvocate.service.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking HTTP client for one AI provider, built on the JDK {@link HttpClient}
+ * (keep-alive connection pooling, HTTP/2 over TLS). No thread is parked while a
+ * request is in flight, and a per-provider concurrency cap queues excess calls
+ * without blocking the caller. A {@link CircuitBreaker} rejects calls up front while
+ * the provider is failing, and fails the queue when it opens. Streamed responses that
+ * stop producing lines for longer than the idle timeout fail as provider timeouts.
+ */
+public class ProviderHttpClient {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderHttpClient.class);
+
+    private final String provider;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final Duration streamIdleTimeout;
+    private final Map<String, String> defaultHeaders;
+    private final HttpClient client;
+    private final int maxConcurrency;
+    private final CircuitBreaker breaker;
+
+    private final ArrayDeque<Pending> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong queuedTotal = new AtomicLong();
+
+    public ProviderHttpClient(String provider, String baseUrl, Duration connectTimeout, Duration requestTimeout,
+                              Duration streamIdleTimeout, int maxConcurrency, Map<String, String> defaultHeaders,
+                              CircuitBreaker breaker) {
+        this.provider = provider;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.streamIdleTimeout = streamIdleTimeout;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.defaultHeaders = Map.copyOf(defaultHeaders);
+        this.client = HttpClient.newBuilder()
+                // HTTP/2 is negotiated via ALPN over TLS; plain-http providers (local Ollama) stay on 1.1
+                .version(this.baseUrl.startsWith("https") ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.breaker = breaker;
+        breaker.setOnOpen(this::rejectQueued);
+    }
+
+    /**
+     * POST a JSON body and return the response body.
+     */
+    public CompletableFuture<String> postJson(String path, String json) {
+        HttpRequest request = requestBuilder(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+        return send(request);
+    }
+
+    /**
+     * Health probe: GET a path with a short timeout, bypassing the concurrency limit so a
+     * provider saturated by (or stuck on) long generations is still checked promptly.
+     * The outcome feeds the circuit breaker; while it is open the probe fails immediately
+     * unless it is the half-open trial call.
+     */
+    public CompletableFuture<String> probe(String path, Duration timeout) {
+        if (!breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(unavailable());
+        }
+        HttpRequest request = requestBuilder(path).timeout(timeout).GET().build();
+        CompletableFuture<String> result = exchange(request);
+        result.whenComplete((value, error) -> recordOutcome(error));
+        return result;
+    }
+
+    /**
+     * POST a JSON body and feed the response to {@code onLine} one line at a time as it
+     * arrives (NDJSON or Server-Sent Events). If {@code onLine} throws, the exchange is
+     * aborted and the returned future fails with that exception. The request timeout covers
+     * the wait for response headers; after that, a gap of more than the stream idle timeout
+     * between lines aborts the exchange with an {@link HttpTimeoutException}.
+     */
+    public CompletableFuture<Void> postStreaming(String path, String json, String accept, Consumer<String> onLine) {
+        HttpRequest request = requestBuilder(path)
+                .header("Content-Type", "application/json")
+                .header("Accept", accept)
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+
+        return limited(() -> {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            LineSubscriber subscriber = new LineSubscriber(onLine, done, provider, streamIdleTimeout);
+            CompletableFuture<HttpResponse<Void>> exchange = client.sendAsync(request, info -> {
+                if (info.statusCode() / 100 != 2) {
+                    return HttpResponse.BodySubscribers.mapping(
+                            HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                            body -> {
+                                throw new ProviderHttpException(provider, info.statusCode(), body);
+                            });
+                }
+                return HttpResponse.BodySubscribers.fromLineSubscriber(subscriber, s -> null,
+                        StandardCharsets.UTF_8, null);
+            });
+            exchange.whenComplete((response, error) -> {
+                if (error != null) done.completeExceptionally(unwrap(error));
+                else done.complete(null);
+            });
+            // Consumer failure or caller cancellation aborts the underlying exchange
+            done.whenComplete((value, error) -> {
+                if (error != null) exchange.cancel(true);
+            });
+            return done;
+        });
+    }
+
+    public String getProvider() { return provider; }
+    public int getMaxConcurrency() { return maxConcurrency; }
+    public CircuitBreaker getCircuitBreaker() { return breaker; }
+
+    public synchronized int getInFlight() { return inFlight; }
+    public synchronized int getQueued() { return waiting.size(); }
+    public long getRequestCount() { return requests.get(); }
+    public long getFailureCount() { return failures.get(); }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("inFlight", inFlight);
+            stats.put("queued", waiting.size());
+        }
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("requests", requests.get());
+        stats.put("failures", failures.get());
+        stats.put("queuedTotal", queuedTotal.get());
+        stats.put("circuit", breaker.getStats());
+        return stats;
+    }
+
+    /**
+     * Block for a future's result, unwrapping {@link CompletionException} so callers of
+     * synchronous APIs see the original runtime exception.
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Like {@link #join}, but gives up if the calling thread is interrupted (e.g. its job was
+     * cancelled): the future is cancelled, the interrupt flag restored and a
+     * {@link CancellationException} thrown.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the provider");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Return {@code dependent}, a stage built on {@code source}, wired so that cancelling it
+     * also cancels {@code source}. Dependent stages never cancel the stage they were built on,
+     * so without this a caller giving up would leave the HTTP exchange running and holding
+     * its permit.
+     */
+    public static <T> CompletableFuture<T> linkCancellation(CompletableFuture<?> source, CompletableFuture<T> dependent) {
+        dependent.whenComplete((value, error) -> {
+            if (dependent.isCancelled()) source.cancel(true);
+        });
+        return dependent;
+    }
+
+    private HttpRequest.Builder requestBuilder(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(requestTimeout);
+        defaultHeaders.forEach(builder::header);
+        return builder;
+    }
+
+    private CompletableFuture<String> send(HttpRequest request) {
+        return limited(() -> exchange(request));
+    }
+
+    private CompletableFuture<String> exchange(HttpRequest request) {
+        CompletableFuture<HttpResponse<String>> exchange =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        return linkCancellation(exchange, exchange.thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new ProviderHttpException(provider, response.statusCode(), response.body());
+            }
+            return response.body();
+        }));
+    }
+
+    /**
+     * Run {@code call} once fewer than maxConcurrency requests are in flight. Excess calls
+     * wait in a queue; no thread blocks while they do. Fails fast while the circuit is open.
+     */
+    private <T> CompletableFuture<T> limited(Supplier<CompletableFuture<T>> call) {
+        requests.incrementAndGet();
+        if (!breaker.tryAcquire()) {
+            failures.incrementAndGet();
+            return CompletableFuture.failedFuture(unavailable());
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                // Cancelled while queued: never send it
+                release();
+                breaker.onIgnored();
+                return;
+            }
+            CompletableFuture<T> inner;
+            try {
+                inner = call.get();
+            } catch (RuntimeException e) {
+                inner = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> exchange = inner;
+            // Propagate cancellation of the caller's future to the HTTP exchange
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) exchange.cancel(true);
+            });
+            exchange.whenComplete((value, error) -> {
+                release();
+                recordOutcome(error);
+                if (error != null) {
+                    failures.incrementAndGet();
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        boolean runNow;
+        synchronized (this) {
+            runNow = inFlight < maxConcurrency;
+            if (runNow) {
+                inFlight++;
+            } else {
+                waiting.addLast(new Pending(start, result::completeExceptionally));
+                queuedTotal.incrementAndGet();
+            }
+        }
+        if (runNow) {
+            start.run();
+        } else {
+            log.debug("{} concurrency limit ({}) reached, request queued", provider, maxConcurrency);
+        }
+        return result;
+    }
+
+    /**
+     * Strip the {@link CompletionException} wrapper added by dependent stages.
+     */
+    public static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private void release() {
+        Pending next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        if (next != null) {
+            next.start().run();
+        }
+    }
+
+    private void recordOutcome(Throwable error) {
+        if (error == null) {
+            breaker.onSuccess();
+        } else if (CircuitBreaker.isProviderFailure(error)) {
+            breaker.onFailure(unwrap(error));
+        } else {
+            breaker.onIgnored();
+        }
+    }
+
+    /**
+     * Fail every queued call; they would only wait for a provider that is not answering.
+     */
+    private void rejectQueued() {
+        List<Pending> rejected;
+        synchronized (this) {
+            rejected = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        if (!rejected.isEmpty()) {
+            log.warn("{} circuit opened, rejecting {} queued requests", provider, rejected.size());
+            failures.addAndGet(rejected.size());
+            ProviderUnavailableException error = unavailable();
+            rejected.forEach(pending -> pending.reject().accept(error));
+        }
+    }
+
+    private ProviderUnavailableException unavailable() {
+        String lastError = breaker.getLastError();
+        return new ProviderUnavailableException(provider, provider + " is unavailable (circuit open, retry in "
+                + Math.max(1, breaker.getRetryIn().toSeconds()) + " s)"
+                + (lastError != null ? ": " + lastError : ""));
+    }
+
+    /**
+     * A call waiting for a concurrency slot.
+     */
+    private record Pending(Runnable start, Consumer<Throwable> reject) {}
+
+    /**
+     * Delivers response lines to a consumer. If the consumer throws, the subscription is
+     * cancelled and {@code done} fails with that exception. If no line arrives within the
+     * idle timeout, {@code done} fails with an {@link HttpTimeoutException}.
+     */
+    private static final class LineSubscriber implements Flow.Subscriber<String> {
+        private final Consumer<String> onLine;
+        private final CompletableFuture<Void> done;
+        private final String provider;
+        private final long idleNanos;
+        private volatile Flow.Subscription subscription;
+        private volatile long lastActivity;
+
+        LineSubscriber(Consumer<String> onLine, CompletableFuture<Void> done, String provider, Duration idleTimeout) {
+            this.onLine = onLine;
+            this.done = done;
+            this.provider = provider;
+            this.idleNanos = idleTimeout.toNanos();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            lastActivity = System.nanoTime();
+            scheduleIdleCheck(idleNanos);
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        private void scheduleIdleCheck(long delayNanos) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(this::checkIdle);
+        }
+
+        /**
+         * Re-arms itself for the remaining time while lines keep arriving, so the timer is
+         * effectively reset on every line without rescheduling per line.
+         */
+        private void checkIdle() {
+            if (done.isDone()) return;
+            long idle = System.nanoTime() - lastActivity;
+            if (idle < idleNanos) {
+                scheduleIdleCheck(idleNanos - idle);
+                return;
+            }
+            subscription.cancel();
+            done.completeExceptionally(new HttpTimeoutException(provider + " stream produced no data for "
+                    + TimeUnit.NANOSECONDS.toSeconds(idleNanos) + " s"));
+        }
+
+        @Override
+        public void onNext(String line) {
+            lastActivity = System.nanoTime();
+            if (done.isDone()) return;
+            try {
+                onLine.accept(line);
+            } catch (RuntimeException e) {
+                subscription.cancel();
+                done.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Surfaced through the exchange future
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.patientvocate.service.ai;
+
+/**
+ * Raised when an AI provider answers with a non-2xx HTTP status.
+ */
+public class ProviderHttpException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String provider;
+    private final int statusCode;
+    private final String responseBody;
+
+    public ProviderHttpException(String provider, int statusCode, String responseBody) {
+        super(provider + " returned HTTP " + statusCode + (responseBody != null && !responseBody.isBlank()
+                ? ": " + abbreviate(responseBody) : ""));
+        this.provider = provider;
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+
+    public String getProvider() { return provider; }
+    public int getStatusCode() { return statusCode; }
+    public String getResponseBody() { return responseBody; }
+
+    private static String abbreviate(String body) {
+        String trimmed = body.trim();
+        return trimmed.length() > 300 ? trimmed.substring(0, 300) + "..." : trimmed;
+    }
+}
@@ -0,0 +1,18 @@
+package com.patientvocate.service.ai;
+
+/**
+ * Raised without contacting the provider while its circuit breaker is open.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String provider;
+
+    public ProviderUnavailableException(String provider, String message) {
+        super(message);
+        this.provider = provider;
+    }
+
+    public String getProvider() { return provider; }
+}
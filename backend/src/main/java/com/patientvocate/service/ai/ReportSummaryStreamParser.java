@@ -0,0 +1,167 @@
+package com.patientvocate.service.ai;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.patientvocate.model.DiscussionQuestion;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.GlossaryEntry;
+import com.patientvocate.service.ReportSummaryListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental parser for a streamed ReportSummary JSON document. Text fragments are fed to
+ * Jackson's non-blocking parser as they arrive; each finding, glossary entry and discussion
+ * question is deserialized and passed to the listener as soon as its object closes, and the
+ * summary and disclaimer as soon as their strings end.
+ * <p>
+ * Anything before the first '{' (code fences, stray reasoning) and after the closing brace is
+ * ignored. Malformed input stops the parser quietly; the caller still parses the full text.
+ * Not thread-safe: feed fragments from one thread in arrival order.
+ */
+public class ReportSummaryStreamParser {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportSummaryStreamParser.class);
+
+    private final ObjectMapper objectMapper;
+    private final ReportSummaryListener listener;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean complete;
+    private boolean failed;
+    private int depth;
+    private String field;          // current top-level field name
+    private TokenBuffer element;   // tokens of the array element being read, if any
+    private int emitted;
+
+    public ReportSummaryStreamParser(ObjectMapper objectMapper, ReportSummaryListener listener) {
+        this.objectMapper = objectMapper;
+        this.listener = listener;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feed the next fragment of model output. Listener exceptions propagate to the caller.
+     */
+    public void feed(String fragment) {
+        if (complete || failed || fragment == null || fragment.isEmpty()) {
+            return;
+        }
+        if (!started) {
+            int brace = fragment.indexOf('{');
+            if (brace < 0) return;
+            fragment = fragment.substring(brace);
+            started = true;
+        }
+        byte[] bytes = fragment.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            failed = true;
+            log.debug("Streamed analysis is not valid JSON after {} parts: {}", emitted, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the top-level object has been read completely.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Number of parts passed to the listener so far.
+     */
+    public int getEmitted() {
+        return emitted;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!complete && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd() && --depth == 2) {
+                    emitElement();
+                }
+                continue;
+            }
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    depth++;
+                    if (depth == 3 && token == JsonToken.START_OBJECT && elementType(field) != null) {
+                        element = new TokenBuffer(parser);
+                        element.copyCurrentEvent(parser);
+                    }
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    if (--depth == 0) complete = true;
+                }
+                case FIELD_NAME -> {
+                    if (depth == 1) field = parser.currentName();
+                }
+                case VALUE_STRING -> {
+                    if (depth == 1) emitString(field, parser.getText());
+                }
+                default -> {}
+            }
+        }
+    }
+
+    private void emitElement() {
+        TokenBuffer buffer = element;
+        element = null;
+        Object value;
+        try (JsonParser elementParser = buffer.asParser(objectMapper)) {
+            value = objectMapper.readValue(elementParser, elementType(field));
+        } catch (IOException e) {
+            log.debug("Skipping unreadable {} element: {}", field, e.getMessage());
+            return;
+        }
+        emitted++;
+        if (value instanceof Finding finding) {
+            listener.onFinding(finding);
+        } else if (value instanceof GlossaryEntry entry) {
+            listener.onGlossaryEntry(entry);
+        } else if (value instanceof DiscussionQuestion question) {
+            listener.onDiscussionQuestion(question);
+        }
+    }
+
+    private void emitString(String name, String value) {
+        if ("summary".equals(name)) {
+            emitted++;
+            listener.onSummary(value);
+        } else if ("disclaimer".equals(name)) {
+            emitted++;
+            listener.onDisclaimer(value);
+        }
+    }
+
+    private static Class<?> elementType(String name) {
+        if (name == null) return null;
+        return switch (name) {
+            case "findings" -> Finding.class;
+            case "glossary" -> GlossaryEntry.class;
+            case "discussionQuestions" -> DiscussionQuestion.class;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.patientvocate.service.ai;
+
+/**
+ * Local approximation of a model's tokenizer, used to size prompts without a round trip
+ * to the provider. Word runs are split at a configurable characters-per-token ratio;
+ * digit runs count as 1-3 digit pieces, as in most BPE vocabularies; every other
+ * non-whitespace character counts as one token. Lab reports are number-heavy, so this
+ * tracks real token counts more closely than a flat chars/4 rule.
+ */
+public class TokenEstimator {
+
+    private final double charsPerToken;
+
+    public TokenEstimator(double charsPerToken) {
+        if (charsPerToken <= 0) {
+            throw new IllegalArgumentException("charsPerToken must be positive");
+        }
+        this.charsPerToken = charsPerToken;
+    }
+
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = 0;
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isLetter(c)) {
+                int start = i;
+                while (i < n && Character.isLetter(text.charAt(i))) i++;
+                tokens += (int) Math.ceil((i - start) / charsPerToken);
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < n && Character.isDigit(text.charAt(i))) i++;
+                tokens += (i - start + 2) / 3;
+            } else {
+                if (!Character.isWhitespace(c)) tokens++;
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    public double getCharsPerToken() {
+        return charsPerToken;
+    }
+}
@@ -0,0 +1,313 @@
+package com.patientvocate.service.batch;
+
+import com.patientvocate.dto.ReportAnalysisResponse;
+import com.patientvocate.service.AnalysisProgressListener;
+import com.patientvocate.service.ReportService;
+import com.patientvocate.service.SpooledMultipartFile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Analyzes many uploaded reports at once through a two-stage pipeline. Extraction workers
+ * (PDF text and OCR, CPU-bound) feed analysis workers (provider calls, I/O-bound) through a
+ * bounded hand-off queue, so extraction of later files overlaps analysis of earlier ones.
+ * When the provider falls behind the hand-off fills up and extraction pauses rather than
+ * piling up extracted text. Workers are shared by all batches; items are served in
+ * arrival order.
+ */
+@Service
+public class BatchAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchAnalysisService.class);
+
+    private final ReportService reportService;
+    private final int maxFiles;
+    private final long maxEntryBytes;
+    private final Path spoolDir;
+    private final BlockingQueue<Item> extractionQueue;
+    private final BlockingQueue<Item> analysisQueue;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final AtomicInteger activeBatches = new AtomicInteger();
+    private final AtomicInteger extracting = new AtomicInteger();
+    private final AtomicInteger analyzing = new AtomicInteger();
+    private final AtomicLong completedItems = new AtomicLong();
+    private final AtomicLong cancelledItems = new AtomicLong();
+
+    public BatchAnalysisService(ReportService reportService,
+                                @Value("${batch.max-files:50}") int maxFiles,
+                                @Value("${batch.max-entry-size:50MB}") DataSize maxEntrySize,
+                                @Value("${batch.extraction-threads:0}") int extractionThreads,
+                                @Value("${batch.analysis-threads:8}") int analysisThreads,
+                                @Value("${batch.queue-capacity:200}") int queueCapacity,
+                                @Value("${batch.handoff-capacity:16}") int handoffCapacity,
+                                @Value("${jobs.spool-dir:}") String spoolDir) {
+        this.reportService = reportService;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.spoolDir = spoolDir == null || spoolDir.isBlank() ? null : Path.of(spoolDir);
+        this.extractionQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.analysisQueue = new ArrayBlockingQueue<>(Math.max(1, handoffCapacity));
+
+        int extractors = extractionThreads > 0 ? extractionThreads : Runtime.getRuntime().availableProcessors();
+        int analyzers = Math.max(1, analysisThreads);
+        for (int i = 1; i <= extractors; i++) {
+            startWorker("batch-extract-" + i, extractionQueue, this::extract);
+        }
+        for (int i = 1; i <= analyzers; i++) {
+            startWorker("batch-analyze-" + i, analysisQueue, this::analyze);
+        }
+        log.info("Batch pipeline started (extraction workers: {}, analysis workers: {}, queue capacity: {}, hand-off: {})",
+                extractors, analyzers, queueCapacity, handoffCapacity);
+    }
+
+    /**
+     * Copy uploads to temp files we own, expanding zip archives into their entries
+     * (directories and hidden files are skipped).
+     *
+     * @throws IllegalArgumentException if there are no files or more than {@code batch.max-files}
+     */
+    public List<SpooledMultipartFile> spool(List<MultipartFile> uploads) throws IOException {
+        List<SpooledMultipartFile> files = new ArrayList<>();
+        try {
+            for (MultipartFile upload : uploads) {
+                if (upload.isEmpty()) continue;
+                if (isZip(upload)) {
+                    expandZip(upload, files);
+                } else {
+                    checkCount(files.size() + 1);
+                    files.add(SpooledMultipartFile.spool(upload, spoolDir));
+                }
+            }
+            if (files.isEmpty()) {
+                throw new IllegalArgumentException("No files to analyze");
+            }
+            return files;
+        } catch (IOException | RuntimeException e) {
+            files.forEach(SpooledMultipartFile::delete);
+            throw e;
+        }
+    }
+
+    /**
+     * Queue spooled files for analysis. Results are reported to {@code listener} as each
+     * item finishes; the files are deleted once processed.
+     *
+     * @throws RejectedExecutionException if the pipeline cannot take the whole batch
+     */
+    public void submit(List<SpooledMultipartFile> files, String provider, BatchListener listener) {
+        Batch batch = new Batch(provider, listener, files.size());
+        synchronized (extractionQueue) {
+            // Only submitters add to the queue, so the capacity checked here cannot shrink
+            if (extractionQueue.remainingCapacity() < files.size()) {
+                log.warn("Batch pipeline is full, rejecting batch of {} files", files.size());
+                throw new RejectedExecutionException("Batch queue is full");
+            }
+            activeBatches.incrementAndGet();
+            for (int i = 0; i < files.size(); i++) {
+                extractionQueue.add(new Item(batch, i, files.get(i)));
+            }
+        }
+        log.info("Queued batch of {} files (provider: {})", files.size(), provider);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeBatches", activeBatches.get());
+        stats.put("extractionQueued", extractionQueue.size());
+        stats.put("extracting", extracting.get());
+        stats.put("handoffQueued", analysisQueue.size());
+        stats.put("analyzing", analyzing.get());
+        stats.put("completedItems", completedItems.get());
+        stats.put("cancelledItems", cancelledItems.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void extract(Item item) throws InterruptedException {
+        if (item.batch.cancelled.get()) {
+            skip(item);
+            return;
+        }
+        extracting.incrementAndGet();
+        try {
+            item.prepared = reportService.prepareFile(item.file, item.batch.provider, progress(item));
+        } finally {
+            extracting.decrementAndGet();
+        }
+        // Blocks while the analysis workers are behind
+        analysisQueue.put(item);
+    }
+
+    private void analyze(Item item) {
+        if (item.batch.cancelled.get()) {
+            skip(item);
+            return;
+        }
+        analyzing.incrementAndGet();
+        ReportAnalysisResponse response;
+        try {
+            response = reportService.analyzePrepared(item.prepared, item.batch.provider, progress(item), null);
+        } finally {
+            analyzing.decrementAndGet();
+            item.file.delete();
+        }
+        completedItems.incrementAndGet();
+        Batch batch = item.batch;
+        if (response.isSuccess()) batch.succeeded.incrementAndGet();
+        else batch.failed.incrementAndGet();
+        notify(batch, listener -> listener.onResult(item.index, item.fileName(), response));
+        finished(batch);
+    }
+
+    private void skip(Item item) {
+        item.file.delete();
+        cancelledItems.incrementAndGet();
+        finished(item.batch);
+    }
+
+    private void finished(Batch batch) {
+        if (batch.remaining.decrementAndGet() > 0) return;
+        activeBatches.decrementAndGet();
+        long elapsed = System.currentTimeMillis() - batch.startedAt;
+        log.info("Batch finished in {} ms: {} succeeded, {} failed{}", elapsed, batch.succeeded.get(),
+                batch.failed.get(), batch.cancelled.get() ? " (cancelled)" : "");
+        notify(batch, listener -> listener.onComplete(batch.succeeded.get(), batch.failed.get(), elapsed));
+    }
+
+    /**
+     * Forward stage changes; once the listener has failed, abort the item's pipeline.
+     */
+    private AnalysisProgressListener progress(Item item) {
+        return stage -> {
+            if (item.batch.cancelled.get()) {
+                throw new CancellationException("Batch was cancelled");
+            }
+            notify(item.batch, listener -> listener.onStage(item.index, item.fileName(), stage));
+        };
+    }
+
+    private void notify(Batch batch, Consumer<BatchListener> event) {
+        if (batch.cancelled.get()) return;
+        try {
+            event.accept(batch.listener);
+        } catch (RuntimeException e) {
+            if (batch.cancelled.compareAndSet(false, true)) {
+                log.warn("Batch listener failed, cancelling the rest of the batch: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void startWorker(String name, BlockingQueue<Item> queue, Stage stage) {
+        Thread worker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    stage.run(queue.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    log.error("Batch worker {} failed on an item", name, e);
+                }
+            }
+        }, name);
+        worker.setDaemon(true);
+        worker.start();
+        workers.add(worker);
+    }
+
+    private void expandZip(MultipartFile upload, List<SpooledMultipartFile> files) throws IOException {
+        try (InputStream in = upload.getInputStream(); ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String name = entry.getName();
+                String baseName = name.substring(name.lastIndexOf('/') + 1);
+                if (entry.isDirectory() || baseName.isEmpty() || baseName.startsWith(".")
+                        || name.startsWith("__MACOSX/")) {
+                    continue;
+                }
+                checkCount(files.size() + 1);
+                files.add(SpooledMultipartFile.spool(zip, baseName, spoolDir, maxEntryBytes));
+            }
+        }
+    }
+
+    private void checkCount(int count) {
+        if (count > maxFiles) {
+            throw new IllegalArgumentException("A batch can contain at most " + maxFiles + " files");
+        }
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String contentType = file.getContentType();
+        String filename = file.getOriginalFilename();
+        return (contentType != null && (contentType.equals("application/zip")
+                        || contentType.equals("application/x-zip-compressed")))
+                || (filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".zip"));
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run(Item item) throws InterruptedException;
+    }
+
+    private static final class Batch {
+        final String provider;
+        final BatchListener listener;
+        final AtomicInteger remaining;
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final long startedAt = System.currentTimeMillis();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Batch(String provider, BatchListener listener, int size) {
+            this.provider = provider;
+            this.listener = listener;
+            this.remaining = new AtomicInteger(size);
+        }
+    }
+
+    private static final class Item {
+        final Batch batch;
+        final int index;
+        final SpooledMultipartFile file;
+        ReportService.PreparedReport prepared;
+
+        Item(Batch batch, int index, SpooledMultipartFile file) {
+            this.batch = batch;
+            this.index = index;
+            this.file = file;
+        }
+
+        String fileName() {
+            return file.getOriginalFilename();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.patientvocate.service.batch;
+
+import com.patientvocate.dto.ReportAnalysisResponse;
+import com.patientvocate.service.AnalysisStage;
+
+/**
+ * Receives progress of a batch from the pipeline's worker threads. Calls for different
+ * items may arrive concurrently and in any order. Implementations may throw a runtime
+ * exception (e.g. when the client has gone away) to cancel the rest of the batch.
+ */
+public interface BatchListener {
+
+    /**
+     * Called when item {@code index} enters a new stage.
+     */
+    void onStage(int index, String fileName, AnalysisStage stage);
+
+    /**
+     * Called once per item with its analysis result (or error response).
+     */
+    void onResult(int index, String fileName, ReportAnalysisResponse response);
+
+    /**
+     * Called once, after the last item's result.
+     */
+    void onComplete(int succeeded, int failed, long elapsedMillis);
+}
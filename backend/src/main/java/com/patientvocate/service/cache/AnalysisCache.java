@@ -0,0 +1,72 @@
+package com.patientvocate.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patientvocate.model.ReportSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of completed report analyses.
+ * Keyed by a hash of the normalized report text, provider and model name.
+ */
+@Component
+public class AnalysisCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisCache.class);
+
+    private final boolean enabled;
+    private final TieredCache<ReportSummary> cache;
+
+    public AnalysisCache(ObjectMapper objectMapper,
+                         @Value("${cache.analysis.enabled:true}") boolean enabled,
+                         @Value("${cache.analysis.max-entries:500}") int maxEntries,
+                         @Value("${cache.analysis.ttl-minutes:1440}") long ttlMinutes,
+                         @Value("${cache.analysis.disk-path:}") String diskPath,
+                         @Value("${cache.analysis.max-disk-entries:10000}") int maxDiskEntries) {
+        this.enabled = enabled;
+        this.cache = new TieredCache<>("analysis", maxEntries, Duration.ofMinutes(ttlMinutes),
+                diskPath == null || diskPath.isBlank() ? null : Path.of(diskPath), maxDiskEntries,
+                objectMapper, ReportSummary.class);
+        log.info("Analysis cache {} (max entries: {}, ttl: {} min, disk: {})",
+                enabled ? "enabled" : "disabled", maxEntries, ttlMinutes, cache.isDiskEnabled());
+    }
+
+    /**
+     * Build the cache key for a report analyzed by a given provider/model.
+     */
+    public String key(String reportText, String provider, String model) {
+        return ContentHash.sha256Hex(ContentHash.normalizeText(reportText), provider, model);
+    }
+
+    public ReportSummary get(String key) {
+        if (!enabled) return null;
+        return cache.get(key);
+    }
+
+    /**
+     * Store a summary. Fallback summaries are never cached.
+     */
+    public void put(String key, ReportSummary summary) {
+        if (!enabled || summary == null || summary.isFallback()) return;
+        cache.put(key, summary);
+    }
+
+    /**
+     * Drop expired entries and trim the disk tier.
+     */
+    @Scheduled(fixedDelayString = "${cache.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        cache.purgeExpired();
+    }
+
+    public Map<String, Object> getStats() {
+        return cache.getStats();
+    }
+}
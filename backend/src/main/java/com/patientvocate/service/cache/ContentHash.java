@@ -0,0 +1,81 @@
+package com.patientvocate.service.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 helpers used to build content-addressed cache keys.
+ */
+public final class ContentHash {
+
+    private ContentHash() {}
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Hash a sequence of string parts, separated so that ("ab", "c") and ("a", "bc") differ.
+     */
+    public static String sha256Hex(String... parts) {
+        MessageDigest digest = newDigest();
+        for (String part : parts) {
+            digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hash the full contents of a stream, prefixed by {@code parts} (see {@link #sha256Hex(String...)}).
+     */
+    public static String sha256Hex(InputStream in, String... parts) throws IOException {
+        MessageDigest digest = newDigest();
+        for (String part : parts) {
+            digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Normalize report text so that cosmetic differences (line endings, runs of
+     * whitespace, leading/trailing blanks) map to the same key.
+     */
+    public static String normalizeText(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        boolean pendingNewline = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                pendingNewline = true;
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+            } else {
+                if (sb.length() > 0) {
+                    if (pendingNewline) sb.append('\n');
+                    else if (pendingSpace) sb.append(' ');
+                }
+                pendingSpace = false;
+                pendingNewline = false;
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
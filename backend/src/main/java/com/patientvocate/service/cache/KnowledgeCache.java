@@ -0,0 +1,349 @@
+package com.patientvocate.service.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.GlossaryEntry;
+import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.extract.LabValueExtractor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Shared, report-independent knowledge: a general explanation per lab test and a definition
+ * per glossary term. Reports reuse these instead of having the model regenerate them, so the
+ * model is only asked about tests and terms it has not described before.
+ * <p>
+ * Entries come from an optional seed resource and from model responses; learned entries can
+ * be persisted to a local file and are reloaded on startup.
+ */
+@Component
+public class KnowledgeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(KnowledgeCache.class);
+
+    /** Addresses the patient, so it is about their result rather than the test. */
+    private static final Pattern SECOND_PERSON = Pattern.compile(
+            "\\b(?:you|your|yours|yourself)\\b", Pattern.CASE_INSENSITIVE);
+
+    /** States where a result falls ("is slightly elevated", "within the normal range", "this value"). */
+    private static final Pattern RESULT_STATUS = Pattern.compile(
+            "\\b(?:is|are|was|were|looks?|appears?|seems?|came back|remains?)\\s+"
+                    + "(?:(?:a\\s+)?(?:bit|little|slightly|mildly|moderately|very|quite|somewhat|significantly)\\s+)?"
+                    + "(?:high|higher|low|lower|elevated|raised|reduced|decreased|increased|normal|abnormal"
+                    + "|borderline|within|above|below|outside|out of range|in range|flagged)\\b"
+                    + "|\\b(?:normal|reference) range\\b"
+                    + "|\\bthis (?:result|value|reading|level|number)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final String seedLocation;
+    private final Path persistFile;
+
+    private final Map<String, String> explanations = new ConcurrentHashMap<>();
+    private final Map<String, GlossaryEntry> terms = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private final AtomicLong testHits = new AtomicLong();
+    private final AtomicLong testMisses = new AtomicLong();
+    private final AtomicLong termHits = new AtomicLong();
+    private final AtomicLong learned = new AtomicLong();
+
+    public KnowledgeCache(ObjectMapper objectMapper, ResourceLoader resourceLoader,
+                          @Value("${cache.knowledge.enabled:true}") boolean enabled,
+                          @Value("${cache.knowledge.max-entries:5000}") int maxEntries,
+                          @Value("${cache.knowledge.seed:classpath:knowledge-seed.json}") String seedLocation,
+                          @Value("${cache.knowledge.file:}") String persistFile) {
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.seedLocation = seedLocation;
+        this.persistFile = persistFile == null || persistFile.isBlank() ? null : Path.of(persistFile);
+    }
+
+    /**
+     * Cached knowledge relevant to one report.
+     *
+     * @param explanations general explanations keyed by normalized test name
+     * @param glossary     cached definitions for terms that occur in the report text
+     */
+    public record Lookup(Map<String, String> explanations, List<GlossaryEntry> glossary) {
+
+        public static final Lookup EMPTY = new Lookup(Map.of(), List.of());
+
+        /** Test names (as extracted) that already have an explanation. */
+        public Set<String> knownTests(List<Finding> findings) {
+            Set<String> names = new LinkedHashSet<>();
+            for (Finding finding : findings) {
+                if (explanations.containsKey(LabValueExtractor.normalizeName(finding.getTestName()))) {
+                    names.add(finding.getTestName());
+                }
+            }
+            return names;
+        }
+
+        public Set<String> knownTerms() {
+            Set<String> names = new LinkedHashSet<>();
+            glossary.forEach(entry -> names.add(entry.getTerm()));
+            return names;
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        if (!enabled) {
+            log.info("Knowledge cache disabled");
+            return;
+        }
+        if (seedLocation != null && !seedLocation.isBlank()) {
+            Resource seed = resourceLoader.getResource(seedLocation);
+            if (seed.exists()) {
+                try (InputStream in = seed.getInputStream()) {
+                    merge(objectMapper.readValue(in, KnowledgeFile.class));
+                } catch (IOException e) {
+                    log.warn("Could not read knowledge seed {}: {}", seedLocation, e.getMessage());
+                }
+            }
+        }
+        if (persistFile != null && Files.exists(persistFile)) {
+            try {
+                merge(objectMapper.readValue(persistFile.toFile(), KnowledgeFile.class));
+            } catch (IOException e) {
+                log.warn("Could not read knowledge file {}: {}", persistFile, e.getMessage());
+            }
+        }
+        log.info("Knowledge cache loaded: {} test explanations, {} glossary terms", explanations.size(), terms.size());
+    }
+
+    /**
+     * Collect cached explanations for the extracted findings and cached definitions for
+     * glossary terms appearing in the report text.
+     */
+    public Lookup lookup(List<Finding> findings, String reportText) {
+        if (!enabled) {
+            return Lookup.EMPTY;
+        }
+        Map<String, String> found = new HashMap<>();
+        for (Finding finding : findings) {
+            String key = LabValueExtractor.normalizeName(finding.getTestName());
+            String explanation = explanations.get(key);
+            if (explanation != null) {
+                found.put(key, explanation);
+                testHits.incrementAndGet();
+            } else {
+                testMisses.incrementAndGet();
+            }
+        }
+
+        List<GlossaryEntry> glossary = new ArrayList<>();
+        String text = reportText != null ? reportText.toLowerCase(Locale.ROOT) : "";
+        for (Map.Entry<String, GlossaryEntry> entry : terms.entrySet()) {
+            if (containsWord(text, entry.getKey())) {
+                glossary.add(entry.getValue());
+            }
+        }
+        termHits.addAndGet(glossary.size());
+        return new Lookup(found, glossary);
+    }
+
+    /**
+     * Remember general explanations the model gave for extracted tests that were not cached,
+     * and any new glossary definitions.
+     */
+    public void learn(List<Finding> extracted, ReportSummary explained, Lookup lookup) {
+        if (!enabled || explained == null || explained.isFallback()) {
+            return;
+        }
+        Map<String, Finding> requested = new HashMap<>();
+        for (Finding finding : extracted) {
+            String key = LabValueExtractor.normalizeName(finding.getTestName());
+            if (!lookup.explanations().containsKey(key)) requested.put(key, finding);
+        }
+        if (explained.getFindings() != null) {
+            for (Finding finding : explained.getFindings()) {
+                String key = LabValueExtractor.normalizeName(finding.getTestName());
+                Finding source = requested.get(key);
+                if (source != null && isGeneral(finding.getExplanation(), source)) {
+                    store(explanations, key, finding.getExplanation().strip());
+                }
+            }
+        }
+        if (explained.getGlossary() != null) {
+            for (GlossaryEntry entry : explained.getGlossary()) {
+                if (entry.getTerm() != null && entry.getDefinition() != null && !entry.getDefinition().isBlank()) {
+                    store(terms, normalizeTerm(entry.getTerm()), new GlossaryEntry(entry.getTerm().strip(), entry.getDefinition().strip()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Add cached explanations (as name-only findings) and cached glossary entries to a model
+     * response. Cached explanations replace anything the model returned for those tests, since
+     * it was not asked about them.
+     */
+    public ReportSummary fill(ReportSummary explained, List<Finding> extracted, Lookup lookup) {
+        if (lookup.explanations().isEmpty() && lookup.glossary().isEmpty()) {
+            return explained;
+        }
+        List<Finding> findings = new ArrayList<>();
+        if (explained.getFindings() != null) {
+            for (Finding finding : explained.getFindings()) {
+                if (!lookup.explanations().containsKey(LabValueExtractor.normalizeName(finding.getTestName()))) {
+                    findings.add(finding);
+                }
+            }
+        }
+        for (Finding finding : extracted) {
+            String explanation = lookup.explanations().get(LabValueExtractor.normalizeName(finding.getTestName()));
+            if (explanation != null) {
+                findings.add(new Finding(finding.getTestName(), null, null, null, explanation));
+            }
+        }
+
+        List<GlossaryEntry> glossary = new ArrayList<>(explained.getGlossary() != null ? explained.getGlossary() : List.of());
+        Set<String> defined = new HashSet<>();
+        glossary.forEach(g -> defined.add(normalizeTerm(g.getTerm())));
+        for (GlossaryEntry entry : lookup.glossary()) {
+            if (defined.add(normalizeTerm(entry.getTerm()))) glossary.add(entry);
+        }
+
+        ReportSummary filled = new ReportSummary(explained.getSummary(), findings, glossary,
+                explained.getDiscussionQuestions(), explained.getDisclaimer());
+        filled.setFallback(explained.isFallback());
+        return filled;
+    }
+
+    @Scheduled(fixedDelayString = "${cache.knowledge.flush-interval-ms:60000}")
+    public void flush() {
+        if (persistFile == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        KnowledgeFile file = new KnowledgeFile();
+        explanations.forEach((name, explanation) -> file.tests.add(new TestEntry(List.of(name), explanation)));
+        file.terms.addAll(terms.values());
+        try {
+            if (persistFile.getParent() != null) Files.createDirectories(persistFile.getParent());
+            Path tmp = persistFile.resolveSibling(persistFile.getFileName() + ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), file);
+            Files.move(tmp, persistFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Could not write knowledge file {}: {}", persistFile, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("tests", explanations.size());
+        stats.put("terms", terms.size());
+        stats.put("testHits", testHits.get());
+        stats.put("testMisses", testMisses.get());
+        stats.put("termHits", termHits.get());
+        stats.put("learned", learned.get());
+        return stats;
+    }
+
+    private <V> void store(Map<String, V> map, String key, V value) {
+        if (key.isEmpty() || explanations.size() + terms.size() >= maxEntries) {
+            return;
+        }
+        if (map.putIfAbsent(key, value) == null) {
+            learned.incrementAndGet();
+            dirty.set(true);
+        }
+    }
+
+    private void merge(KnowledgeFile file) {
+        for (TestEntry test : file.tests) {
+            if (test.explanation == null || test.names == null) continue;
+            for (String name : test.names) {
+                explanations.putIfAbsent(LabValueExtractor.normalizeName(name), test.explanation);
+            }
+        }
+        for (GlossaryEntry term : file.terms) {
+            if (term.getTerm() != null && term.getDefinition() != null) {
+                terms.putIfAbsent(normalizeTerm(term.getTerm()), term);
+            }
+        }
+    }
+
+    /**
+     * An explanation is only reusable if it describes the test, not this patient's result:
+     * it must not quote the value, address the reader or say where the result falls.
+     */
+    private static boolean isGeneral(String explanation, Finding source) {
+        if (explanation == null || explanation.isBlank()) return false;
+        if (SECOND_PERSON.matcher(explanation).find() || RESULT_STATUS.matcher(explanation).find()) return false;
+        String value = source.getValue() != null
+                ? source.getValue().replaceAll("^[<>=≤≥]+", "").replaceAll("[^0-9.].*$", "") : "";
+        return value.isEmpty() || !explanation.contains(value);
+    }
+
+    private static String normalizeTerm(String term) {
+        return term == null ? "" : term.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static boolean containsWord(String text, String word) {
+        int from = 0;
+        while (true) {
+            int i = text.indexOf(word, from);
+            if (i < 0) return false;
+            int end = i + word.length();
+            boolean startOk = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            boolean endOk = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+            if (startOk && endOk) return true;
+            from = i + 1;
+        }
+    }
+
+    /**
+     * On-disk format for the seed and persisted knowledge.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class KnowledgeFile {
+        public List<TestEntry> tests = new ArrayList<>();
+        public List<GlossaryEntry> terms = new ArrayList<>();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class TestEntry {
+        public List<String> names;
+        public String explanation;
+
+        public TestEntry() {}
+
+        public TestEntry(List<String> names, String explanation) {
+            this.names = names;
+            this.explanation = explanation;
+        }
+    }
+}
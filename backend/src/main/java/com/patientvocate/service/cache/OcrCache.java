@@ -0,0 +1,286 @@
+package com.patientvocate.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of OCR text per page image, so a re-uploaded report skips Tesseract.
+ * Keyed by a hash of the decoded grayscale pixels (not the file bytes), so the same image
+ * saved with different metadata or container still matches. With perceptual matching
+ * enabled, a page that misses exactly is also compared against recent pages by a 256-bit
+ * difference hash. The hash is too coarse to see a changed digit, so a close candidate is
+ * only used if a 128x160 thumbnail of it matches the page cell for cell within a few levels
+ * of brightness. That confirms re-encoded copies (JPEG recompression, a different container)
+ * but not resized ones, which differ as much as a changed value does. The perceptual index
+ * (about 20 KB per page) is kept in memory only.
+ */
+@Component
+public class OcrCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrCache.class);
+
+    private static final int HASH_ROWS = 16;
+    private static final int HASH_COLS = HASH_ROWS + 1;
+    private static final double MAX_ASPECT_DIFFERENCE = 0.02;
+    private static final int THUMBNAIL_ROWS = 160;
+    private static final int THUMBNAIL_COLS = 128;
+
+    /**
+     * Cached text of one page, the pass that produced it and its mean word confidence.
+     */
+    public record Entry(String text, String pass, int confidence) {}
+
+    /**
+     * Identity of one page image: the exact cache key plus, when perceptual matching is
+     * enabled, its difference hash, aspect ratio and confirmation thumbnail.
+     */
+    public record Fingerprint(String key, String language, long[] bits, double aspect, byte[] thumbnail) {}
+
+    private record Indexed(String language, long[] bits, double aspect, byte[] thumbnail) {}
+
+    private final boolean enabled;
+    private final boolean perceptual;
+    private final int maxDistance;
+    private final int maxPixelDifference;
+    private final TieredCache<Entry> cache;
+    private final LinkedHashMap<String, Indexed> index;
+
+    private final AtomicLong perceptualHits = new AtomicLong();
+    private final AtomicLong perceptualRejects = new AtomicLong();
+
+    public OcrCache(ObjectMapper objectMapper,
+                    @Value("${cache.ocr.enabled:true}") boolean enabled,
+                    @Value("${cache.ocr.max-entries:200}") int maxEntries,
+                    @Value("${cache.ocr.ttl-minutes:1440}") long ttlMinutes,
+                    @Value("${cache.ocr.disk-path:}") String diskPath,
+                    @Value("${cache.ocr.max-disk-entries:5000}") int maxDiskEntries,
+                    @Value("${cache.ocr.perceptual.enabled:false}") boolean perceptual,
+                    @Value("${cache.ocr.perceptual.max-distance:6}") int maxDistance,
+                    @Value("${cache.ocr.perceptual.max-pixel-difference:12}") int maxPixelDifference) {
+        this.enabled = enabled;
+        this.perceptual = enabled && perceptual;
+        this.maxDistance = Math.max(0, maxDistance);
+        this.maxPixelDifference = Math.max(0, maxPixelDifference);
+        this.cache = new TieredCache<>("ocr", maxEntries, Duration.ofMinutes(ttlMinutes),
+                diskPath == null || diskPath.isBlank() ? null : Path.of(diskPath), maxDiskEntries,
+                objectMapper, Entry.class);
+        int indexSize = Math.max(1, maxEntries);
+        this.index = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Indexed> eldest) {
+                return size() > indexSize;
+            }
+        };
+        log.info("OCR cache {} (max entries: {}, ttl: {} min, disk: {}, perceptual: {})",
+                enabled ? "enabled" : "disabled", maxEntries, ttlMinutes, cache.isDiskEnabled(),
+                this.perceptual ? "max distance " + this.maxDistance
+                        + ", max pixel difference " + this.maxPixelDifference : "off");
+    }
+
+    /**
+     * Fingerprint a grayscale page image (TYPE_BYTE_GRAY) for a given OCR language.
+     *
+     * @return null if the cache is disabled
+     */
+    public Fingerprint fingerprint(BufferedImage gray, String language) {
+        if (!enabled) return null;
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update(language.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(ByteBuffer.allocate(8).putInt(width).putInt(height).array());
+        digest.update(pixels, 0, width * height);
+        String key = HexFormat.of().formatHex(digest.digest());
+
+        if (!perceptual) return new Fingerprint(key, language, null, 0, null);
+        return new Fingerprint(key, language, differenceHash(pixels, width, height), (double) width / height,
+                thumbnail(pixels, width, height));
+    }
+
+    /**
+     * Look up a page by exact key, then (if enabled) by perceptual similarity.
+     *
+     * @return the cached entry, or null on a miss
+     */
+    public Entry get(Fingerprint fingerprint) {
+        if (fingerprint == null) return null;
+        Entry exact = cache.get(fingerprint.key());
+        if (exact != null || fingerprint.bits() == null) return exact;
+
+        String nearest = nearest(fingerprint);
+        if (nearest == null) return null;
+        Entry similar = cache.get(nearest);
+        if (similar == null) {
+            synchronized (index) {
+                index.remove(nearest);
+            }
+            return null;
+        }
+        perceptualHits.incrementAndGet();
+        return similar;
+    }
+
+    /**
+     * Store the text recognized for a page. Blank text is never cached.
+     */
+    public void put(Fingerprint fingerprint, Entry entry) {
+        if (fingerprint == null || entry == null || entry.text() == null || entry.text().isBlank()) return;
+        cache.put(fingerprint.key(), entry);
+        if (fingerprint.bits() != null) {
+            synchronized (index) {
+                index.put(fingerprint.key(), new Indexed(fingerprint.language(), fingerprint.bits(),
+                        fingerprint.aspect(), fingerprint.thumbnail()));
+            }
+        }
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Drop expired entries and trim the disk tier.
+     */
+    @Scheduled(fixedDelayString = "${cache.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        cache.purgeExpired();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(cache.getStats());
+        stats.put("enabled", enabled);
+        stats.put("perceptual", perceptual);
+        stats.put("perceptualHits", perceptualHits.get());
+        stats.put("perceptualRejects", perceptualRejects.get());
+        synchronized (index) {
+            stats.put("perceptualIndexSize", index.size());
+        }
+        return stats;
+    }
+
+    /**
+     * The closest indexed page within the allowed Hamming distance and with the same aspect
+     * ratio whose thumbnail confirms the match, or null.
+     */
+    private String nearest(Fingerprint fingerprint) {
+        String best = null;
+        int bestDistance = maxDistance + 1;
+        synchronized (index) {
+            for (Map.Entry<String, Indexed> candidate : index.entrySet()) {
+                Indexed indexed = candidate.getValue();
+                if (!indexed.language().equals(fingerprint.language())) continue;
+                if (Math.abs(indexed.aspect() - fingerprint.aspect()) > MAX_ASPECT_DIFFERENCE * fingerprint.aspect()) {
+                    continue;
+                }
+                int distance = distance(indexed.bits(), fingerprint.bits());
+                if (distance >= bestDistance) continue;
+                if (maxDifference(indexed.thumbnail(), fingerprint.thumbnail()) > maxPixelDifference) {
+                    perceptualRejects.incrementAndGet();
+                    continue;
+                }
+                best = candidate.getKey();
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Difference hash: average brightness over a 17x16 grid, one bit per horizontally
+     * adjacent pair of cells. Averaging whole cells makes it insensitive to resizing and
+     * compression noise.
+     */
+    static long[] differenceHash(byte[] pixels, int width, int height) {
+        double[][] cells = cellMeans(pixels, width, height, HASH_ROWS, HASH_COLS);
+        long[] bits = new long[HASH_ROWS * HASH_ROWS / 64];
+        for (int r = 0; r < HASH_ROWS; r++) {
+            for (int c = 0; c < HASH_ROWS; c++) {
+                if (cells[r][c] < cells[r][c + 1]) {
+                    int bit = r * HASH_ROWS + c;
+                    bits[bit >> 6] |= 1L << (bit & 63);
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Average brightness over a 128x160 grid. A changed digit on a page of the same template
+     * moves at least one cell by far more than recompression does.
+     */
+    static byte[] thumbnail(byte[] pixels, int width, int height) {
+        double[][] cells = cellMeans(pixels, width, height, THUMBNAIL_ROWS, THUMBNAIL_COLS);
+        byte[] thumbnail = new byte[THUMBNAIL_ROWS * THUMBNAIL_COLS];
+        for (int r = 0; r < THUMBNAIL_ROWS; r++) {
+            for (int c = 0; c < THUMBNAIL_COLS; c++) {
+                thumbnail[r * THUMBNAIL_COLS + c] = (byte) Math.round(cells[r][c]);
+            }
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Mean brightness of each cell when the image is divided into a rows x cols grid.
+     * Cell areas differ by at most one row/column, so averages are comparable across cells.
+     */
+    private static double[][] cellMeans(byte[] pixels, int width, int height, int rows, int cols) {
+        long[][] sums = new long[rows][cols];
+        int[] column = new int[width];
+        int[] cellWidth = new int[cols];
+        for (int x = 0; x < width; x++) {
+            column[x] = (int) ((long) x * cols / width);
+            cellWidth[column[x]]++;
+        }
+        int[] cellHeight = new int[rows];
+        for (int y = 0; y < height; y++) {
+            int r = (int) ((long) y * rows / height);
+            cellHeight[r]++;
+            long[] row = sums[r];
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                row[column[x]] += pixels[offset + x] & 0xff;
+            }
+        }
+
+        double[][] means = new double[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                means[r][c] = (double) sums[r][c] / Math.max(1, cellWidth[c] * cellHeight[r]);
+            }
+        }
+        return means;
+    }
+
+    private static int maxDifference(byte[] a, byte[] b) {
+        int max = 0;
+        for (int i = 0; i < a.length; i++) {
+            max = Math.max(max, Math.abs((a[i] & 0xff) - (b[i] & 0xff)));
+        }
+        return max;
+    }
+
+    private static int distance(long[] a, long[] b) {
+        int distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            distance += Long.bitCount(a[i] ^ b[i]);
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,92 @@
+package com.patientvocate.service.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller (the leader) does the work,
+ * callers arriving while it runs wait for and share its result or exception. Nothing is kept
+ * once the leader finishes, so this complements rather than replaces a result cache.
+ * If the leader is cancelled, a waiting caller takes over instead of failing with it.
+ */
+public class SingleFlight<V> {
+
+    /**
+     * @param shared true if the value was computed by another caller
+     */
+    public record Result<V>(V value, boolean shared) {}
+
+    private final boolean enabled;
+    private final Map<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong takeovers = new AtomicLong();
+
+    public SingleFlight(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Run {@code work} for {@code key}, or wait for the identical call already running.
+     * A null key (or a disabled instance) always runs the work directly.
+     *
+     * @throws CancellationException if the calling thread is interrupted while waiting
+     */
+    public Result<V> execute(String key, Supplier<V> work) {
+        if (!enabled || key == null) {
+            return new Result<>(work.get(), false);
+        }
+        while (true) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                return lead(key, mine, work);
+            }
+            try {
+                V value = running.get();
+                coalesced.incrementAndGet();
+                return new Result<>(value, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for an identical request");
+            } catch (CancellationException e) {
+                takeovers.incrementAndGet(); // the leader was cancelled, not us: try again
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    private Result<V> lead(String key, CompletableFuture<V> mine, Supplier<V> work) {
+        leaders.incrementAndGet();
+        try {
+            V value = work.get();
+            mine.complete(value);
+            return new Result<>(value, false);
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inFlight", inFlight.size());
+        stats.put("executed", leaders.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("takeovers", takeovers.get());
+        return stats;
+    }
+}
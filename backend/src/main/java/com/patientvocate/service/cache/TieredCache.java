@@ -0,0 +1,247 @@
+package com.patientvocate.service.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier key/value cache: a bounded in-heap LRU with TTL, backed by an
+ * optional on-disk tier (one JSON file per key) that survives restarts.
+ * Keys must be filesystem-safe (e.g. hex digests). Expired entries are dropped when read
+ * and by {@link #purgeExpired()}, which also caps the disk tier's entry count.
+ */
+public class TieredCache<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredCache.class);
+
+    private final String name;
+    private final int maxEntries;
+    private final int maxDiskEntries;
+    private final long ttlMillis;
+    private final Path diskDir;
+    private final ObjectMapper objectMapper;
+    private final JavaType valueType;
+    private final LinkedHashMap<String, Entry<V>> memory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    public TieredCache(String name, int maxEntries, Duration ttl, Path diskDir, int maxDiskEntries,
+                       ObjectMapper objectMapper, Class<V> valueType) {
+        this.name = name;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxDiskEntries = Math.max(1, maxDiskEntries);
+        this.ttlMillis = ttl.toMillis();
+        this.objectMapper = objectMapper;
+        this.valueType = objectMapper.constructType(valueType);
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > TieredCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.diskDir = initDiskDir(diskDir);
+    }
+
+    /**
+     * Look up a value, checking memory first and then the disk tier.
+     *
+     * @return the cached value, or null if absent or expired
+     */
+    public V get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Entry<V> entry = memory.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                memory.remove(key);
+                expirations.incrementAndGet();
+            }
+        }
+
+        V fromDisk = readFromDisk(key, now);
+        if (fromDisk != null) {
+            diskHits.incrementAndGet();
+            synchronized (memory) {
+                memory.put(key, new Entry<>(fromDisk, now + ttlMillis));
+            }
+            return fromDisk;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a value in memory and, if configured, on disk.
+     */
+    public void put(String key, V value) {
+        if (value == null) return;
+        synchronized (memory) {
+            memory.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        }
+        writeToDisk(key, value);
+    }
+
+    /**
+     * Drop expired entries from both tiers, then the oldest disk entries beyond the
+     * disk tier's entry limit.
+     */
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Iterator<Entry<V>> it = memory.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().expiresAt <= now) {
+                    it.remove();
+                    expirations.incrementAndGet();
+                }
+            }
+        }
+        if (diskDir != null) {
+            purgeDisk(now);
+        }
+    }
+
+    private void purgeDisk(long now) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(diskDir)) {
+            files = listing.filter(f -> f.getFileName().toString().endsWith(".json")).toList();
+        } catch (IOException e) {
+            log.warn("[{}] Failed to list disk tier: {}", name, e.getMessage());
+            return;
+        }
+
+        List<Map.Entry<Path, Long>> live = new ArrayList<>(files.size());
+        for (Path file : files) {
+            try {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                if (modified + ttlMillis <= now) {
+                    if (Files.deleteIfExists(file)) expirations.incrementAndGet();
+                } else {
+                    live.add(Map.entry(file, modified));
+                }
+            } catch (IOException e) {
+                // Deleted concurrently, or unreadable: skip it this round
+            }
+        }
+
+        if (live.size() <= maxDiskEntries) return;
+        live.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<Path, Long> oldest : live.subList(0, live.size() - maxDiskEntries)) {
+            try {
+                if (Files.deleteIfExists(oldest.getKey())) diskEvictions.incrementAndGet();
+            } catch (IOException e) {
+                log.warn("[{}] Failed to delete disk entry {}: {}", name, oldest.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public String getName() { return name; }
+    public long getHits() { return hits.get(); }
+    public long getDiskHits() { return diskHits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+    public long getExpirations() { return expirations.get(); }
+    public boolean isDiskEnabled() { return diskDir != null; }
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("diskEnabled", diskDir != null);
+        stats.put("maxDiskEntries", maxDiskEntries);
+        stats.put("diskEvictions", diskEvictions.get());
+        return stats;
+    }
+
+    private Path initDiskDir(Path dir) {
+        if (dir == null) return null;
+        try {
+            Files.createDirectories(dir);
+            log.info("[{}] Disk tier enabled at {}", name, dir.toAbsolutePath());
+            return dir;
+        } catch (IOException e) {
+            log.warn("[{}] Could not create cache directory {}, disk tier disabled: {}", name, dir, e.getMessage());
+            return null;
+        }
+    }
+
+    private V readFromDisk(String key, long now) {
+        if (diskDir == null) return null;
+        Path file = diskDir.resolve(key + ".json");
+        try {
+            if (!Files.exists(file)) return null;
+            if (Files.getLastModifiedTime(file).toMillis() + ttlMillis <= now) {
+                Files.deleteIfExists(file);
+                expirations.incrementAndGet();
+                return null;
+            }
+            return objectMapper.readValue(file.toFile(), valueType);
+        } catch (IOException e) {
+            log.warn("[{}] Failed to read disk entry {}: {}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, V value) {
+        if (diskDir == null) return;
+        Path target = diskDir.resolve(key + ".json");
+        try {
+            Path tmp = Files.createTempFile(diskDir, key, ".tmp");
+            objectMapper.writeValue(tmp.toFile(), value);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("[{}] Failed to write disk entry {}: {}", name, key, e.getMessage());
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
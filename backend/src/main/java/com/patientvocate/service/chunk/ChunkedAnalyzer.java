@@ -0,0 +1,142 @@
+package com.patientvocate.service.chunk;
+
+import com.patientvocate.model.DiscussionQuestion;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.GlossaryEntry;
+import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.ai.AIService;
+import com.patientvocate.service.ai.ProviderHttpClient;
+import com.patientvocate.service.extract.LabValueExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Map-reduce analysis for long reports: the report is split into panel/section chunks that
+ * are analyzed concurrently, the partial summaries are merged (findings, glossary and
+ * questions de-duplicated), and a short final pass writes the overall summary. Wall-clock
+ * time then follows the largest section rather than the whole document.
+ */
+@Component
+public class ChunkedAnalyzer {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedAnalyzer.class);
+
+    private static final int MAX_DISCUSSION_QUESTIONS = 8;
+
+    private final boolean enabled;
+    private final int minChars;
+    private final ReportChunker chunker;
+
+    public ChunkedAnalyzer(@Value("${analysis.chunking.enabled:true}") boolean enabled,
+                           @Value("${analysis.chunking.min-chars:6000}") int minChars,
+                           @Value("${analysis.chunking.max-chunk-chars:4000}") int maxChunkChars,
+                           @Value("${analysis.chunking.max-chunks:6}") int maxChunks) {
+        this.enabled = enabled;
+        this.minChars = minChars;
+        this.chunker = new ReportChunker(maxChunkChars, maxChunks);
+    }
+
+    /**
+     * Whether {@code reportText} is long enough to be analyzed in sections.
+     */
+    public boolean appliesTo(String reportText) {
+        return enabled && reportText.length() >= minChars;
+    }
+
+    /**
+     * Analyze a report, splitting it into sections when it is long enough to benefit.
+     */
+    public ReportSummary analyze(AIService service, String reportText) {
+        List<String> chunks = appliesTo(reportText) ? chunker.split(reportText) : List.of();
+        if (chunks.size() < 2) {
+            return ProviderHttpClient.await(service.analyzeReportAsync(reportText));
+        }
+
+        log.info("Analyzing report in {} sections ({} characters) with {}", chunks.size(), reportText.length(),
+                service.getProviderName());
+        List<CompletableFuture<ReportSummary>> parts = new ArrayList<>();
+        for (String chunk : chunks) {
+            parts.add(service.analyzeReportAsync(chunk));
+        }
+
+        List<ReportSummary> results = new ArrayList<>();
+        RuntimeException firstError = null;
+        for (CompletableFuture<ReportSummary> part : parts) {
+            try {
+                results.add(ProviderHttpClient.await(part));
+            } catch (CancellationException e) {
+                // Cancelled or interrupted: abort the sections still in flight
+                parts.forEach(p -> p.cancel(true));
+                throw e;
+            } catch (RuntimeException e) {
+                log.warn("Section analysis failed: {}", e.getMessage());
+                if (firstError == null) firstError = e;
+            }
+        }
+
+        List<ReportSummary> usable = results.stream().filter(r -> !r.isFallback()).toList();
+        if (usable.isEmpty()) {
+            if (!results.isEmpty()) return results.get(0);
+            throw firstError;
+        }
+
+        ReportSummary merged = merge(usable);
+        merged.setSummary(finalSummary(service, usable, merged.getFindings()));
+        // A partially analyzed report is returned but must not be cached as complete
+        merged.setFallback(usable.size() < chunks.size());
+        return merged;
+    }
+
+    private String finalSummary(AIService service, List<ReportSummary> parts, List<Finding> findings) {
+        List<String> sectionSummaries = new ArrayList<>();
+        for (ReportSummary part : parts) {
+            if (part.getSummary() != null && !part.getSummary().isBlank()) sectionSummaries.add(part.getSummary());
+        }
+        try {
+            String summary = ProviderHttpClient.await(service.summarizeSectionsAsync(sectionSummaries, findings));
+            if (summary != null && !summary.isBlank()) {
+                return summary;
+            }
+        } catch (CancellationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Final summary pass failed, joining section summaries: {}", e.getMessage());
+        }
+        return String.join(" ", sectionSummaries);
+    }
+
+    /**
+     * Merge partial summaries in section order, keeping the first occurrence of each finding,
+     * glossary term and discussion question.
+     */
+    static ReportSummary merge(List<ReportSummary> parts) {
+        Map<String, Finding> findings = new LinkedHashMap<>();
+        Map<String, GlossaryEntry> glossary = new LinkedHashMap<>();
+        Map<String, DiscussionQuestion> questions = new LinkedHashMap<>();
+        String disclaimer = null;
+        for (ReportSummary part : parts) {
+            if (part.getFindings() != null) {
+                part.getFindings().forEach(f -> findings.putIfAbsent(LabValueExtractor.normalizeName(f.getTestName()), f));
+            }
+            if (part.getGlossary() != null) {
+                part.getGlossary().forEach(g -> glossary.putIfAbsent(normalize(g.getTerm()), g));
+            }
+            if (part.getDiscussionQuestions() != null) {
+                part.getDiscussionQuestions().forEach(q -> questions.putIfAbsent(normalize(q.getQuestion()), q));
+            }
+            if (disclaimer == null) disclaimer = part.getDisclaimer();
+        }
+        return new ReportSummary(null, new ArrayList<>(findings.values()), new ArrayList<>(glossary.values()),
+                new ArrayList<>(questions.values().stream().limit(MAX_DISCUSSION_QUESTIONS).toList()), disclaimer);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+}
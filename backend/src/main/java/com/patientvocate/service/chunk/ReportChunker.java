@@ -0,0 +1,124 @@
+package com.patientvocate.service.chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits report text into panel/section chunks (CBC, metabolic panel, lipids, ...) for
+ * analysis in parallel. Sections start at header lines; consecutive sections are packed
+ * together up to a size limit, so misdetected headers only cost a slightly uneven split.
+ */
+public class ReportChunker {
+
+    private static final Pattern HEADER_KEYWORDS = Pattern.compile(
+            "(?i)\\b(panel|profile|count|cbc|urinalysis|chemistry|hematology|haematology|function|lipids?|thyroid|differential|studies)\\b");
+    private static final Pattern HAS_DIGIT = Pattern.compile("\\d");
+
+    private final int maxChunkChars;
+    private final int maxChunks;
+
+    public ReportChunker(int maxChunkChars, int maxChunks) {
+        this.maxChunkChars = Math.max(500, maxChunkChars);
+        this.maxChunks = Math.max(1, maxChunks);
+    }
+
+    /**
+     * Split {@code reportText} into at most {@code maxChunks} chunks in report order.
+     * Text before the first header stays with the first section.
+     */
+    public List<String> split(String reportText) {
+        List<String> sections = sections(reportText);
+        int total = sections.stream().mapToInt(String::length).sum();
+        int target = Math.max(maxChunkChars, (int) Math.ceil((double) total / maxChunks));
+
+        List<String> pieces = new ArrayList<>();
+        for (String section : sections) {
+            if (section.length() > target) {
+                pieces.addAll(splitLines(section, target));
+            } else {
+                pieces.add(section);
+            }
+        }
+
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String piece : pieces) {
+            if (current.length() > 0 && current.length() + piece.length() > target) {
+                chunks.add(current.toString().strip());
+                current.setLength(0);
+            }
+            if (current.length() > 0) current.append('\n');
+            current.append(piece);
+        }
+        if (current.length() > 0) {
+            chunks.add(current.toString().strip());
+        }
+        // Greedy packing can leave a few extra small chunks; fold the smallest neighbours together
+        while (chunks.size() > maxChunks) {
+            int best = 0;
+            for (int i = 1; i < chunks.size() - 1; i++) {
+                if (chunks.get(i).length() + chunks.get(i + 1).length()
+                        < chunks.get(best).length() + chunks.get(best + 1).length()) {
+                    best = i;
+                }
+            }
+            chunks.set(best, chunks.get(best) + "\n" + chunks.remove(best + 1));
+        }
+        return chunks;
+    }
+
+    static boolean isHeader(String line) {
+        String trimmed = line.strip();
+        if (trimmed.length() < 3 || trimmed.length() > 60 || HAS_DIGIT.matcher(trimmed).find()) {
+            return false;
+        }
+        int letters = 0;
+        int upper = 0;
+        for (char c : trimmed.toCharArray()) {
+            if (Character.isLetter(c)) {
+                letters++;
+                if (Character.isUpperCase(c)) upper++;
+            }
+        }
+        if (letters < 3) {
+            return false;
+        }
+        return upper >= letters * 0.8
+                || trimmed.endsWith(":")
+                || HEADER_KEYWORDS.matcher(trimmed.toLowerCase(Locale.ROOT)).find();
+    }
+
+    private static List<String> sections(String reportText) {
+        List<String> sections = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : reportText.split("\\R")) {
+            if (isHeader(line) && !current.toString().isBlank()) {
+                sections.add(current.toString());
+                current.setLength(0);
+            }
+            current.append(line).append('\n');
+        }
+        if (!current.toString().isBlank()) {
+            sections.add(current.toString());
+        }
+        return sections;
+    }
+
+    private static List<String> splitLines(String section, int target) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : section.split("\\R")) {
+            if (current.length() > 0 && current.length() + line.length() + 1 > target) {
+                parts.add(current.toString());
+                current.setLength(0);
+            }
+            current.append(line).append('\n');
+        }
+        if (current.length() > 0) {
+            parts.add(current.toString());
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,208 @@
+package com.patientvocate.service.extract;
+
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.ReportSummary;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rule-based parser for lab result rows ("Hemoglobin 9.1 L g/dL 12.0 - 16.0") in extracted
+ * report text. Fills testName, value, referenceRange and status locally so the AI model only
+ * has to supply explanations.
+ */
+@Component
+public class LabValueExtractor {
+
+    public static final String NORMAL = "NORMAL";
+    public static final String BORDERLINE = "BORDERLINE";
+    public static final String ABNORMAL = "ABNORMAL";
+    public static final String NOT_SPECIFIED = "NOT SPECIFIED";
+    public static final String NO_RANGE = "None provided";
+
+    /** Results outside the range by at most this fraction of the range are BORDERLINE. */
+    private static final double BORDERLINE_MARGIN = 0.10;
+    private static final int MAX_LINE_LENGTH = 160;
+    private static final String DEFAULT_EXPLANATION =
+            "Your healthcare provider can explain what this result means for you.";
+
+    private static final Pattern ROW = Pattern.compile(
+            "^(?<name>[A-Za-z][A-Za-z0-9 ,()/%.'\\-]*?)\\s*[:=]?\\s+(?<cmp>[<>]=?|[≤≥])?\\s*(?<value>\\d++(?:\\.\\d++)?+)(?![-–][A-Za-z])(?<rest>.*)$");
+    private static final Pattern DATE_OR_RANGE_AFTER_VALUE = Pattern.compile("^\\s*[-–/]\\s*\\d");
+    private static final Pattern TWO_SIDED_RANGE = Pattern.compile(
+            "(?<lo>\\d+(?:\\.\\d+)?)\\s*(?:-|–|—|to)\\s*(?<hi>\\d+(?:\\.\\d+)?)");
+    private static final Pattern ONE_SIDED_RANGE = Pattern.compile(
+            "(?i)(?<op><=?|>=?|≤|≥|less than|greater than|up to|below|above)\\s*(?<bound>\\d+(?:\\.\\d+)?)");
+    private static final Pattern UNIT = Pattern.compile(
+            "(?i)^(?:(?=[^/]*/)(?=.*[a-zµμ])[a-zµμ0-9^*.%]+(?:/[a-zµμ0-9^.]+)+|%|fl|pg|sec|seconds|ratio|iu|u|mmhg)$");
+    private static final Pattern FLAG = Pattern.compile(
+            "(?i)^[(\\[]?(H|L|HH|LL|HIGH|LOW|A|ABN|ABNORMAL|CRIT|CRITICAL|\\*+)[)\\]]?$");
+    private static final Set<String> NON_TEST_NAMES = Set.of(
+            "page", "date", "age", "dob", "id", "mrn", "phone", "fax", "tel", "account", "accession",
+            "room", "bed", "zip", "time", "collected", "received", "reported", "printed", "specimen", "sample");
+
+    /**
+     * Extract test rows from report text, in report order, one finding per test name.
+     */
+    public List<Finding> extract(String reportText) {
+        if (reportText == null || reportText.isBlank()) {
+            return List.of();
+        }
+        Map<String, Finding> findings = new LinkedHashMap<>();
+        for (String line : reportText.split("\\R")) {
+            Finding finding = parseRow(line.strip());
+            if (finding != null) {
+                findings.putIfAbsent(normalizeName(finding.getTestName()), finding);
+            }
+        }
+        return new ArrayList<>(findings.values());
+    }
+
+    /**
+     * Parse a single result row, or return null if the line is not one.
+     */
+    Finding parseRow(String line) {
+        if (line.length() < 4 || line.length() > MAX_LINE_LENGTH) {
+            return null;
+        }
+        Matcher row = ROW.matcher(line);
+        if (!row.matches()) {
+            return null;
+        }
+        String name = row.group("name").strip();
+        String rest = row.group("rest");
+        if (name.length() < 2 || NON_TEST_NAMES.contains(name.toLowerCase(Locale.ROOT).replaceAll("[^a-z]", ""))
+                || DATE_OR_RANGE_AFTER_VALUE.matcher(rest).find()) {
+            return null;
+        }
+        double value = Double.parseDouble(row.group("value"));
+        String comparator = row.group("cmp") != null ? row.group("cmp") : "";
+
+        // Reference range
+        Double lo = null;
+        Double hi = null;
+        String range = null;
+        String remainder = rest;
+        Matcher twoSided = TWO_SIDED_RANGE.matcher(rest);
+        Matcher oneSided = ONE_SIDED_RANGE.matcher(rest);
+        if (twoSided.find()) {
+            lo = Double.parseDouble(twoSided.group("lo"));
+            hi = Double.parseDouble(twoSided.group("hi"));
+            range = twoSided.group("lo") + " - " + twoSided.group("hi");
+            remainder = rest.substring(0, twoSided.start()) + " " + rest.substring(twoSided.end());
+        } else if (oneSided.find()) {
+            String op = oneSided.group("op").toLowerCase(Locale.ROOT);
+            double bound = Double.parseDouble(oneSided.group("bound"));
+            boolean upper = op.startsWith("<") || op.equals("≤") || op.startsWith("less") || op.startsWith("up") || op.equals("below");
+            if (upper) hi = bound; else lo = bound;
+            range = (upper ? "< " : "> ") + oneSided.group("bound");
+            remainder = rest.substring(0, oneSided.start()) + " " + rest.substring(oneSided.end());
+        }
+
+        // Unit and abnormal flag among the remaining tokens
+        String unit = null;
+        boolean flagged = false;
+        for (String token : remainder.trim().split("[\\s()\\[\\]]+")) {
+            if (token.isEmpty()) continue;
+            if (FLAG.matcher(token).matches()) {
+                flagged = true;
+            } else if (unit == null && UNIT.matcher(token).matches()) {
+                unit = token;
+            }
+        }
+        if (unit == null && range == null) {
+            return null; // a bare "label number" line is more likely metadata than a result
+        }
+
+        String status = status(value, lo, hi, flagged);
+        String displayValue = comparator + row.group("value") + (unit != null ? " " + unit : "");
+        return new Finding(name, displayValue, range != null ? range : NO_RANGE, status, null);
+    }
+
+    /**
+     * Combine locally extracted findings with general explanations (matched by test name) and
+     * a sentence describing the result's status. Extracted values, ranges and statuses always
+     * win; rows the model reported that the rules missed are appended.
+     */
+    public ReportSummary mergeExplanations(List<Finding> extracted, ReportSummary explained) {
+        List<Finding> modelFindings = explained.getFindings() != null ? explained.getFindings() : List.of();
+        Map<String, Finding> byName = new HashMap<>();
+        for (Finding finding : modelFindings) {
+            byName.putIfAbsent(normalizeName(finding.getTestName()), finding);
+        }
+
+        List<Finding> merged = new ArrayList<>();
+        Set<String> matched = new HashSet<>();
+        for (Finding finding : extracted) {
+            String key = normalizeName(finding.getTestName());
+            Finding model = byName.get(key);
+            String explanation = model != null ? model.getExplanation() : null;
+            if (model != null) matched.add(key);
+            merged.add(new Finding(finding.getTestName(), finding.getValue(), finding.getReferenceRange(),
+                    finding.getStatus(),
+                    explanation != null && !explanation.isBlank()
+                            ? explanation.strip() + " " + statusSentence(finding.getStatus())
+                            : DEFAULT_EXPLANATION));
+        }
+        for (Finding finding : modelFindings) {
+            if (!matched.contains(normalizeName(finding.getTestName()))
+                    && finding.getValue() != null && !finding.getValue().isBlank()) {
+                merged.add(finding);
+            }
+        }
+
+        ReportSummary summary = new ReportSummary(explained.getSummary(), merged, explained.getGlossary(),
+                explained.getDiscussionQuestions(), explained.getDisclaimer());
+        summary.setFallback(explained.isFallback());
+        return summary;
+    }
+
+    /**
+     * Summary shell used when no explanation could be obtained (e.g. the AI provider is down),
+     * to be merged with the extracted findings. Marked as fallback so it is not cached.
+     */
+    public ReportSummary unavailableSummary() {
+        ReportSummary summary = new ReportSummary();
+        summary.setSummary("The AI service is currently unavailable, so the test results found in your report " +
+                "are listed below without detailed explanations. Please try again later.");
+        summary.setGlossary(Collections.emptyList());
+        summary.setDiscussionQuestions(Collections.emptyList());
+        summary.setDisclaimer("This summary is for educational purposes only. " +
+                "Please discuss these results with your healthcare provider.");
+        summary.setFallback(true);
+        return summary;
+    }
+
+    private static String statusSentence(String status) {
+        return switch (status) {
+            case NORMAL -> "Your result is within the reference range.";
+            case BORDERLINE -> "Your result is slightly outside the reference range, which may be worth discussing with your doctor.";
+            case ABNORMAL -> "Your result is outside the reference range; your doctor can explain what this means for you.";
+            default -> "No reference range was provided for this result.";
+        };
+    }
+
+    /**
+     * Classify a value against its reference range. Values slightly outside the range
+     * (within {@link #BORDERLINE_MARGIN} of its width or bound) are BORDERLINE.
+     */
+    static String status(double value, Double lo, Double hi, boolean flagged) {
+        if (lo == null && hi == null) {
+            return flagged ? ABNORMAL : NOT_SPECIFIED;
+        }
+        double margin = lo != null && hi != null
+                ? (hi - lo) * BORDERLINE_MARGIN
+                : Math.abs(lo != null ? lo : hi) * BORDERLINE_MARGIN;
+        double outside = 0;
+        if (lo != null && value < lo) outside = lo - value;
+        if (hi != null && value > hi) outside = value - hi;
+        if (outside == 0) return NORMAL;
+        return outside <= margin ? BORDERLINE : ABNORMAL;
+    }
+
+    public static String normalizeName(String testName) {
+        return testName == null ? "" : testName.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+}
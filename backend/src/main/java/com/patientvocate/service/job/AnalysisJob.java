@@ -0,0 +1,105 @@
+package com.patientvocate.service.job;
+
+import com.patientvocate.dto.ReportAnalysisResponse;
+import com.patientvocate.service.AnalysisStage;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * State of one asynchronous analysis job. Mutated only by {@link AnalysisJobService}.
+ */
+public class AnalysisJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    public enum StageState { PENDING, RUNNING, COMPLETED, FAILED, SKIPPED }
+
+    private final String id;
+    private final String provider;
+    private final String fileName;
+    private final Instant createdAt = Instant.now();
+    private final Map<AnalysisStage, StageState> stages = new EnumMap<>(AnalysisStage.class);
+
+    private volatile Status status = Status.QUEUED;
+    private volatile AnalysisStage currentStage;
+    private volatile ReportAnalysisResponse result;
+    private volatile String error;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile Future<?> future;
+
+    AnalysisJob(String id, String provider, String fileName) {
+        this.id = id;
+        this.provider = provider;
+        this.fileName = fileName;
+        for (AnalysisStage stage : AnalysisStage.values()) {
+            stages.put(stage, StageState.PENDING);
+        }
+    }
+
+    synchronized void markRunning() {
+        if (status == Status.QUEUED) {
+            status = Status.RUNNING;
+            startedAt = Instant.now();
+        }
+    }
+
+    synchronized void enterStage(AnalysisStage stage) {
+        if (currentStage != null) {
+            stages.put(currentStage, StageState.COMPLETED);
+        }
+        currentStage = stage;
+        stages.put(stage, StageState.RUNNING);
+    }
+
+    synchronized void finish(Status finalStatus, ReportAnalysisResponse result, String error) {
+        if (isDone()) return;
+        if (currentStage != null && stages.get(currentStage) == StageState.RUNNING) {
+            stages.put(currentStage, switch (finalStatus) {
+                case COMPLETED -> StageState.COMPLETED;
+                case FAILED -> StageState.FAILED;
+                default -> StageState.SKIPPED;
+            });
+        }
+        stages.replaceAll((stage, state) -> state == StageState.PENDING ? StageState.SKIPPED : state);
+        this.status = finalStatus;
+        this.result = result;
+        this.error = error;
+        this.finishedAt = Instant.now();
+    }
+
+    void setFuture(Future<?> future) { this.future = future; }
+    Future<?> getFuture() { return future; }
+
+    public boolean isDone() {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    public boolean isCancelled() { return status == Status.CANCELLED; }
+
+    /**
+     * Percentage of pipeline stages that have finished (completed or skipped).
+     */
+    public synchronized int getProgress() {
+        if (isDone()) return 100;
+        long finished = stages.values().stream()
+                .filter(s -> s == StageState.COMPLETED || s == StageState.SKIPPED)
+                .count();
+        return (int) (finished * 100 / stages.size());
+    }
+
+    public String getId() { return id; }
+    public String getProvider() { return provider; }
+    public String getFileName() { return fileName; }
+    public Status getStatus() { return status; }
+    public AnalysisStage getCurrentStage() { return currentStage; }
+    public synchronized Map<AnalysisStage, StageState> getStages() { return new EnumMap<>(stages); }
+    public ReportAnalysisResponse getResult() { return result; }
+    public String getError() { return error; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+}
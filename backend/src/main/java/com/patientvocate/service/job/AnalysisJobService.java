@@ -0,0 +1,207 @@
+package com.patientvocate.service.job;
+
+import com.patientvocate.dto.ReportAnalysisResponse;
+import com.patientvocate.service.AnalysisProgressListener;
+import com.patientvocate.service.ReportService;
+import com.patientvocate.service.SpooledMultipartFile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs report analyses as background jobs on a dedicated bounded worker pool,
+ * so uploads do not hold a request thread for the whole extract → OCR → LLM pipeline.
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisJobService.class);
+
+    private final ReportService reportService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    /** Cleanup of jobs that have not started yet; whoever removes the entry runs it. */
+    private final Map<String, Runnable> pendingCleanups = new ConcurrentHashMap<>();
+    private final Duration resultTtl;
+    private final Path spoolDir;
+
+    public AnalysisJobService(ReportService reportService,
+                              @Value("${jobs.worker-threads:4}") int workerThreads,
+                              @Value("${jobs.queue-capacity:100}") int queueCapacity,
+                              @Value("${jobs.result-ttl-minutes:30}") long resultTtlMinutes,
+                              @Value("${jobs.spool-dir:}") String spoolDir) {
+        this.reportService = reportService;
+        this.resultTtl = Duration.ofMinutes(resultTtlMinutes);
+        this.spoolDir = spoolDir == null || spoolDir.isBlank() ? null : Path.of(spoolDir);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "analysis-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Analysis job pool started (workers: {}, queue capacity: {}, result TTL: {} min)",
+                workerThreads, queueCapacity, resultTtlMinutes);
+    }
+
+    /**
+     * Queue an uploaded file for analysis. The upload is spooled to a temp file first
+     * because the servlet container deletes its copy when the request ends.
+     *
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public AnalysisJob submitFile(MultipartFile file, String provider) {
+        SpooledMultipartFile spooled;
+        try {
+            spooled = SpooledMultipartFile.spool(file, spoolDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store upload: " + e.getMessage(), e);
+        }
+
+        AnalysisJob job = newJob(provider, file.getOriginalFilename());
+        try {
+            return submit(job, () -> reportService.analyzeFile(spooled, provider, listenerFor(job)), spooled::delete);
+        } catch (RejectedExecutionException e) {
+            spooled.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Queue raw report text for analysis.
+     *
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public AnalysisJob submitText(String reportText, String provider) {
+        AnalysisJob job = newJob(provider, null);
+        return submit(job, () -> reportService.analyzeText(reportText, provider, listenerFor(job)), () -> {});
+    }
+
+    public AnalysisJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Cancel a queued or running job. Queued jobs never start; running jobs are interrupted
+     * and stop at the next stage boundary.
+     *
+     * @return the job, or null if unknown
+     */
+    public AnalysisJob cancel(String jobId) {
+        AnalysisJob job = jobs.get(jobId);
+        if (job == null) return null;
+        job.finish(AnalysisJob.Status.CANCELLED, null, "Job was cancelled");
+        if (job.getFuture() != null) {
+            job.getFuture().cancel(true);
+        }
+        // A job cancelled while queued never runs, so release its upload here
+        Runnable cleanup = pendingCleanups.remove(jobId);
+        if (cleanup != null) cleanup.run();
+        log.info("Cancelled analysis job {}", jobId);
+        return job;
+    }
+
+    /**
+     * Drop finished jobs whose results have outlived the TTL.
+     */
+    @Scheduled(fixedDelayString = "${jobs.cleanup-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(resultTtl);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.isDone() && job.getFinishedAt() != null
+                && job.getFinishedAt().isBefore(cutoff));
+        int removed = before - jobs.size();
+        if (removed > 0) {
+            log.info("Expired {} finished analysis jobs", removed);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("maxWorkers", executor.getMaximumPoolSize());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueRemainingCapacity", executor.getQueue().remainingCapacity());
+        stats.put("trackedJobs", jobs.size());
+        stats.put("completedTasks", executor.getCompletedTaskCount());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        pendingCleanups.values().forEach(Runnable::run);
+    }
+
+    private AnalysisJob newJob(String provider, String fileName) {
+        return new AnalysisJob(UUID.randomUUID().toString(), provider, fileName);
+    }
+
+    private AnalysisJob submit(AnalysisJob job, Supplier<ReportAnalysisResponse> work, Runnable cleanup) {
+        jobs.put(job.getId(), job);
+        pendingCleanups.put(job.getId(), cleanup);
+        try {
+            job.setFuture(executor.submit(() -> run(job, work)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            pendingCleanups.remove(job.getId());
+            log.warn("Analysis job queue is full, rejecting job {}", job.getId());
+            throw e;
+        }
+        log.info("Queued analysis job {} (provider: {})", job.getId(), job.getProvider());
+        return job;
+    }
+
+    private void run(AnalysisJob job, Supplier<ReportAnalysisResponse> work) {
+        Runnable cleanup = pendingCleanups.remove(job.getId());
+        if (cleanup == null) return; // cancelled before it started, cancel() cleaned up
+        try {
+            if (job.isCancelled()) return;
+            job.markRunning();
+            ReportAnalysisResponse response = work.get();
+            if (response.isSuccess()) {
+                job.finish(AnalysisJob.Status.COMPLETED, response, null);
+            } else {
+                job.finish(AnalysisJob.Status.FAILED, response, response.getError());
+            }
+            log.info("Analysis job {} finished with status {}", job.getId(), job.getStatus());
+        } catch (Exception e) {
+            log.error("Analysis job {} failed", job.getId(), e);
+            job.finish(AnalysisJob.Status.FAILED, null, e.getMessage());
+        } finally {
+            cleanup.run();
+        }
+    }
+
+    private AnalysisProgressListener listenerFor(AnalysisJob job) {
+        return stage -> {
+            if (job.isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Job " + job.getId() + " was cancelled");
+            }
+            job.enterStage(stage);
+        };
+    }
+}
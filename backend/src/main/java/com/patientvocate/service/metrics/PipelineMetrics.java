@@ -0,0 +1,238 @@
+package com.patientvocate.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation for the report pipeline, exported through Actuator
+ * ({@code /actuator/metrics}, {@code /actuator/prometheus}):
+ * <ul>
+ *   <li>{@code patientvocate.pipeline.stage}: timer per stage (detect, pdf_extraction, ocr,
+ *       prompt_build, provider_call, parse), tagged by provider, model, operation and outcome</li>
+ *   <li>{@code patientvocate.analysis}: end-to-end analysis timer, tagged by path (cache, coalesced,
+ *       extractor, streamed, single, chunked, image) and outcome</li>
+ *   <li>{@code patientvocate.ai.prompt.size} / {@code patientvocate.ai.response.size}: characters sent and received</li>
+ *   <li>{@code patientvocate.ai.tokens}: token usage reported by the provider, tagged by type (prompt, completion)</li>
+ *   <li>{@code patientvocate.prompt.tokens}: estimated follow-up prompt size before and after fitting it to
+ *       the provider's budget, tagged by provider and stage (before, after)</li>
+ *   <li>{@code patientvocate.analysis.fallback}: unstructured fallback summaries, tagged by reason</li>
+ *   <li>{@code patientvocate.analysis.coalesced}: requests that shared the result of an identical
+ *       in-flight request instead of repeating the work, tagged by flight (extraction, analysis)</li>
+ *   <li>{@code patientvocate.ocr.pass}: timer per OCR pass (fast, preprocessed, auto_layout), tagged by
+ *       whether its confidence was good enough to stop</li>
+ *   <li>{@code patientvocate.ocr.pages} / {@code patientvocate.ocr.confidence}: OCR'd pages and their mean
+ *       word confidence, tagged by the pass whose text was kept (and, for pages, the number of passes)</li>
+ * </ul>
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String DETECT = "detect";
+    public static final String PDF_EXTRACTION = "pdf_extraction";
+    public static final String OCR = "ocr";
+    public static final String PROMPT_BUILD = "prompt_build";
+    public static final String PROVIDER_CALL = "provider_call";
+    public static final String PARSE = "parse";
+
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+    public static final String CANCELLED = "cancelled";
+    public static final String FALLBACK = "fallback";
+
+    /** Tag value for stages that run before a provider is known. */
+    public static final String NONE = "none";
+
+    private final MeterRegistry registry;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Metrics for one kind of work (analysis, chat, ...) against one provider and model.
+     */
+    public Scope scope(String provider, String model, String operation) {
+        return new Scope(provider, model, operation);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Record a finished end-to-end analysis.
+     */
+    public void recordAnalysis(Timer.Sample sample, String provider, String model, String path, String outcome) {
+        sample.stop(Timer.builder("patientvocate.analysis")
+                .description("End-to-end report analysis")
+                .tags("provider", provider, "model", model, "path", path, "outcome", outcome)
+                .register(registry));
+    }
+
+    /**
+     * Count one call saved by joining an identical in-flight request.
+     */
+    public void coalesced(String flight) {
+        Counter.builder("patientvocate.analysis.coalesced")
+                .description("Requests answered by an identical request already in flight")
+                .tags("flight", flight)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Record one OCR pass over a page.
+     *
+     * @param accepted whether the result was confident enough to skip further passes
+     */
+    public void recordOcrPass(String pass, Timer.Sample sample, boolean accepted) {
+        sample.stop(Timer.builder("patientvocate.ocr.pass")
+                .description("One OCR pass over a page")
+                .tags("pass", pass, "accepted", String.valueOf(accepted))
+                .register(registry));
+    }
+
+    /**
+     * Record the result kept for one OCR'd page.
+     */
+    public void recordOcrPage(String pass, int passes, int confidence) {
+        Counter.builder("patientvocate.ocr.pages")
+                .description("Pages recognized by OCR")
+                .tags("pass", pass, "passes", String.valueOf(passes))
+                .register(registry)
+                .increment();
+        DistributionSummary.builder("patientvocate.ocr.confidence")
+                .description("Mean word confidence of the OCR text kept for a page")
+                .baseUnit("percent")
+                .tags("pass", pass)
+                .register(registry)
+                .record(confidence);
+    }
+
+    /**
+     * Record the estimated size of one follow-up prompt before and after budgeting.
+     */
+    public void recordPromptTokens(String provider, int before, int after) {
+        promptTokens(provider, "before").record(before);
+        promptTokens(provider, "after").record(after);
+    }
+
+    private DistributionSummary promptTokens(String provider, String stage) {
+        return DistributionSummary.builder("patientvocate.prompt.tokens")
+                .description("Estimated follow-up prompt tokens before and after fitting the budget")
+                .baseUnit("tokens")
+                .tags("provider", provider, "stage", stage)
+                .register(registry);
+    }
+
+    /**
+     * Outcome tag for a failed piece of work.
+     */
+    public static String outcomeOf(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof CancellationException ? CANCELLED : ERROR;
+    }
+
+    public final class Scope {
+
+        private final String provider;
+        private final String model;
+        private final String operation;
+
+        private Scope(String provider, String model, String operation) {
+            this.provider = provider != null ? provider : NONE;
+            this.model = model != null ? model : NONE;
+            this.operation = operation;
+        }
+
+        public String provider() { return provider; }
+        public String model() { return model; }
+
+        /**
+         * Time a synchronous stage; the outcome is success unless {@code work} throws.
+         */
+        public <T> T time(String stage, Supplier<T> work) {
+            Timer.Sample sample = start();
+            try {
+                T result = work.get();
+                record(stage, sample, SUCCESS);
+                return result;
+            } catch (RuntimeException e) {
+                record(stage, sample, outcomeOf(e));
+                throw e;
+            }
+        }
+
+        /**
+         * Time an asynchronous stage until its future completes.
+         */
+        public <T> CompletableFuture<T> timeAsync(String stage, Supplier<CompletableFuture<T>> work) {
+            Timer.Sample sample = start();
+            CompletableFuture<T> future;
+            try {
+                future = work.get();
+            } catch (RuntimeException e) {
+                record(stage, sample, outcomeOf(e));
+                throw e;
+            }
+            future.whenComplete((value, error) -> record(stage, sample, error == null ? SUCCESS : outcomeOf(error)));
+            return future;
+        }
+
+        public void record(String stage, Timer.Sample sample, String outcome) {
+            sample.stop(Timer.builder("patientvocate.pipeline.stage")
+                    .description("Time spent in one stage of the report pipeline")
+                    .tags("stage", stage, "provider", provider, "model", model,
+                            "operation", operation, "outcome", outcome)
+                    .register(registry));
+        }
+
+        public void promptSize(int chars) {
+            size("patientvocate.ai.prompt.size", "Characters sent to the model", chars);
+        }
+
+        public void responseSize(int chars) {
+            size("patientvocate.ai.response.size", "Characters received from the model", chars);
+        }
+
+        /**
+         * Token usage as reported by the provider; negative counts (not reported) are skipped.
+         */
+        public void tokens(long promptTokens, long completionTokens) {
+            if (promptTokens >= 0) tokenCounter("prompt").increment(promptTokens);
+            if (completionTokens >= 0) tokenCounter("completion").increment(completionTokens);
+        }
+
+        public void fallback(String reason) {
+            Counter.builder("patientvocate.analysis.fallback")
+                    .description("Analyses answered with an unstructured fallback summary")
+                    .tags("provider", provider, "model", model, "operation", operation, "reason", reason)
+                    .register(registry)
+                    .increment();
+        }
+
+        private void size(String name, String description, int chars) {
+            DistributionSummary.builder(name)
+                    .description(description)
+                    .baseUnit("characters")
+                    .tags("provider", provider, "model", model, "operation", operation)
+                    .register(registry)
+                    .record(chars);
+        }
+
+        private Counter tokenCounter(String type) {
+            return Counter.builder("patientvocate.ai.tokens")
+                    .description("Tokens reported by the provider")
+                    .tags("provider", provider, "model", model, "operation", operation, "type", type)
+                    .register(registry);
+        }
+    }
+}
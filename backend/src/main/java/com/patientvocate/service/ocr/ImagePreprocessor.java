@@ -0,0 +1,482 @@
+package com.patientvocate.service.ocr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Prepares an image for Tesseract working directly on raster byte arrays:
+ * grayscale conversion, skew and text-size estimation on a downsampled copy, a single
+ * rotate-and-scale resample, and adaptive binarization with one threshold per tile.
+ * The scale factor brings text lines to about {@code targetTextHeight} pixels, so phone
+ * photos are scaled down and low-resolution scans up, instead of always doubling.
+ */
+@Component
+public class ImagePreprocessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagePreprocessor.class);
+
+    /** Width of the downsampled copy used to estimate skew and text size. */
+    private static final int ANALYSIS_WIDTH = 1200;
+    private static final double MAX_SKEW_DEGREES = 5;
+    private static final double SKEW_STEP_DEGREES = 0.25;
+    /** Smaller angles are not worth a resample. */
+    private static final double MIN_SKEW_DEGREES = 0.3;
+    /** Scale factors this close to 1 are not worth a resample. */
+    private static final double KEEP_SCALE_FROM = 0.75;
+    private static final double KEEP_SCALE_TO = 1.5;
+    private static final double MIN_SCALE = 0.25;
+    private static final double MAX_SCALE = 3;
+    /** Used when no text lines are found: assume the image spans a letter-size page. */
+    private static final double PAGE_WIDTH_INCHES = 8.5;
+    private static final int TARGET_DPI = 300;
+    /** Tiles whose dark and light pixels differ less than this on average are background. */
+    private static final int MIN_TILE_CONTRAST = 32;
+    private static final int FIXED_BITS = 16;
+    private static final long FIXED_ONE = 1L << FIXED_BITS;
+
+    /**
+     * What the analysis pass decided.
+     *
+     * @param lineHeight median text line height in source pixels, or 0 if no lines were found
+     */
+    public record Plan(double scale, double skewDegrees, int lineHeight) {}
+
+    private final boolean deskew;
+    private final boolean binarize;
+    private final int targetTextHeight;
+    private final long maxPixels;
+    private final int tileSize;
+
+    public ImagePreprocessor(@Value("${ocr.preprocess.deskew:true}") boolean deskew,
+                             @Value("${ocr.preprocess.binarize:true}") boolean binarize,
+                             @Value("${ocr.preprocess.target-text-height:32}") int targetTextHeight,
+                             @Value("${ocr.preprocess.max-pixels:24000000}") long maxPixels,
+                             @Value("${ocr.preprocess.tile-size:256}") int tileSize) {
+        this.deskew = deskew;
+        this.binarize = binarize;
+        this.targetTextHeight = Math.max(8, targetTextHeight);
+        this.maxPixels = Math.max(1_000_000, maxPixels);
+        this.tileSize = Math.max(32, tileSize);
+    }
+
+    /**
+     * Return an 8-bit grayscale (binarized, if enabled) copy of {@code image}, deskewed and
+     * scaled for recognition. The input is not modified.
+     */
+    public BufferedImage process(BufferedImage image) {
+        BufferedImage gray = toGray(image);
+        Plan plan = plan(gray);
+        BufferedImage prepared = plan.scale() == 1 && plan.skewDegrees() == 0
+                ? gray
+                : resample(gray, plan.scale(), plan.skewDegrees());
+        if (binarize) {
+            binarize(pixels(prepared), prepared.getWidth(), prepared.getHeight());
+        }
+        log.debug("Preprocessed {}x{} image to {}x{} (line height {} px, scale {}, skew {}°)",
+                image.getWidth(), image.getHeight(), prepared.getWidth(), prepared.getHeight(),
+                plan.lineHeight(), Math.round(plan.scale() * 100) / 100.0, plan.skewDegrees());
+        return prepared;
+    }
+
+    /**
+     * Estimate skew and text line height on a downsampled copy and choose the scale factor.
+     */
+    Plan plan(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        int factor = Math.max(1, (int) Math.ceil(width / (double) ANALYSIS_WIDTH));
+        int sw = width / factor;
+        int sh = height / factor;
+        byte[] small = factor == 1 ? pixels(gray) : boxReduce(pixels(gray), width, height, factor);
+
+        int[] histogram = new int[256];
+        for (int i = 0; i < sw * sh; i++) histogram[small[i] & 0xff]++;
+        int threshold = otsu(histogram);
+
+        // Coordinates of ink pixels, reused for every candidate angle
+        int ink = 0;
+        for (int v = 0; v < threshold; v++) ink += histogram[v];
+        double skew = 0;
+        int lineHeight = 0;
+        if (ink > 0 && ink < sw * sh * 0.5) {
+            int[] xs = new int[ink];
+            int[] ys = new int[ink];
+            int n = 0;
+            for (int y = 0; y < sh; y++) {
+                int row = y * sw;
+                for (int x = 0; x < sw; x++) {
+                    if ((small[row + x] & 0xff) < threshold) {
+                        xs[n] = x;
+                        ys[n++] = y;
+                    }
+                }
+            }
+            skew = deskew ? findSkew(xs, ys, n, sw, sh) : 0;
+            lineHeight = medianLineHeight(project(xs, ys, n, sw, sh, skew)) * factor;
+        }
+        if (Math.abs(skew) < MIN_SKEW_DEGREES) skew = 0;
+
+        double scale;
+        if (lineHeight > 0) {
+            scale = targetTextHeight / (double) lineHeight;
+        } else {
+            double dpi = Math.min(width, height) / PAGE_WIDTH_INCHES;
+            scale = Math.min(2, Math.max(1, TARGET_DPI / dpi));
+        }
+        if (scale >= KEEP_SCALE_FROM && scale <= KEEP_SCALE_TO) scale = 1;
+        scale = Math.min(Math.max(scale, MIN_SCALE), MAX_SCALE);
+        double pixelLimit = Math.sqrt(maxPixels / ((double) width * height));
+        if (scale > pixelLimit) scale = Math.max(Math.min(1, scale), pixelLimit);
+        return new Plan(scale, skew, lineHeight);
+    }
+
+    /**
+     * The angle (degrees, positive when lines run downwards to the right) whose row
+     * projection of the ink pixels is sharpest.
+     */
+    private static double findSkew(int[] xs, int[] ys, int n, int width, int height) {
+        double best = 0;
+        long bestScore = -1;
+        for (double angle = -MAX_SKEW_DEGREES; angle <= MAX_SKEW_DEGREES + 1e-9; angle += SKEW_STEP_DEGREES) {
+            int[] rows = project(xs, ys, n, width, height, angle);
+            long score = 0;
+            for (int count : rows) score += (long) count * count;
+            if (score > bestScore || (score == bestScore && Math.abs(angle) < Math.abs(best))) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        return Math.round(best / SKEW_STEP_DEGREES) * SKEW_STEP_DEGREES;
+    }
+
+    /**
+     * Ink pixels per row after undoing a skew of {@code angle} degrees.
+     */
+    private static int[] project(int[] xs, int[] ys, int n, int width, int height, double angle) {
+        double tan = Math.tan(Math.toRadians(angle));
+        int pad = (int) Math.ceil(width * Math.abs(tan)) + 1;
+        int[] rows = new int[height + 2 * pad];
+        for (int i = 0; i < n; i++) {
+            rows[(int) (ys[i] - xs[i] * tan) + pad]++;
+        }
+        return rows;
+    }
+
+    /**
+     * Median height of runs of rows containing ink, or 0 if there are too few to trust.
+     */
+    private static int medianLineHeight(int[] rows) {
+        int max = 0;
+        for (int count : rows) max = Math.max(max, count);
+        int minInk = Math.max(1, max / 20);
+        int[] runs = new int[rows.length / 2 + 1];
+        int count = 0;
+        int run = 0;
+        for (int i = 0; i <= rows.length; i++) {
+            if (i < rows.length && rows[i] >= minInk) {
+                run++;
+            } else {
+                if (run >= 2) runs[count++] = run;
+                run = 0;
+            }
+        }
+        if (count < 3) return 0;
+        Arrays.sort(runs, 0, count);
+        return runs[count / 2];
+    }
+
+    /**
+     * Rotate by {@code -skewDegrees} and scale in one bilinear pass. Large reductions are
+     * box-filtered first so the bilinear step never skips source pixels.
+     */
+    private static BufferedImage resample(BufferedImage gray, double scale, double skewDegrees) {
+        byte[] src = pixels(gray);
+        int sw = gray.getWidth();
+        int sh = gray.getHeight();
+        int reduce = scale < 0.5 ? (int) Math.floor(1 / scale) : 1;
+        if (reduce > 1) {
+            src = boxReduce(src, sw, sh, reduce);
+            sw /= reduce;
+            sh /= reduce;
+        }
+        double s = scale * reduce;
+        int width = Math.max(1, (int) Math.round(gray.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(gray.getHeight() * scale));
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] dst = pixels(out);
+
+        // Source coordinates in 16.16 fixed point, stepped incrementally along each output row
+        double cos = Math.cos(Math.toRadians(skewDegrees));
+        double sin = Math.sin(Math.toRadians(skewDegrees));
+        long stepX = Math.round(cos / s * FIXED_ONE);
+        long stepY = Math.round(sin / s * FIXED_ONE);
+        for (int y = 0; y < height; y++) {
+            double u = (0.5 - width / 2.0) / s;
+            double v = (y + 0.5 - height / 2.0) / s;
+            long fx = Math.round((u * cos - v * sin + sw / 2.0 - 0.5) * FIXED_ONE);
+            long fy = Math.round((u * sin + v * cos + sh / 2.0 - 0.5) * FIXED_ONE);
+            int row = y * width;
+            for (int x = 0; x < width; x++, fx += stepX, fy += stepY) {
+                int ix = (int) (fx >> FIXED_BITS);
+                int iy = (int) (fy >> FIXED_BITS);
+                int wx = (int) (fx >> (FIXED_BITS - 8)) & 0xff;
+                int wy = (int) (fy >> (FIXED_BITS - 8)) & 0xff;
+                int value;
+                if (ix >= 0 && iy >= 0 && ix < sw - 1 && iy < sh - 1) {
+                    int i = iy * sw + ix;
+                    int top = ((src[i] & 0xff) << 8) + ((src[i + 1] & 0xff) - (src[i] & 0xff)) * wx;
+                    int bottom = ((src[i + sw] & 0xff) << 8) + ((src[i + sw + 1] & 0xff) - (src[i + sw] & 0xff)) * wx;
+                    value = ((top << 8) + (bottom - top) * wy + (1 << 15)) >> 16;
+                } else {
+                    value = sampleEdge(src, sw, sh, ix, iy, wx, wy);
+                }
+                dst[row + x] = (byte) value;
+            }
+        }
+        return out;
+    }
+
+    private static int sampleEdge(byte[] src, int width, int height, int ix, int iy, int wx, int wy) {
+        int top = (pixel(src, width, height, ix, iy) << 8)
+                + (pixel(src, width, height, ix + 1, iy) - pixel(src, width, height, ix, iy)) * wx;
+        int bottom = (pixel(src, width, height, ix, iy + 1) << 8)
+                + (pixel(src, width, height, ix + 1, iy + 1) - pixel(src, width, height, ix, iy + 1)) * wx;
+        return ((top << 8) + (bottom - top) * wy + (1 << 15)) >> 16;
+    }
+
+    /**
+     * Pixel with coordinates clamped to the image, so corners uncovered by rotation repeat
+     * the border instead of introducing a new background level.
+     */
+    private static int pixel(byte[] src, int width, int height, int x, int y) {
+        x = Math.min(Math.max(x, 0), width - 1);
+        y = Math.min(Math.max(y, 0), height - 1);
+        return src[y * width + x] & 0xff;
+    }
+
+    /**
+     * Threshold in place to 0/255. Each tile gets its own Otsu threshold (background tiles
+     * without enough contrast are pushed to white) and thresholds are interpolated between
+     * tile centres, which copes with shadows and uneven lighting in photos.
+     */
+    private void binarize(byte[] pixels, int width, int height) {
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        int[][] thresholds = new int[tilesY][tilesX];
+        int[] histogram = new int[256];
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                Arrays.fill(histogram, 0);
+                int x1 = Math.min(width, (tx + 1) * tileSize);
+                int y1 = Math.min(height, (ty + 1) * tileSize);
+                for (int y = ty * tileSize; y < y1; y++) {
+                    int row = y * width;
+                    for (int x = tx * tileSize; x < x1; x++) histogram[pixels[row + x] & 0xff]++;
+                }
+                thresholds[ty][tx] = tileThreshold(histogram);
+            }
+        }
+
+        // Horizontal interpolation position and weight (0-256) are the same for every row
+        int[] tileX = new int[width];
+        int[] weightX = new int[width];
+        for (int x = 0; x < width; x++) {
+            double gx = Math.min(Math.max((x + 0.5) / tileSize - 0.5, 0), tilesX - 1);
+            tileX[x] = (int) gx;
+            weightX[x] = (int) Math.round((gx - tileX[x]) * 256);
+        }
+        int[] columns = new int[tilesX + 1];
+        for (int y = 0; y < height; y++) {
+            double gy = Math.min(Math.max((y + 0.5) / tileSize - 0.5, 0), tilesY - 1);
+            int[] above = thresholds[(int) gy];
+            int[] below = thresholds[Math.min((int) gy + 1, tilesY - 1)];
+            int wy = (int) Math.round((gy - (int) gy) * 256);
+            for (int tx = 0; tx < tilesX; tx++) {
+                columns[tx] = above[tx] * (256 - wy) + below[tx] * wy;
+            }
+            columns[tilesX] = columns[tilesX - 1];
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int tx = tileX[x];
+                int threshold = (columns[tx] * (256 - weightX[x]) + columns[tx + 1] * weightX[x]) >> 16;
+                pixels[row + x] = (byte) ((pixels[row + x] & 0xff) < threshold ? 0 : 255);
+            }
+        }
+    }
+
+    private static int tileThreshold(int[] histogram) {
+        int threshold = otsu(histogram);
+        long darkSum = 0, darkCount = 0, lightSum = 0, lightCount = 0;
+        for (int v = 0; v < 256; v++) {
+            if (v < threshold) {
+                darkSum += (long) v * histogram[v];
+                darkCount += histogram[v];
+            } else {
+                lightSum += (long) v * histogram[v];
+                lightCount += histogram[v];
+            }
+        }
+        long contrast = darkCount == 0 || lightCount == 0 ? 0 : lightSum / lightCount - darkSum / darkCount;
+        // Ink is a minority of a text tile; a mostly dark tile with modest contrast is shading
+        if (contrast < MIN_TILE_CONTRAST || (darkCount > lightCount && contrast < 3 * MIN_TILE_CONTRAST)) {
+            // Background: only pixels much darker than the tile average count as ink
+            long mean = (darkSum + lightSum) / Math.max(1, darkCount + lightCount);
+            return (int) Math.max(0, mean - MIN_TILE_CONTRAST);
+        }
+        return threshold;
+    }
+
+    /**
+     * Otsu's threshold: values below it are dark.
+     */
+    static int otsu(int[] histogram) {
+        long total = 0;
+        long sum = 0;
+        for (int v = 0; v < 256; v++) {
+            total += histogram[v];
+            sum += (long) v * histogram[v];
+        }
+        long darkCount = 0;
+        long darkSum = 0;
+        double bestVariance = -1;
+        int best = 128;
+        for (int t = 1; t < 256; t++) {
+            darkCount += histogram[t - 1];
+            darkSum += (long) (t - 1) * histogram[t - 1];
+            long lightCount = total - darkCount;
+            if (darkCount == 0 || lightCount == 0) continue;
+            double meanDiff = (double) darkSum / darkCount - (double) (sum - darkSum) / lightCount;
+            double variance = (double) darkCount * lightCount * meanDiff * meanDiff;
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Average {@code factor}×{@code factor} blocks (remainders at the right and bottom edges
+     * are dropped).
+     */
+    private static byte[] boxReduce(byte[] src, int width, int height, int factor) {
+        int sw = width / factor;
+        int sh = height / factor;
+        byte[] dst = new byte[sw * sh];
+        int[] sums = new int[sw];
+        int area = factor * factor;
+        for (int y = 0; y < sh; y++) {
+            Arrays.fill(sums, 0);
+            for (int dy = 0; dy < factor; dy++) {
+                int row = (y * factor + dy) * width;
+                for (int x = 0; x < sw; x++) {
+                    int base = row + x * factor;
+                    for (int dx = 0; dx < factor; dx++) sums[x] += src[base + dx] & 0xff;
+                }
+            }
+            for (int x = 0; x < sw; x++) dst[y * sw + x] = (byte) (sums[x] / area);
+        }
+        return dst;
+    }
+
+    /**
+     * Copy to an 8-bit grayscale image, reading the common interleaved byte and packed int
+     * layouts straight from the raster. Transparent pixels are composited onto white.
+     */
+    public static BufferedImage toGray(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] dst = pixels(gray);
+
+        WritableRaster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        ColorModel colorModel = image.getColorModel();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        boolean alpha = colorModel.hasAlpha();
+
+        if (buffer instanceof DataBufferInt ints
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel packed
+                && (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)) {
+            int[] src = ints.getData();
+            int stride = packed.getScanlineStride();
+            for (int y = 0; y < height; y++) {
+                int in = ints.getOffset() + (y - ty) * stride - tx;
+                int out = y * width;
+                for (int x = 0; x < width; x++) {
+                    int argb = src[in + x];
+                    dst[out + x] = (byte) composite(luma((argb >> 16) & 0xff, (argb >> 8) & 0xff, argb & 0xff),
+                            alpha ? argb >>> 24 : 255);
+                }
+            }
+        } else if (buffer instanceof DataBufferByte bytes && bytes.getNumBanks() == 1
+                && raster.getSampleModel() instanceof ComponentSampleModel component
+                && !colorModel.isAlphaPremultiplied()
+                && colorModel.getComponentSize(0) == 8
+                && isGrayOrRgb(colorModel, component.getNumBands())) {
+            byte[] src = bytes.getData();
+            int stride = component.getScanlineStride();
+            int pixelStride = component.getPixelStride();
+            int[] bands = component.getBandOffsets();
+            int base0 = bytes.getOffset() - ty * stride - tx * pixelStride;
+            boolean rgb = colorModel.getNumColorComponents() == 3;
+            for (int y = 0; y < height; y++) {
+                int in = base0 + y * stride;
+                int out = y * width;
+                for (int x = 0; x < width; x++, in += pixelStride) {
+                    int value = rgb
+                            ? luma(src[in + bands[0]] & 0xff, src[in + bands[1]] & 0xff, src[in + bands[2]] & 0xff)
+                            : src[in + bands[0]] & 0xff;
+                    int a = alpha ? src[in + bands[bands.length - 1]] & 0xff : 255;
+                    dst[out + x] = (byte) composite(value, a);
+                }
+            }
+        } else {
+            // Indexed, 16-bit and other layouts
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                int out = y * width;
+                for (int x = 0; x < width; x++) {
+                    int argb = row[x];
+                    dst[out + x] = (byte) composite(luma((argb >> 16) & 0xff, (argb >> 8) & 0xff, argb & 0xff),
+                            argb >>> 24);
+                }
+            }
+        }
+        return gray;
+    }
+
+    private static boolean isGrayOrRgb(ColorModel colorModel, int bands) {
+        int colors = colorModel.getNumColorComponents();
+        int type = colorModel.getColorSpace().getType();
+        return bands == colors + (colorModel.hasAlpha() ? 1 : 0)
+                && ((colors == 1 && type == ColorSpace.TYPE_GRAY) || (colors == 3 && type == ColorSpace.TYPE_RGB));
+    }
+
+    private static int luma(int r, int g, int b) {
+        return (77 * r + 150 * g + 29 * b) >> 8;
+    }
+
+    private static int composite(int value, int alpha) {
+        return alpha == 255 ? value : (value * alpha + 255 * (255 - alpha)) / 255;
+    }
+
+    private static byte[] pixels(BufferedImage gray) {
+        return ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,18 @@
+package com.patientvocate.service.ocr;
+
+/**
+ * Text recognized by one Tesseract pass plus its word confidences (0-100).
+ *
+ * @param meanConfidence mean confidence over all words, or 0 if there are none
+ * @param lowConfidenceWords words below the threshold passed to the engine
+ */
+public record Recognition(String text, int words, int meanConfidence, int lowConfidenceWords) {
+
+    public boolean isBlank() {
+        return text == null || text.isBlank();
+    }
+
+    public double lowConfidenceRatio() {
+        return words == 0 ? 1 : (double) lowConfidenceWords / words;
+    }
+}
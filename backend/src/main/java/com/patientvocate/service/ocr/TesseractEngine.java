@@ -0,0 +1,125 @@
+package com.patientvocate.service.ocr;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.TesseractException;
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+/**
+ * A native Tesseract handle that has already loaded its traineddata.
+ * Unlike {@link net.sourceforge.tess4j.Tesseract}, which creates and destroys the
+ * native engine on every doOCR call, an engine is initialized once and reused.
+ * Not thread-safe: borrow one from {@link TesseractPool} per recognition.
+ */
+public class TesseractEngine {
+
+    private final TessAPI api;
+    private final ITessAPI.TessBaseAPI handle;
+    private final String language;
+    private volatile boolean closed;
+
+    private TesseractEngine(TessAPI api, ITessAPI.TessBaseAPI handle, String language) {
+        this.api = api;
+        this.handle = handle;
+        this.language = language;
+    }
+
+    /**
+     * Create and initialize a native engine.
+     *
+     * @param datapath tessdata directory, or null for the native default / TESSDATA_PREFIX
+     */
+    static TesseractEngine create(TessAPI api, String datapath, String language) throws TesseractException {
+        ITessAPI.TessBaseAPI handle = api.TessBaseAPICreate();
+        int rc = api.TessBaseAPIInit2(handle, datapath, language, ITessAPI.TessOcrEngineMode.OEM_DEFAULT);
+        if (rc != 0) {
+            api.TessBaseAPIDelete(handle);
+            throw new TesseractException("Error initializing Tesseract (language: " + language
+                    + ", tessdata: " + (datapath != null ? datapath : "default") + ")");
+        }
+        return new TesseractEngine(api, handle, language);
+    }
+
+    /**
+     * Recognize text in an image with the given page segmentation mode
+     * ({@link ITessAPI.TessPageSegMode}). Images that are not 8-bit grayscale are converted first.
+     *
+     * @param lowConfidence words below this confidence are counted as low-confidence
+     */
+    public Recognition recognize(BufferedImage image, int pageSegMode, int lowConfidence) throws TesseractException {
+        if (closed) throw new TesseractException("Tesseract engine has been closed");
+
+        BufferedImage gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                ? image
+                : ImageHelper.convertImageToGrayscale(image);
+
+        ByteBuffer pixels = ImageIOHelper.convertImageData(gray);
+        int bpp = gray.getColorModel().getPixelSize();
+        int bytesPerLine = (int) Math.ceil(gray.getWidth() * bpp / 8.0);
+
+        try {
+            api.TessBaseAPISetPageSegMode(handle, pageSegMode);
+            api.TessBaseAPISetImage(handle, pixels, gray.getWidth(), gray.getHeight(), bpp / 8, bytesPerLine);
+            Pointer textPtr = api.TessBaseAPIGetUTF8Text(handle);
+            if (textPtr == null) {
+                throw new TesseractException("Tesseract returned no text");
+            }
+            String text;
+            try {
+                text = textPtr.getString(0, "UTF-8");
+            } finally {
+                api.TessDeleteText(textPtr);
+            }
+            return withConfidences(text, lowConfidence);
+        } catch (TesseractException e) {
+            throw e;
+        } catch (RuntimeException | Error e) {
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Read the per-word confidences of the last recognition (a native array ending in -1).
+     */
+    private Recognition withConfidences(String text, int lowConfidence) {
+        IntByReference confidences = api.TessBaseAPIAllWordConfidences(handle);
+        if (confidences == null) {
+            return new Recognition(text, 0, 0, 0);
+        }
+        Pointer array = confidences.getPointer();
+        int words = 0;
+        long sum = 0;
+        int low = 0;
+        for (int confidence; (confidence = array.getInt(4L * words)) >= 0; words++) {
+            sum += confidence;
+            if (confidence < lowConfidence) low++;
+        }
+        api.TessDeleteIntArray(array.getByteBuffer(0, 4L * (words + 1)).asIntBuffer());
+        return new Recognition(text, words, words == 0 ? 0 : (int) (sum / words), low);
+    }
+
+    /**
+     * Release per-image state (image and recognition results) while keeping the
+     * loaded language model, ready for the next borrower.
+     */
+    void reset() {
+        if (!closed) {
+            api.TessBaseAPIClear(handle);
+        }
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        api.TessBaseAPIEnd(handle);
+        api.TessBaseAPIDelete(handle);
+    }
+
+    public String getLanguage() { return language; }
+}
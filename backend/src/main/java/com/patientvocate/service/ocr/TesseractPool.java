@@ -0,0 +1,282 @@
+package com.patientvocate.service.ocr;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.TesseractException;
+import net.sourceforge.tess4j.util.LoadLibs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of pre-initialized {@link TesseractEngine}s, one sub-pool per language.
+ * The tessdata path is resolved once at startup and each engine loads its
+ * traineddata once, instead of on every OCR request.
+ */
+@Component
+public class TesseractPool {
+
+    private static final Logger log = LoggerFactory.getLogger(TesseractPool.class);
+
+    private static final String[] COMMON_TESSDATA_PATHS = {
+            "/usr/share/tesseract-ocr/4.00/tessdata",
+            "/usr/share/tesseract-ocr/5/tessdata",
+            "/usr/share/tessdata"
+    };
+
+    /**
+     * Work to run against a borrowed engine.
+     */
+    @FunctionalInterface
+    public interface EngineTask<T> {
+        T run(TesseractEngine engine) throws TesseractException;
+    }
+
+    private final String defaultLanguage;
+    private final int maxPerLanguage;
+    private final boolean prewarm;
+    private final long borrowTimeoutMillis;
+    private final String datapath;
+    private final Map<String, LanguagePool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalHoldNanos = new AtomicLong();
+    private final AtomicLong maxHoldNanos = new AtomicLong();
+
+    private volatile TessAPI api;
+
+    public TesseractPool(@Value("${ocr.tessdata-path:}") String tessdataPath,
+                         @Value("${ocr.language:eng}") String defaultLanguage,
+                         @Value("${ocr.pool.size:0}") int poolSize,
+                         @Value("${ocr.pool.prewarm:true}") boolean prewarm,
+                         @Value("${ocr.pool.borrow-timeout-seconds:120}") long borrowTimeoutSeconds) {
+        this.defaultLanguage = defaultLanguage;
+        this.maxPerLanguage = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.prewarm = prewarm;
+        this.borrowTimeoutMillis = TimeUnit.SECONDS.toMillis(borrowTimeoutSeconds);
+        this.datapath = resolveDatapath(tessdataPath, defaultLanguage);
+    }
+
+    /**
+     * Initialize engines for the default language so the first requests don't pay for it.
+     * A missing native library only disables pre-warming; OCR requests will report the error.
+     */
+    @PostConstruct
+    public void warmUp() {
+        if (!prewarm) return;
+        long start = System.nanoTime();
+        LanguagePool pool = pool(defaultLanguage);
+        int created = 0;
+        try {
+            for (int i = 0; i < maxPerLanguage; i++) {
+                TesseractEngine engine = pool.tryCreate();
+                if (engine == null) break;
+                pool.idle.offer(engine);
+                created++;
+            }
+            log.info("Pre-warmed {} Tesseract engines for '{}' in {} ms (tessdata: {})",
+                    created, defaultLanguage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    datapath != null ? datapath : "default");
+        } catch (TesseractException | RuntimeException e) {
+            log.warn("Tesseract pre-warm failed, engines will be created on demand: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Borrow an engine for {@code language}, run the task, and return the engine to the pool.
+     */
+    public <T> T withEngine(String language, EngineTask<T> task) throws TesseractException {
+        String lang = language != null && !language.isBlank() ? language : defaultLanguage;
+        LanguagePool pool = pool(lang);
+
+        TesseractEngine engine = borrow(pool);
+        long holdStart = System.nanoTime();
+        boolean healthy = false;
+        try {
+            T result = task.run(engine);
+            healthy = true;
+            return result;
+        } finally {
+            long held = System.nanoTime() - holdStart;
+            totalHoldNanos.addAndGet(held);
+            maxHoldNanos.accumulateAndGet(held, Math::max);
+            pool.release(engine, healthy);
+        }
+    }
+
+    public <T> T withEngine(EngineTask<T> task) throws TesseractException {
+        return withEngine(defaultLanguage, task);
+    }
+
+    public String getDefaultLanguage() { return defaultLanguage; }
+
+    public String getDatapath() { return datapath; }
+
+    public int getMaxPerLanguage() { return maxPerLanguage; }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = borrows.get();
+        stats.put("maxPerLanguage", maxPerLanguage);
+        Map<String, Object> languages = new LinkedHashMap<>();
+        pools.forEach((lang, pool) -> languages.put(lang, Map.of(
+                "created", pool.created.get(),
+                "idle", pool.idle.size(),
+                "inUse", pool.created.get() - pool.idle.size())));
+        stats.put("languages", languages);
+        stats.put("borrows", count);
+        stats.put("borrowTimeouts", borrowTimeouts.get());
+        stats.put("avgWaitMs", count == 0 ? 0.0 : totalWaitNanos.get() / 1e6 / count);
+        stats.put("maxWaitMs", maxWaitNanos.get() / 1e6);
+        stats.put("avgBorrowMs", count == 0 ? 0.0 : totalHoldNanos.get() / 1e6 / count);
+        stats.put("maxBorrowMs", maxHoldNanos.get() / 1e6);
+        return stats;
+    }
+
+    public long getBorrowCount() { return borrows.get(); }
+    public long getTotalWaitNanos() { return totalWaitNanos.get(); }
+    public long getTotalHoldNanos() { return totalHoldNanos.get(); }
+
+    public int getIdleCount() {
+        return pools.values().stream().mapToInt(p -> p.idle.size()).sum();
+    }
+
+    public int getCreatedCount() {
+        return pools.values().stream().mapToInt(p -> p.created.get()).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (LanguagePool pool : pools.values()) {
+            List<TesseractEngine> engines = new ArrayList<>();
+            pool.idle.drainTo(engines);
+            engines.forEach(TesseractEngine::close);
+        }
+    }
+
+    private TesseractEngine borrow(LanguagePool pool) throws TesseractException {
+        long waitStart = System.nanoTime();
+        try {
+            TesseractEngine engine = pool.idle.poll();
+            if (engine == null) {
+                engine = pool.tryCreate();
+            }
+            if (engine == null) {
+                engine = pool.idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (engine == null) {
+                borrowTimeouts.incrementAndGet();
+                throw new TesseractException("Timed out waiting for a free OCR engine");
+            }
+            return engine;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException("Interrupted while waiting for an OCR engine", e);
+        } finally {
+            long waited = System.nanoTime() - waitStart;
+            borrows.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    private LanguagePool pool(String language) {
+        return pools.computeIfAbsent(language, LanguagePool::new);
+    }
+
+    private TessAPI api() {
+        TessAPI local = api;
+        if (local == null) {
+            synchronized (this) {
+                if (api == null) {
+                    api = LoadLibs.getTessAPIInstance();
+                }
+                local = api;
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Resolve the tessdata directory once: explicit config wins, otherwise probe
+     * common Linux install locations for the default language's traineddata.
+     */
+    private static String resolveDatapath(String configured, String language) {
+        if (configured != null && !configured.isEmpty()) {
+            return configured;
+        }
+        String os = System.getProperty("os.name").toLowerCase();
+        if (!os.contains("win")) {
+            for (String path : COMMON_TESSDATA_PATHS) {
+                Path tessDataPath = Paths.get(path);
+                if (Files.exists(tessDataPath) && Files.exists(tessDataPath.resolve(language + ".traineddata"))) {
+                    log.info("Auto-detected Tesseract data path: {}", path);
+                    return path;
+                }
+            }
+        }
+        return null;
+    }
+
+    private final class LanguagePool {
+        final String language;
+        final LinkedBlockingQueue<TesseractEngine> idle = new LinkedBlockingQueue<>();
+        final AtomicInteger created = new AtomicInteger();
+
+        LanguagePool(String language) {
+            this.language = language;
+        }
+
+        /**
+         * Create a new engine if the pool is below capacity, otherwise return null.
+         */
+        TesseractEngine tryCreate() throws TesseractException {
+            while (true) {
+                int current = created.get();
+                if (current >= maxPerLanguage) return null;
+                if (created.compareAndSet(current, current + 1)) break;
+            }
+            try {
+                return TesseractEngine.create(api(), datapath, language);
+            } catch (TesseractException | RuntimeException e) {
+                created.decrementAndGet();
+                throw e;
+            } catch (LinkageError e) {
+                created.decrementAndGet();
+                throw new TesseractException("Tesseract native library could not be loaded: " + e.getMessage(), e);
+            }
+        }
+
+        void release(TesseractEngine engine, boolean healthy) {
+            if (healthy) {
+                try {
+                    engine.reset();
+                    idle.offer(engine);
+                    return;
+                } catch (RuntimeException e) {
+                    log.warn("Discarding Tesseract engine that failed to reset: {}", e.getMessage());
+                }
+            }
+            engine.close();
+            created.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.patientvocate.service.routing;
+
+import com.patientvocate.service.ai.AIService;
+import com.patientvocate.service.ai.CircuitBreaker;
+import com.patientvocate.service.ai.ProviderHealthMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the AI provider for requests made with provider "auto". Each provider/model keeps an
+ * exponentially weighted moving average of analysis latency and error rate; providers are
+ * ranked by expected time to a usable answer (latency divided by success rate), skipping
+ * those whose circuit is open or whose last health probe failed. A small share of requests
+ * goes to the runner-up so its statistics stay current.
+ */
+@Component
+public class ProviderRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderRouter.class);
+
+    public static final String AUTO = "auto";
+
+    private final List<AIService> services;
+    private final ProviderHealthMonitor healthMonitor;
+    private final double alpha;
+    private final double exploreRatio;
+    private final Map<String, ProviderStats> stats = new LinkedHashMap<>();
+    private final RoutingAIService routingService;
+
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    public ProviderRouter(List<AIService> services, ProviderHealthMonitor healthMonitor,
+                          @Value("${ai.routing.ewma-alpha:0.2}") double alpha,
+                          @Value("${ai.routing.explore-ratio:0.05}") double exploreRatio,
+                          @Value("${ai.routing.hedge.enabled:true}") boolean hedgeEnabled,
+                          @Value("${ai.routing.hedge.delay-ms:10000}") long hedgeDelayMs) {
+        this.services = List.copyOf(services);
+        this.healthMonitor = healthMonitor;
+        this.alpha = Math.min(1, Math.max(0.01, alpha));
+        this.exploreRatio = Math.max(0, exploreRatio);
+        for (AIService service : services) {
+            stats.put(key(service), new ProviderStats());
+        }
+        this.routingService = new RoutingAIService(this, hedgeEnabled, Duration.ofMillis(hedgeDelayMs));
+        log.info("Auto routing across {} (hedging {}, delay {} ms)",
+                services.stream().map(AIService::getProviderName).toList(),
+                hedgeEnabled ? "enabled" : "disabled", hedgeDelayMs);
+    }
+
+    /**
+     * The {@link AIService} that routes each call to the best provider.
+     */
+    public AIService getRoutingService() {
+        return routingService;
+    }
+
+    /**
+     * Providers in preferred order. Usable providers come first, ranked by score; if none is
+     * usable all are returned so the request still gets a real error.
+     */
+    public List<AIService> rank() {
+        // Snapshot scores so concurrent updates cannot reorder them mid-sort
+        Map<AIService, Double> scores = new IdentityHashMap<>();
+        List<AIService> usable = new ArrayList<>();
+        List<AIService> unusable = new ArrayList<>();
+        for (AIService service : services) {
+            scores.put(service, stats.get(key(service)).score());
+            (isUsable(service) ? usable : unusable).add(service);
+        }
+        usable.sort(Comparator.comparingDouble(scores::get));
+        unusable.sort(Comparator.comparingDouble(scores::get));
+        if (usable.size() > 1 && ThreadLocalRandom.current().nextDouble() < exploreRatio) {
+            Collections.swap(usable, 0, 1);
+        }
+        List<AIService> ranked = new ArrayList<>(usable);
+        ranked.addAll(unusable);
+        return ranked;
+    }
+
+    /**
+     * Record the outcome of one analysis call. A fallback summary counts as an error.
+     */
+    public void record(AIService service, long latencyMs, boolean failed) {
+        ProviderStats s = stats.get(key(service));
+        if (s != null) s.record(latencyMs, failed, alpha);
+    }
+
+    void hedgeLaunched() {
+        hedges.incrementAndGet();
+    }
+
+    void hedgeWon() {
+        hedgeWins.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> providers = new LinkedHashMap<>();
+        for (AIService service : services) {
+            Map<String, Object> entry = stats.get(key(service)).snapshot();
+            entry.put("usable", isUsable(service));
+            providers.put(key(service), entry);
+        }
+        result.put("providers", providers);
+        result.put("hedges", hedges.get());
+        result.put("hedgeWins", hedgeWins.get());
+        return result;
+    }
+
+    private boolean isUsable(AIService service) {
+        CircuitBreaker breaker = service.getCircuitBreaker();
+        if (breaker != null && breaker.getState() == CircuitBreaker.State.OPEN) {
+            return false;
+        }
+        ProviderHealthMonitor.ProviderStatus status = healthMonitor.getStatus(service.getProviderName());
+        return status == null || status.available();
+    }
+
+    private static String key(AIService service) {
+        return service.getProviderName() + "/" + service.getModelName();
+    }
+
+    private static final class ProviderStats {
+
+        private long samples;
+        private double latencyMs;
+        private double errorRate;
+
+        synchronized void record(long latency, boolean failed, double alpha) {
+            if (samples == 0) {
+                latencyMs = latency;
+                errorRate = failed ? 1 : 0;
+            } else {
+                latencyMs += alpha * (latency - latencyMs);
+                errorRate += alpha * ((failed ? 1 : 0) - errorRate);
+            }
+            samples++;
+        }
+
+        /**
+         * Expected milliseconds to a usable answer. Providers without samples score 0 so
+         * they are tried first.
+         */
+        synchronized double score() {
+            if (samples == 0) return 0;
+            return latencyMs / Math.max(0.05, 1 - errorRate);
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("samples", samples);
+            snapshot.put("latencyMs", Math.round(latencyMs));
+            snapshot.put("errorRate", Math.round(errorRate * 1000) / 1000.0);
+            snapshot.put("score", Math.round(score()));
+            return snapshot;
+        }
+    }
+}
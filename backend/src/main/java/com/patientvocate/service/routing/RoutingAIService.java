@@ -0,0 +1,251 @@
+package com.patientvocate.service.routing;
+
+import com.patientvocate.model.ChatMessage;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.ai.AIService;
+import com.patientvocate.service.ai.ProviderHttpClient;
+import com.patientvocate.service.session.ChatSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The "auto" provider: every call goes to the provider ranked first by {@link ProviderRouter}.
+ * Analysis calls feed the router's latency and error statistics. With hedging enabled, an
+ * analysis still running after the hedge delay (or failing before it) is raced against the
+ * runner-up provider; the first ReportSummary that is not a fallback wins and the other
+ * call is cancelled.
+ */
+class RoutingAIService implements AIService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingAIService.class);
+
+    private final ProviderRouter router;
+    private final boolean hedgeEnabled;
+    private final Duration hedgeDelay;
+
+    RoutingAIService(ProviderRouter router, boolean hedgeEnabled, Duration hedgeDelay) {
+        this.router = router;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    @Override
+    public ReportSummary analyzeReport(String reportText) {
+        return ProviderHttpClient.join(analyzeReportAsync(reportText));
+    }
+
+    @Override
+    public CompletableFuture<ReportSummary> analyzeReportAsync(String reportText) {
+        return race(service -> service.analyzeReportAsync(reportText));
+    }
+
+    @Override
+    public CompletableFuture<ReportSummary> explainFindingsAsync(String reportText, List<Finding> findings,
+                                                                 Set<String> knownTests, Set<String> knownTerms) {
+        return race(service -> service.explainFindingsAsync(reportText, findings, knownTests, knownTerms));
+    }
+
+    /**
+     * Not hedged: the output is already being streamed to the client.
+     */
+    @Override
+    public ReportSummary streamAnalyzeReport(String reportText, Consumer<String> onText) {
+        AIService service = best();
+        long start = System.nanoTime();
+        try {
+            ReportSummary summary = service.streamAnalyzeReport(reportText, onText);
+            router.record(service, elapsedMillis(start), summary == null || summary.isFallback());
+            return summary;
+        } catch (CancellationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            router.record(service, elapsedMillis(start), true);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> summarizeSectionsAsync(List<String> sectionSummaries, List<Finding> findings) {
+        return best().summarizeSectionsAsync(sectionSummaries, findings);
+    }
+
+    @Override
+    public String answerFollowUp(String reportText, String analysisSummary,
+                                 String question, List<ChatMessage> conversationHistory) {
+        return best().answerFollowUp(reportText, analysisSummary, question, conversationHistory);
+    }
+
+    @Override
+    public CompletableFuture<String> answerFollowUpAsync(String reportText, String analysisSummary,
+                                                         String question, List<ChatMessage> conversationHistory) {
+        return best().answerFollowUpAsync(reportText, analysisSummary, question, conversationHistory);
+    }
+
+    @Override
+    public String streamFollowUp(String reportText, String analysisSummary, String question,
+                                 List<ChatMessage> conversationHistory, Consumer<String> onToken) {
+        return best().streamFollowUp(reportText, analysisSummary, question, conversationHistory, onToken);
+    }
+
+    @Override
+    public String answerFollowUp(ChatSession session, String question) {
+        return best().answerFollowUp(session, question);
+    }
+
+    @Override
+    public String streamFollowUp(ChatSession session, String question, Consumer<String> onToken) {
+        return best().streamFollowUp(session, question, onToken);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return router.getStats();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return router.rank().stream().anyMatch(AIService::isAvailable);
+    }
+
+    @Override
+    public String getProviderName() {
+        return ProviderRouter.AUTO;
+    }
+
+    @Override
+    public String getModelName() {
+        return ProviderRouter.AUTO;
+    }
+
+    private AIService best() {
+        return router.rank().get(0);
+    }
+
+    private CompletableFuture<ReportSummary> race(Function<AIService, CompletableFuture<ReportSummary>> call) {
+        List<AIService> ranked = router.rank();
+        AIService alternate = hedgeEnabled && ranked.size() > 1 ? ranked.get(1) : null;
+        return new Race(call, ranked.get(0), alternate).start();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static boolean usable(ReportSummary summary) {
+        return summary != null && !summary.isFallback();
+    }
+
+    /**
+     * One analysis, sent to the primary provider and, if it is slow or fails, to the alternate.
+     */
+    private final class Race {
+
+        private final Function<AIService, CompletableFuture<ReportSummary>> call;
+        private final AIService primary;
+        private final AIService alternate;
+        private final CompletableFuture<ReportSummary> result = new CompletableFuture<>();
+        private final List<CompletableFuture<ReportSummary>> attempts = new ArrayList<>();
+
+        private boolean alternateLaunched;
+        private int pending;
+        private ReportSummary fallback;  // first fallback summary, used if nothing better arrives
+        private Throwable firstError;
+
+        Race(Function<AIService, CompletableFuture<ReportSummary>> call, AIService primary, AIService alternate) {
+            this.call = call;
+            this.primary = primary;
+            this.alternate = alternate;
+        }
+
+        CompletableFuture<ReportSummary> start() {
+            launch(primary);
+            if (alternate != null) {
+                CompletableFuture.delayedExecutor(hedgeDelay.toMillis(), TimeUnit.MILLISECONDS)
+                        .execute(() -> hedge("still running after " + hedgeDelay.toMillis() + " ms"));
+            }
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) cancelAll();
+            });
+            return result;
+        }
+
+        private void hedge(String reason) {
+            synchronized (this) {
+                if (result.isDone() || alternateLaunched) return;
+                alternateLaunched = true;
+            }
+            log.info("Hedging {} analysis ({}) with {}", primary.getProviderName(), reason, alternate.getProviderName());
+            router.hedgeLaunched();
+            launch(alternate);
+        }
+
+        private void launch(AIService service) {
+            long start = System.nanoTime();
+            CompletableFuture<ReportSummary> attempt;
+            try {
+                attempt = call.apply(service);
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            synchronized (this) {
+                attempts.add(attempt);
+                pending++;
+            }
+            attempt.whenComplete((summary, error) -> completed(service, elapsedMillis(start), summary, error));
+        }
+
+        private void completed(AIService service, long latencyMs, ReportSummary summary, Throwable error) {
+            Throwable cause = error != null ? ProviderHttpClient.unwrap(error) : null;
+            if (!(cause instanceof CancellationException)) {
+                router.record(service, latencyMs, cause != null || !usable(summary));
+            }
+
+            boolean won = false;
+            boolean failOver = false;
+            boolean exhausted = false;
+            synchronized (this) {
+                pending--;
+                if (result.isDone()) return;
+                if (cause == null && usable(summary)) {
+                    won = true;
+                } else {
+                    if (cause == null && fallback == null) fallback = summary;
+                    if (cause != null && firstError == null) firstError = cause;
+                    failOver = alternate != null && !alternateLaunched;
+                    exhausted = !failOver && pending == 0;
+                }
+            }
+
+            if (won) {
+                if (service != primary) router.hedgeWon();
+                result.complete(summary);
+                cancelAll();
+            } else if (failOver) {
+                hedge(primary.getProviderName() + " failed");
+            } else if (exhausted) {
+                if (fallback != null) result.complete(fallback);
+                else result.completeExceptionally(firstError);
+            }
+        }
+
+        private void cancelAll() {
+            List<CompletableFuture<ReportSummary>> running;
+            synchronized (this) {
+                running = new ArrayList<>(attempts);
+            }
+            running.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.patientvocate.service.session;
+
+import com.patientvocate.model.ChatMessage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-side context of one analyzed report, so follow-up questions only need to
+ * carry the analysis id and the new question.
+ */
+public class ChatSession {
+
+    private final String id;
+    private final String reportText;
+    private final String analysisSummary;
+    private final Instant createdAt = Instant.now();
+    private final List<ChatMessage> history = new ArrayList<>();
+    private final Map<String, Object> providerState = new ConcurrentHashMap<>();
+    private volatile Instant lastAccessedAt = createdAt;
+
+    ChatSession(String id, String reportText, String analysisSummary) {
+        this.id = id;
+        this.reportText = reportText;
+        this.analysisSummary = analysisSummary;
+    }
+
+    public String getId() { return id; }
+    public String getReportText() { return reportText; }
+    public String getAnalysisSummary() { return analysisSummary; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getLastAccessedAt() { return lastAccessedAt; }
+
+    void touch() {
+        lastAccessedAt = Instant.now();
+    }
+
+    /**
+     * Copy of the conversation so far, oldest first.
+     */
+    public synchronized List<ChatMessage> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * Record a completed question/answer turn.
+     */
+    public synchronized void addTurn(String question, String answer) {
+        history.add(new ChatMessage("user", question));
+        history.add(new ChatMessage("assistant", answer));
+    }
+
+    /**
+     * Provider-specific conversation state (e.g. Ollama's context tokens), keyed by provider name.
+     */
+    public Object getProviderState(String provider) {
+        return providerState.get(provider);
+    }
+
+    public void setProviderState(String provider, Object state) {
+        if (state == null) {
+            providerState.remove(provider);
+        } else {
+            providerState.put(provider, state);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.patientvocate.service.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory store of {@link ChatSession}s keyed by analysis id. Sessions expire after
+ * an idle TTL, and the least recently used session is evicted once the store is full.
+ */
+@Component
+public class ChatSessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatSessionStore.class);
+
+    private final int maxSessions;
+    private final Duration idleTtl;
+    private final LinkedHashMap<String, ChatSession> sessions;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ChatSessionStore(@Value("${chat.sessions.max-sessions:1000}") int maxSessions,
+                            @Value("${chat.sessions.ttl-minutes:60}") long ttlMinutes) {
+        this.maxSessions = Math.max(1, maxSessions);
+        this.idleTtl = Duration.ofMinutes(ttlMinutes);
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatSession> eldest) {
+                if (size() > ChatSessionStore.this.maxSessions) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Open a session for a freshly analyzed report.
+     *
+     * @return the new session; its id is the analysis id handed to the client
+     */
+    public ChatSession create(String reportText, String analysisSummary) {
+        ChatSession session = new ChatSession(UUID.randomUUID().toString(), reportText, analysisSummary);
+        synchronized (sessions) {
+            sessions.put(session.getId(), session);
+        }
+        created.incrementAndGet();
+        return session;
+    }
+
+    /**
+     * Look up a live session and refresh its idle timer.
+     *
+     * @return the session, or null if unknown or expired
+     */
+    public ChatSession get(String analysisId) {
+        if (analysisId == null) return null;
+        synchronized (sessions) {
+            ChatSession session = sessions.get(analysisId);
+            if (session == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (isExpired(session, Instant.now())) {
+                sessions.remove(analysisId);
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            session.touch();
+            return session;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.sessions.cleanup-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        int removed = 0;
+        synchronized (sessions) {
+            var it = sessions.values().iterator();
+            while (it.hasNext()) {
+                if (isExpired(it.next(), now)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            expirations.addAndGet(removed);
+            log.info("Expired {} idle chat sessions", removed);
+        }
+    }
+
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxSessions", maxSessions);
+        stats.put("created", created.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        return stats;
+    }
+
+    private boolean isExpired(ChatSession session, Instant now) {
+        return session.getLastAccessedAt().plus(idleTtl).isBefore(now);
+    }
+}
@@ -0,0 +1,129 @@
+package com.patientvocate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patientvocate.dto.ReportAnalysisResponse;
+import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.ai.AIService;
+import com.patientvocate.service.ai.ProviderHealthMonitor;
+import com.patientvocate.service.cache.AnalysisCache;
+import com.patientvocate.service.cache.KnowledgeCache;
+import com.patientvocate.service.chunk.ChunkedAnalyzer;
+import com.patientvocate.service.extract.LabValueExtractor;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import com.patientvocate.service.routing.ProviderRouter;
+import com.patientvocate.service.session.ChatSessionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportServiceTest {
+
+    private static final String REPORT = "Hemoglobin 13.5 g/dL (12.0 - 16.0)";
+
+    @Test
+    void leaderClientDisconnectDoesNotFailFollowers() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AIService provider = stubProvider();
+        when(provider.streamAnalyzeReport(anyString(), any())).thenAnswer(invocation -> {
+            leaderStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new ReportSummary("All results are within range.", List.of(), List.of(), List.of(), "Disclaimer");
+        });
+        AnalysisCache analysisCache = analysisCache();
+        ReportService service = reportService(provider, analysisCache, false);
+
+        ReportSummaryListener disconnected = new ReportSummaryListener() {
+            @Override
+            public void onSummary(String summary) {
+                throw new UncheckedIOException("Client disconnected", new IOException("Broken pipe"));
+            }
+        };
+        AtomicReference<ReportAnalysisResponse> leader = new AtomicReference<>();
+        AtomicReference<ReportAnalysisResponse> follower = new AtomicReference<>();
+        Thread leaderThread = new Thread(() -> leader.set(
+                service.streamAnalyzeText(REPORT, "stub", AnalysisProgressListener.NONE, disconnected)));
+        leaderThread.start();
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread followerThread = new Thread(() -> follower.set(service.analyzeText(REPORT, "stub")));
+        followerThread.start();
+        // Parked on the leader's flight
+        while (followerThread.getState() != Thread.State.WAITING) Thread.sleep(10);
+
+        release.countDown();
+        leaderThread.join(5000);
+        followerThread.join(5000);
+
+        assertThat(leader.get().isSuccess()).isFalse();
+        assertThat(follower.get().isSuccess()).isTrue();
+        assertThat(follower.get().getAnalysis().getSummary()).isEqualTo("All results are within range.");
+        verify(analysisCache, times(1)).put(eq("key"), any(ReportSummary.class));
+        verify(provider, times(1)).streamAnalyzeReport(anyString(), any());
+    }
+
+    @Test
+    void interruptingTheExtractorPathCancelsTheProviderCall() throws Exception {
+        CompletableFuture<ReportSummary> explanation = new CompletableFuture<>();
+        AIService provider = stubProvider();
+        when(provider.explainFindingsAsync(anyString(), anyList(), anySet(), anySet())).thenReturn(explanation);
+        ReportService service = reportService(provider, analysisCache(), true);
+
+        AtomicReference<ReportAnalysisResponse> response = new AtomicReference<>();
+        Thread worker = new Thread(() -> response.set(service.analyzeText("""
+                WBC 6.8 K/uL 4.0 - 11.0
+                Hemoglobin 9.1 L g/dL 12.0 - 16.0
+                Platelets 412 K/uL 150 - 400
+                """, "stub")));
+        worker.start();
+        verify(provider, timeout(5000)).explainFindingsAsync(anyString(), anyList(), anySet(), anySet());
+
+        worker.interrupt();
+        worker.join(5000);
+
+        assertThat(worker.isAlive()).isFalse();
+        assertThat(explanation.isCancelled()).isTrue();
+        assertThat(response.get().isSuccess()).isFalse();
+    }
+
+    private static AIService stubProvider() {
+        AIService provider = mock(AIService.class);
+        when(provider.getProviderName()).thenReturn("stub");
+        when(provider.getModelName()).thenReturn("stub-model");
+        return provider;
+    }
+
+    private static AnalysisCache analysisCache() {
+        AnalysisCache analysisCache = mock(AnalysisCache.class);
+        when(analysisCache.key(anyString(), anyString(), anyString())).thenReturn("key");
+        return analysisCache;
+    }
+
+    private static ReportService reportService(AIService provider, AnalysisCache analysisCache, boolean extractorEnabled) {
+        KnowledgeCache knowledgeCache = mock(KnowledgeCache.class);
+        when(knowledgeCache.lookup(anyList(), anyString())).thenReturn(KnowledgeCache.Lookup.EMPTY);
+        return new ReportService(List.of(provider), mock(PDFParserService.class),
+                mock(OCRService.class), analysisCache, new ChatSessionStore(10, 60), new LabValueExtractor(),
+                knowledgeCache, new ChunkedAnalyzer(false, 6000, 4000, 6), new ObjectMapper(),
+                new PipelineMetrics(new SimpleMeterRegistry()), mock(ProviderHealthMonitor.class),
+                mock(ProviderRouter.class), "stub", extractorEnabled, 3, true);
+    }
+}
@@ -0,0 +1,30 @@
+package com.patientvocate.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    @Test
+    void openCircuitAllowsOneTrialCallOnceTheOpenPeriodEnds() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMillis(50));
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onFailure(new IOException("connection refused"));
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        Thread.sleep(100);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+}
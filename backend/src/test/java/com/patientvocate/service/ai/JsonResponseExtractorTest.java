@@ -0,0 +1,79 @@
+package com.patientvocate.service.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.patientvocate.model.ReportSummary;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonResponseExtractorTest {
+
+    private static final Path FIXTURES = Path.of("src/jmh/resources/fixtures");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader nodeReader = objectMapper.readerFor(JsonNode.class);
+    private final ObjectReader summaryReader = objectMapper.readerFor(ReportSummary.class);
+
+    @Test
+    void readsPlainProviderResponse() throws IOException {
+        ReportSummary summary = JsonResponseExtractor.read(summaryReader, fixture("ollama-analysis.json"));
+
+        assertThat(summary.getSummary()).startsWith("Several results related to red blood cells");
+        assertThat(summary.getFindings()).isNotEmpty();
+    }
+
+    @Test
+    void skipsThinkBlockAndCodeFence() throws IOException {
+        // The reasoning contains braces of its own ("{microcytic}") and the answer is fenced
+        String response = fixture("openrouter-reasoning.txt");
+        assertThat(response).startsWith("<think>").contains("{microcytic}").contains("```json");
+
+        ReportSummary summary = JsonResponseExtractor.read(summaryReader, response);
+
+        assertThat(summary.getFindings()).isNotEmpty();
+        assertThat(summary.getDisclaimer()).contains("not medical advice");
+    }
+
+    @Test
+    void readsFencedJson() throws IOException {
+        JsonNode node = JsonResponseExtractor.read(nodeReader, "Here you go:\n```json\n{\"summary\": \"ok\"}\n```\n");
+
+        assertThat(node.path("summary").asText()).isEqualTo("ok");
+    }
+
+    @Test
+    void ignoresBracesInsideStrings() throws IOException {
+        String response = "{\"summary\": \"ranges like {4.0-11.0} and \\\"quoted }\\\" text\", \"count\": 2} trailing }";
+
+        JsonNode node = JsonResponseExtractor.read(nodeReader, response);
+
+        assertThat(node.path("summary").asText()).isEqualTo("ranges like {4.0-11.0} and \"quoted }\" text");
+        assertThat(node.path("count").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void skipsUnparseableCandidateBeforeTheAnswer() throws IOException {
+        JsonNode node = JsonResponseExtractor.read(nodeReader, "Format {like this}: {\"summary\": \"ok\"}");
+
+        assertThat(node.path("summary").asText()).isEqualTo("ok");
+    }
+
+    @Test
+    void returnsNullWithoutAJsonObject() throws IOException {
+        assertThat((Object) JsonResponseExtractor.read(nodeReader, null)).isNull();
+        assertThat((Object) JsonResponseExtractor.read(nodeReader, "")).isNull();
+        assertThat((Object) JsonResponseExtractor.read(nodeReader,
+                "<think>The answer should be {\"summary\": \"...\"} but I ran out of tokens</think>")).isNull();
+    }
+
+    private static String fixture(String name) throws IOException {
+        return Files.readString(FIXTURES.resolve(name), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package com.patientvocate.service.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import com.patientvocate.service.session.ChatSession;
+import com.patientvocate.service.session.ChatSessionStore;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OllamaAIServiceTest {
+
+    private static final int BUDGET_TOKENS = 2000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> requests = new CopyOnWriteArrayList<>();
+    private final List<int[]> contexts = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private OllamaAIService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Answers each /api/generate call with the next queued context
+        server.createContext("/api/generate", exchange -> {
+            requests.add(objectMapper.readTree(exchange.getRequestBody()));
+            int[] context = contexts.remove(0);
+            byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                    "response", "Answer " + requests.size(), "context", context, "done", true));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        ProviderHttpClient client = new ProviderHttpClient("ollama",
+                "http://127.0.0.1:" + server.getAddress().getPort(),
+                Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(5), 1, Map.of(),
+                new CircuitBreaker("ollama", 5, Duration.ofMinutes(1)));
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        service = new OllamaAIService(client, objectMapper,
+                new PromptBudget("ollama", BUDGET_TOKENS, new TokenEstimator(4.0), metrics), metrics);
+        ReflectionTestUtils.setField(service, "model", "test-model");
+        ReflectionTestUtils.setField(service, "keepAlive", "5m");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void compactedSessionCarriesTheNewContextForward() {
+        ChatSession session = new ChatSessionStore(10, 60).create("Hemoglobin 9.1 g/dL", "Hemoglobin is low.");
+        contexts.add(IntStream.range(0, BUDGET_TOKENS + 1).toArray()); // outgrows the budget
+        contexts.add(new int[] {1, 2, 3});
+        contexts.add(new int[] {1, 2, 3, 4, 5});
+
+        ask(session, "What is hemoglobin?");
+        ask(session, "Why is mine low?");
+        ask(session, "What should I ask my doctor?");
+
+        // Compaction: one fresh prompt with the report and the earlier turn, no old context
+        JsonNode compacted = requests.get(1);
+        assertThat(compacted.has("context")).isFalse();
+        assertThat(compacted.path("system").asText()).contains("Hemoglobin 9.1 g/dL");
+        assertThat(compacted.path("prompt").asText())
+                .contains("What is hemoglobin?", "Answer 1", "Why is mine low?");
+
+        // The context returned by the compacted turn is reused
+        JsonNode next = requests.get(2);
+        assertThat(next.has("system")).isFalse();
+        assertThat(next.path("prompt").asText()).isEqualTo("What should I ask my doctor?");
+        assertThat(next.path("context").toString()).isEqualTo("[1,2,3]");
+    }
+
+    private void ask(ChatSession session, String question) {
+        String answer = service.answerFollowUp(session, question);
+        session.addTurn(question, answer);
+    }
+}
@@ -0,0 +1,118 @@
+package com.patientvocate.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenRouterAIServiceTest {
+
+    private final CountDownLatch requestStarted = new CountDownLatch(1);
+    private final CountDownLatch clientGone = new CountDownLatch(1);
+    private volatile boolean stall;
+    private HttpServer server;
+    private ProviderHttpClient client;
+    private OpenRouterAIService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/chat/completions", exchange -> {
+            if (!stall) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            // Trickles whitespace until the client hangs up
+            exchange.sendResponseHeaders(200, 0);
+            requestStarted.countDown();
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 100; i++) {
+                    out.write(' ');
+                    out.flush();
+                    Thread.sleep(50);
+                }
+            } catch (IOException e) {
+                clientGone.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+
+        client = new ProviderHttpClient("openrouter",
+                "http://127.0.0.1:" + server.getAddress().getPort(),
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(5), 1, Map.of(),
+                new CircuitBreaker("openrouter", 5, Duration.ofMinutes(1)));
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        service = new OpenRouterAIService(client, new ObjectMapper(),
+                new PromptBudget("openrouter", 8000, new TokenEstimator(4.0), metrics), metrics);
+        ReflectionTestUtils.setField(service, "apiKey", "test-key");
+        ReflectionTestUtils.setField(service, "model", "test-model");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void failedFollowUpIsReportedAsAnErrorRatherThanAnAnswer() {
+        assertThatThrownBy(() -> service.answerFollowUp("report", "summary", "What does it mean?", List.of()))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Failed to get response from AI model");
+    }
+
+    @Test
+    void cancellingAnAnalysisAbortsTheRequestAndFreesItsPermit() throws Exception {
+        stall = true;
+        CompletableFuture<?> analysis = service.analyzeReportAsync("report");
+        assertThat(requestStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(client.getInFlight()).isEqualTo(1);
+
+        analysis.cancel(true);
+
+        assertThat(client.getInFlight()).isZero();
+        assertThat(clientGone.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void interruptedStreamingAnalysisIsCancelledRatherThanAFallback() throws Exception {
+        stall = true;
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                outcome.set(service.streamAnalyzeReport("report", text -> {}));
+            } catch (RuntimeException e) {
+                outcome.set(e);
+            }
+        });
+        caller.start();
+        assertThat(requestStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        caller.interrupt();
+        caller.join(5000);
+
+        assertThat(outcome.get()).isInstanceOf(CancellationException.class);
+        assertThat(clientGone.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,46 @@
+package com.patientvocate.service.ai;
+
+import com.patientvocate.model.ChatMessage;
+import com.patientvocate.service.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptBudgetTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PipelineMetrics metrics = new PipelineMetrics(registry);
+
+    @Test
+    void recordsTokensBeforeAndAfterPerProvider() {
+        PromptBudget ollama = new PromptBudget("ollama", 1000, new TokenEstimator(4.0), metrics);
+        PromptBudget openRouter = new PromptBudget("openrouter", 100_000, new TokenEstimator(4.0), metrics);
+        String report = "Hemoglobin 11.2 g/dL L\n\n" + "Sodium 140 mmol/L\n\n".repeat(400);
+        List<ChatMessage> history = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            history.add(new ChatMessage("user", "Question " + i + " about my results?"));
+            history.add(new ChatMessage("assistant", "An answer about the results. ".repeat(20)));
+        }
+
+        PromptBudget.FittedPrompt trimmed = ollama.fit(report, "Summary.", "What about hemoglobin?", history);
+        PromptBudget.FittedPrompt untouched = openRouter.fit(report, "Summary.", "What about hemoglobin?", history);
+
+        assertThat(trimmed.tokensAfter()).isLessThan(trimmed.tokensBefore());
+        assertThat(untouched.tokensAfter()).isEqualTo(untouched.tokensBefore());
+
+        assertThat(summary("ollama", "before").count()).isEqualTo(1);
+        assertThat(summary("ollama", "before").totalAmount()).isEqualTo(trimmed.tokensBefore());
+        assertThat(summary("ollama", "after").totalAmount()).isEqualTo(trimmed.tokensAfter());
+        assertThat(summary("openrouter", "before").totalAmount()).isEqualTo(untouched.tokensBefore());
+        assertThat(summary("openrouter", "after").totalAmount()).isEqualTo(untouched.tokensAfter());
+    }
+
+    private DistributionSummary summary(String provider, String stage) {
+        return registry.get("patientvocate.prompt.tokens").tags("provider", provider, "stage", stage).summary();
+    }
+}
@@ -0,0 +1,72 @@
+package com.patientvocate.service.ai;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProviderHttpClientTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Sends one line, then stalls without closing the response
+        server.createContext("/stall", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("{\"response\":\"first\"}\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ignored) {
+                // Client aborted the exchange
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void stalledStreamFailsAfterIdleTimeoutAndCountsAsProviderFailure() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMinutes(1));
+        ProviderHttpClient client = new ProviderHttpClient("test",
+                "http://127.0.0.1:" + server.getAddress().getPort(),
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMillis(300), 1, Map.of(), breaker);
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> stream = client.postStreaming("/stall", "{}", "application/x-ndjson", lines::add);
+
+        assertThatThrownBy(() -> stream.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(HttpTimeoutException.class);
+        assertThat(lines).containsExactly("{\"response\":\"first\"}");
+        assertThat(client.getInFlight()).isZero();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,145 @@
+package com.patientvocate.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patientvocate.model.DiscussionQuestion;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.GlossaryEntry;
+import com.patientvocate.service.ReportSummaryListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportSummaryStreamParserTest {
+
+    // Nested objects and arrays inside a finding, an escaped quote, a multi-byte unit and an
+    // unknown top-level object that must not be mistaken for a part
+    private static final String DOCUMENT = """
+            {
+              "summary": "Mostly normal; \\"iron\\" is low.",
+              "meta": {"model": "x", "findings": [{"testName": "Ignored"}]},
+              "findings": [
+                {"testName": "Hemoglobin", "value": "11.2 g/dL", "status": "ABNORMAL",
+                 "source": {"page": 2, "cells": [{"col": "A", "span": {"from": 1, "to": 2}}]},
+                 "explanation": "Carries oxygen {in red cells}."},
+                {"testName": "Ferritin", "value": "8 µg/L", "referenceRange": "≥ 15", "status": "ABNORMAL",
+                 "explanation": "Stored iron."}
+              ],
+              "glossary": [{"term": "Anemia", "definition": "Too few red cells."}],
+              "discussionQuestions": [{"question": "Should I take iron?", "context": "Ferritin is low."}],
+              "disclaimer": "Not medical advice."
+            }
+            """;
+
+    private static final List<String> EXPECTED = List.of(
+            "summary:Mostly normal; \"iron\" is low.",
+            "finding:Hemoglobin|11.2 g/dL|Carries oxygen {in red cells}.",
+            "finding:Ferritin|8 µg/L|Stored iron.",
+            "glossary:Anemia",
+            "question:Should I take iron?",
+            "disclaimer:Not medical advice.");
+
+    private static final String FENCED = "Here is the analysis you asked for:\n```json\n" + DOCUMENT + "```\nDone.";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void emitsPartsInOrderWhenFedWhole() {
+        assertThat(parse(List.of(DOCUMENT))).containsExactlyElementsOf(EXPECTED);
+    }
+
+    @Test
+    void emitsTheSamePartsWhateverTheSplitPoint() {
+        for (String text : List.of(DOCUMENT, FENCED)) {
+            for (int i = 0; i <= text.length(); i++) {
+                List<String> events = parse(List.of(text.substring(0, i), text.substring(i)));
+                assertThat(events).as("split at %d", i).containsExactlyElementsOf(EXPECTED);
+            }
+        }
+    }
+
+    @Test
+    void emitsTheSamePartsWhenFedInRandomFragments() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            String text = run % 2 == 0 ? DOCUMENT : FENCED;
+            List<String> fragments = new ArrayList<>();
+            for (int start = 0; start < text.length(); ) {
+                int end = Math.min(text.length(), start + 1 + random.nextInt(12));
+                fragments.add(text.substring(start, end));
+                start = end;
+            }
+            assertThat(parse(fragments)).as("run %d", run).containsExactlyElementsOf(EXPECTED);
+        }
+    }
+
+    @Test
+    void emitsEachPartAsSoonAsItCloses() {
+        List<String> events = new ArrayList<>();
+        ReportSummaryStreamParser parser = new ReportSummaryStreamParser(objectMapper, recorder(events));
+
+        int firstFindingEnd = DOCUMENT.indexOf("red cells}.\"}") + "red cells}.\"}".length();
+        parser.feed(DOCUMENT.substring(0, firstFindingEnd - 1));
+        assertThat(events).containsExactly(EXPECTED.get(0));
+
+        parser.feed(DOCUMENT.substring(firstFindingEnd - 1, firstFindingEnd));
+        assertThat(events).containsExactly(EXPECTED.get(0), EXPECTED.get(1));
+
+        parser.feed(DOCUMENT.substring(firstFindingEnd));
+        assertThat(events).containsExactlyElementsOf(EXPECTED);
+        assertThat(parser.isComplete()).isTrue();
+        assertThat(parser.getEmitted()).isEqualTo(EXPECTED.size());
+    }
+
+    @Test
+    void stopsQuietlyOnMalformedInput() {
+        List<String> events = new ArrayList<>();
+        ReportSummaryStreamParser parser = new ReportSummaryStreamParser(objectMapper, recorder(events));
+
+        parser.feed("{\"summary\": \"ok\", \"findings\": [}");
+        parser.feed("{\"testName\": \"Late\"}]}");
+
+        assertThat(events).containsExactly("summary:ok");
+        assertThat(parser.isComplete()).isFalse();
+    }
+
+    private List<String> parse(List<String> fragments) {
+        List<String> events = new ArrayList<>();
+        ReportSummaryStreamParser parser = new ReportSummaryStreamParser(objectMapper, recorder(events));
+        fragments.forEach(parser::feed);
+        assertThat(parser.isComplete()).isTrue();
+        return events;
+    }
+
+    private static ReportSummaryListener recorder(List<String> events) {
+        return new ReportSummaryListener() {
+            @Override
+            public void onSummary(String summary) {
+                events.add("summary:" + summary);
+            }
+
+            @Override
+            public void onFinding(Finding finding) {
+                events.add("finding:" + finding.getTestName() + "|" + finding.getValue() + "|" + finding.getExplanation());
+            }
+
+            @Override
+            public void onGlossaryEntry(GlossaryEntry entry) {
+                events.add("glossary:" + entry.getTerm());
+            }
+
+            @Override
+            public void onDiscussionQuestion(DiscussionQuestion question) {
+                events.add("question:" + question.getQuestion());
+            }
+
+            @Override
+            public void onDisclaimer(String disclaimer) {
+                events.add("disclaimer:" + disclaimer);
+            }
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package com.patientvocate.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patientvocate.model.DiscussionQuestion;
+import com.patientvocate.model.Finding;
+import com.patientvocate.model.GlossaryEntry;
+import com.patientvocate.model.ReportSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KnowledgeCacheTest {
+
+    private static final String GENERAL = "Ferritin is a protein that stores iron. It shows how much iron the body has in reserve.";
+
+    private final KnowledgeCache cache = new KnowledgeCache(new ObjectMapper(), new DefaultResourceLoader(),
+            true, 100, "", "");
+
+    @Test
+    void learnsGeneralExplanationsAndDefinitions() {
+        List<Finding> extracted = List.of(extracted("Ferritin", "8 ug/L"));
+
+        cache.learn(extracted, explained(List.of(explanation("Ferritin", GENERAL)),
+                List.of(new GlossaryEntry("Anemia", "Too few healthy red blood cells."))), KnowledgeCache.Lookup.EMPTY);
+
+        KnowledgeCache.Lookup lookup = cache.lookup(extracted, "Ferritin 8 ug/L (LOW), consistent with anemia");
+        assertThat(lookup.explanations()).containsValue(GENERAL);
+        assertThat(lookup.knownTests(extracted)).containsExactly("Ferritin");
+        assertThat(lookup.knownTerms()).containsExactly("Anemia");
+    }
+
+    @Test
+    void doesNotLearnExplanationsAboutThisPatientsResult() {
+        List<String> personal = List.of(
+                "Ferritin stores iron. Your level is below the usual range.",
+                "Ferritin stores iron; if you feel tired, ask about it.",
+                "Ferritin stores iron, and it is slightly low here.",
+                "Ferritin stores iron. The result came back elevated.",
+                "Ferritin stores iron and this value suggests low reserves.",
+                "Ferritin stores iron; 15-150 ug/L is the normal range.",
+                "Ferritin stores iron. A value of 8 means reserves are depleted.");
+        List<Finding> extracted = List.of(extracted("Ferritin", "8 ug/L"));
+
+        for (String explanation : personal) {
+            cache.learn(extracted, explained(List.of(explanation("Ferritin", explanation)), List.of()),
+                    KnowledgeCache.Lookup.EMPTY);
+        }
+
+        assertThat(cache.lookup(extracted, "").explanations()).isEmpty();
+        assertThat(cache.getStats()).containsEntry("learned", 0L);
+    }
+
+    @Test
+    void doesNotLearnFromFallbacksOrTestsThatWereNotAsked() {
+        List<Finding> extracted = List.of(extracted("Ferritin", "8 ug/L"));
+        ReportSummary fallback = explained(List.of(explanation("Ferritin", GENERAL)), List.of());
+        fallback.setFallback(true);
+
+        cache.learn(extracted, fallback, KnowledgeCache.Lookup.EMPTY);
+        cache.learn(extracted, explained(List.of(explanation("Glucose", "Glucose is the main sugar in the blood.")),
+                List.of()), KnowledgeCache.Lookup.EMPTY);
+
+        assertThat(cache.lookup(List.of(extracted("Ferritin", "8"), extracted("Glucose", "90")), "").explanations())
+                .isEmpty();
+    }
+
+    @Test
+    void fillReplacesCachedTestsAndAddsMissingDefinitions() {
+        List<Finding> extracted = List.of(extracted("Ferritin", "8 ug/L"), extracted("Glucose", "90 mg/dL"));
+        cache.learn(List.of(extracted.get(0)), explained(List.of(explanation("Ferritin", GENERAL)),
+                List.of(new GlossaryEntry("Anemia", "Too few healthy red blood cells."),
+                        new GlossaryEntry("Fasting", "Not eating for several hours."))), KnowledgeCache.Lookup.EMPTY);
+        KnowledgeCache.Lookup lookup = cache.lookup(extracted, "Ferritin low; anemia; fasting sample");
+
+        // The model was asked about Glucose only, but repeated Ferritin and defined Fasting itself
+        ReportSummary response = explained(
+                List.of(explanation("Glucose", "Glucose is the main sugar in the blood."),
+                        explanation("Ferritin", "Something else.")),
+                List.of(new GlossaryEntry("fasting", "Going without food before the test.")));
+        response.setFallback(true);
+
+        ReportSummary filled = cache.fill(response, extracted, lookup);
+
+        assertThat(filled.getFindings()).extracting(Finding::getTestName).containsExactly("Glucose", "Ferritin");
+        Finding ferritin = filled.getFindings().get(1);
+        assertThat(ferritin.getExplanation()).isEqualTo(GENERAL);
+        assertThat(ferritin.getValue()).isNull();
+        assertThat(filled.getGlossary()).extracting(GlossaryEntry::getDefinition)
+                .containsExactly("Going without food before the test.", "Too few healthy red blood cells.");
+        assertThat(filled.getSummary()).isEqualTo(response.getSummary());
+        assertThat(filled.getDiscussionQuestions()).isEqualTo(response.getDiscussionQuestions());
+        assertThat(filled.isFallback()).isTrue();
+    }
+
+    @Test
+    void fillReturnsTheResponseUnchangedWhenNothingIsCached() {
+        ReportSummary response = explained(List.of(explanation("Glucose", "Glucose is a sugar.")), List.of());
+
+        assertThat(cache.fill(response, List.of(extracted("Glucose", "90")), KnowledgeCache.Lookup.EMPTY))
+                .isSameAs(response);
+    }
+
+    private static Finding extracted(String testName, String value) {
+        return new Finding(testName, value, null, "NORMAL", null);
+    }
+
+    private static Finding explanation(String testName, String explanation) {
+        return new Finding(testName, null, null, null, explanation);
+    }
+
+    private static ReportSummary explained(List<Finding> findings, List<GlossaryEntry> glossary) {
+        return new ReportSummary("Summary.", findings, glossary,
+                List.of(new DiscussionQuestion("What next?", "Follow-up.")), "Not medical advice.");
+    }
+}
@@ -0,0 +1,154 @@
+package com.patientvocate.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OcrCacheTest {
+
+    private static final int WIDTH = 1275;
+    private static final int HEIGHT = 1650;
+    private static final int VALUE_X = 900;
+    private static final int VALUE_Y = 600;
+
+    private final OcrCache cache = new OcrCache(new ObjectMapper(), true, 10, 60, "", 10, true, 6, 12);
+
+    @Test
+    void recompressedCopyOfAPageReusesItsText() throws IOException {
+        cache.put(cache.fingerprint(page(false), "eng"), entry("Hemoglobin 13.8"));
+
+        OcrCache.Entry hit = cache.get(cache.fingerprint(jpeg(page(false), 0.5f), "eng"));
+
+        assertThat(hit).isNotNull();
+        assertThat(hit.text()).isEqualTo("Hemoglobin 13.8");
+        assertThat(cache.getStats()).containsEntry("perceptualHits", 1L);
+    }
+
+    @Test
+    void sameTemplateWithADifferentValueIsNotReused() {
+        OcrCache.Fingerprint original = cache.fingerprint(page(false), "eng");
+        OcrCache.Fingerprint changed = cache.fingerprint(page(true), "eng");
+        // The difference hash alone cannot tell the two pages apart
+        assertThat(distance(original.bits(), changed.bits())).isLessThanOrEqualTo(6);
+
+        cache.put(original, entry("Hemoglobin 13.8"));
+
+        assertThat(cache.get(changed)).isNull();
+        assertThat(cache.getStats()).containsEntry("perceptualHits", 0L).containsEntry("perceptualRejects", 1L);
+    }
+
+    @Test
+    void resizedCopyIsNotReused() {
+        OcrCache.Fingerprint original = cache.fingerprint(page(false), "eng");
+        OcrCache.Fingerprint resized = cache.fingerprint(resize(page(false), 0.8), "eng");
+        assertThat(distance(original.bits(), resized.bits())).isLessThanOrEqualTo(6);
+
+        cache.put(original, entry("Hemoglobin 13.8"));
+
+        assertThat(cache.get(resized)).isNull();
+    }
+
+    @Test
+    void otherLanguageIsNotReused() {
+        cache.put(cache.fingerprint(page(false), "eng"), entry("Hemoglobin 13.8"));
+
+        assertThat(cache.get(cache.fingerprint(page(false), "deu"))).isNull();
+    }
+
+    private static OcrCache.Entry entry(String text) {
+        return new OcrCache.Entry(text, "fast", 90);
+    }
+
+    /**
+     * A lab-report-like page: the same rows of glyphs every time, and one result value whose
+     * last digit is either an "8" or a "3".
+     */
+    private static BufferedImage page(boolean changedValue) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(Color.BLACK);
+        Random random = new Random(7);
+        for (int y = 120; y < HEIGHT - 120; y += 30) {
+            for (int x = 100; x < WIDTH - 100; x += 12) {
+                if (random.nextInt(5) == 0) continue;
+                g.fillRect(x, y, 2 + random.nextInt(6), 14);
+            }
+        }
+        g.setColor(Color.WHITE);
+        g.fillRect(VALUE_X - 4, VALUE_Y - 4, 40, 24);
+        g.setColor(Color.BLACK);
+        digit(g, VALUE_X, VALUE_Y, false);
+        digit(g, VALUE_X + 12, VALUE_Y, changedValue);
+        g.dispose();
+        return image;
+    }
+
+    private static void digit(Graphics2D g, int x, int y, boolean three) {
+        g.fillRect(x, y, 8, 2);
+        g.fillRect(x, y + 6, 8, 2);
+        g.fillRect(x, y + 12, 8, 2);
+        g.fillRect(x + 6, y, 2, 14);
+        if (!three) {
+            g.fillRect(x, y, 2, 14);
+        }
+    }
+
+    private static BufferedImage jpeg(BufferedImage image, float quality) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return gray(ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    private static BufferedImage resize(BufferedImage image, double scale) {
+        int width = (int) Math.round(image.getWidth() * scale);
+        int height = (int) Math.round(image.getHeight() * scale);
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return resized;
+    }
+
+    private static BufferedImage gray(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = gray.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return gray;
+    }
+
+    private static int distance(long[] a, long[] b) {
+        int distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            distance += Long.bitCount(a[i] ^ b[i]);
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,57 @@
+package com.patientvocate.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void purgeDropsExpiredDiskEntries() throws IOException {
+        TieredCache<String> cache = new TieredCache<>("test", 10, Duration.ofMinutes(1), dir, 10,
+                new ObjectMapper(), String.class);
+        cache.put("old", "a");
+        cache.put("new", "b");
+        Files.setLastModifiedTime(dir.resolve("old.json"),
+                FileTime.fromMillis(System.currentTimeMillis() - Duration.ofMinutes(2).toMillis()));
+
+        cache.purgeExpired();
+
+        assertThat(diskKeys()).containsExactly("new.json");
+    }
+
+    @Test
+    void purgeTrimsDiskTierToOldestFirst() throws IOException {
+        TieredCache<String> cache = new TieredCache<>("test", 10, Duration.ofHours(1), dir, 2,
+                new ObjectMapper(), String.class);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            cache.put("k" + i, "v" + i);
+            Files.setLastModifiedTime(dir.resolve("k" + i + ".json"), FileTime.fromMillis(now - (4 - i) * 1000L));
+        }
+
+        cache.purgeExpired();
+
+        assertThat(diskKeys()).containsExactlyInAnyOrder("k2.json", "k3.json");
+        assertThat(cache.getStats()).containsEntry("diskEvictions", 2L);
+    }
+
+    private List<String> diskKeys() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).toList();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.patientvocate.service.chunk;
+
+import com.patientvocate.model.ReportSummary;
+import com.patientvocate.service.ai.AIService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChunkedAnalyzerTest {
+
+    @Test
+    void interruptingTheCallerCancelsEverySectionInFlight() throws Exception {
+        List<CompletableFuture<ReportSummary>> sections = new CopyOnWriteArrayList<>();
+        AIService service = mock(AIService.class);
+        when(service.analyzeReportAsync(anyString())).thenAnswer(invocation -> {
+            CompletableFuture<ReportSummary> section = new CompletableFuture<>();
+            sections.add(section);
+            return section;
+        });
+        ChunkedAnalyzer analyzer = new ChunkedAnalyzer(true, 100, 500, 6);
+        String report = section("COMPLETE BLOOD COUNT", "Hemoglobin") + section("LIPID PANEL", "Cholesterol");
+
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                analyzer.analyze(service, report);
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        caller.start();
+        while (sections.size() < 2) Thread.sleep(10);
+
+        caller.interrupt();
+        caller.join(5000);
+
+        assertThat(caller.isAlive()).isFalse();
+        assertThat(thrown.get()).isInstanceOf(CancellationException.class);
+        assertThat(sections).hasSize(2).allMatch(CompletableFuture::isCancelled);
+    }
+
+    private static String section(String header, String test) {
+        StringBuilder text = new StringBuilder(header).append('\n');
+        for (int i = 0; i < 12; i++) {
+            text.append(test).append(' ').append(i).append(" 13.5 g/dL (12.0 - 16.0)\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.patientvocate.service.extract;
+
+import com.patientvocate.model.Finding;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LabValueExtractorTest {
+
+    private final LabValueExtractor extractor = new LabValueExtractor();
+
+    @Test
+    void parsesRowWithFlagUnitAndTwoSidedRange() {
+        Finding finding = extractor.parseRow("Hemoglobin 9.1 L g/dL 12.0 - 16.0");
+
+        assertThat(finding.getTestName()).isEqualTo("Hemoglobin");
+        assertThat(finding.getValue()).isEqualTo("9.1 g/dL");
+        assertThat(finding.getReferenceRange()).isEqualTo("12.0 - 16.0");
+        assertThat(finding.getStatus()).isEqualTo(LabValueExtractor.ABNORMAL);
+    }
+
+    @Test
+    void keepsHyphenatedNumberInTestName() {
+        Finding finding = extractor.parseRow("Vitamin D, 25-Hydroxy 30 ng/mL 30-100");
+
+        assertThat(finding.getTestName()).isEqualTo("Vitamin D, 25-Hydroxy");
+        assertThat(finding.getValue()).isEqualTo("30 ng/mL");
+        assertThat(finding.getReferenceRange()).isEqualTo("30 - 100");
+        assertThat(finding.getStatus()).isEqualTo(LabValueExtractor.NORMAL);
+    }
+
+    @Test
+    void parsesOneSidedRangeAfterColon() {
+        Finding finding = extractor.parseRow("LDL Cholesterol: 130 mg/dL < 100");
+
+        assertThat(finding.getTestName()).isEqualTo("LDL Cholesterol");
+        assertThat(finding.getReferenceRange()).isEqualTo("< 100");
+        assertThat(finding.getStatus()).isEqualTo(LabValueExtractor.ABNORMAL);
+    }
+
+    @Test
+    void keepsComparatorOnValue() {
+        Finding finding = extractor.parseRow("TSH <0.01 uIU/mL 0.45-4.5");
+
+        assertThat(finding.getValue()).isEqualTo("<0.01 uIU/mL");
+        assertThat(finding.getStatus()).isEqualTo(LabValueExtractor.ABNORMAL);
+    }
+
+    @Test
+    void classifiesSlightlyOutOfRangeAsBorderline() {
+        assertThat(extractor.parseRow("Platelets 412 K/uL 150 - 400").getStatus())
+                .isEqualTo(LabValueExtractor.BORDERLINE);
+    }
+
+    @Test
+    void rowWithUnitButNoRangeHasNoStatus() {
+        Finding finding = extractor.parseRow("Glucose 95 mg/dL");
+
+        assertThat(finding.getReferenceRange()).isEqualTo(LabValueExtractor.NO_RANGE);
+        assertThat(finding.getStatus()).isEqualTo(LabValueExtractor.NOT_SPECIFIED);
+    }
+
+    @Test
+    void rejectsMetadataLines() {
+        assertThat(extractor.parseRow("Date: 01/02/2024")).isNull();
+        assertThat(extractor.parseRow("Collected 10-12-2023 08:15")).isNull();
+        assertThat(extractor.parseRow("Page 1 of 3")).isNull();
+        assertThat(extractor.parseRow("Age: 54")).isNull();
+    }
+
+    @Test
+    void extractKeepsFirstRowPerTest() {
+        List<Finding> findings = extractor.extract("""
+                COMPLETE BLOOD COUNT
+                WBC 6.8 K/uL 4.0 - 11.0
+                Hemoglobin 9.1 L g/dL 12.0 - 16.0
+                Hemoglobin 9.3 g/dL 12.0 - 16.0
+                """);
+
+        assertThat(findings).extracting(Finding::getTestName).containsExactly("WBC", "Hemoglobin");
+        assertThat(findings.get(1).getValue()).isEqualTo("9.1 g/dL");
+    }
+}
@@ -0,0 +1,61 @@
+package com.patientvocate.service.job;
+
+import com.patientvocate.dto.ReportAnalysisResponse;
+import com.patientvocate.service.ReportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnalysisJobServiceTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AnalysisJobService service;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void cancellingAQueuedJobDeletesItsUpload() throws IOException {
+        ReportService reportService = mock(ReportService.class);
+        when(reportService.analyzeText(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            release.await();
+            return ReportAnalysisResponse.error("unused");
+        });
+        service = new AnalysisJobService(reportService, 1, 10, 30, spoolDir.toString());
+
+        service.submitText("blocks the only worker", "ollama");
+        AnalysisJob queued = service.submitFile(
+                new MockMultipartFile("file", "report.pdf", "application/pdf", new byte[]{1, 2, 3}), "ollama");
+        assertThat(spooledFiles()).isEqualTo(1);
+
+        service.cancel(queued.getId());
+
+        assertThat(queued.getStatus()).isEqualTo(AnalysisJob.Status.CANCELLED);
+        assertThat(spooledFiles()).isZero();
+    }
+
+    private long spooledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            return files.count();
+        }
+    }
+}
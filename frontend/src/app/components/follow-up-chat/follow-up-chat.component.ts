@@ -1,7 +1,7 @@
 import { Component, Input } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
-import { ChatMessage } from '../../models/report.model';
+import { ChatMessage, ChatRequest } from '../../models/report.model';
 import { ReportService } from '../../services/report.service';
 
 @Component({
@@ -247,6 +247,7 @@ import { ReportService } from '../../services/report.service';
 export class FollowUpChatComponent {
     @Input() reportText: string = '';
     @Input() analysisSummary: string = '';
+    @Input() analysisId?: string;
 
     messages: ChatMessage[] = [];
     currentQuestion = '';
@@ -275,12 +276,17 @@ export class FollowUpChatComponent {
         this.currentQuestion = '';
         this.isLoading = true;
 
-        this.reportService.chat({
-            reportText: this.reportText,
-            analysisSummary: this.analysisSummary,
-            question: question,
-            conversationHistory: this.messages.slice(0, -1) // exclude current
-        }).subscribe({
+        // With a server-side session only the question is sent; history lives on the server
+        const request: ChatRequest = this.analysisId
+            ? { analysisId: this.analysisId, question: question }
+            : {
+                reportText: this.reportText,
+                analysisSummary: this.analysisSummary,
+                question: question,
+                conversationHistory: this.messages.slice(0, -1) // exclude current
+            };
+
+        this.reportService.chat(request).subscribe({
             next: (response) => {
                 this.isLoading = false;
                 if (response.success) {
@@ -22,6 +22,9 @@ import { ReportService } from '../../services/report.service';
              <button class="switch-btn" [class.active]="provider === 'openrouter'" (click)="setProvider('openrouter')" title="Run on Cloud with OpenRouter (DeepSeek)">
                ☁️ OpenRouter
              </button>
+             <button class="switch-btn" [class.active]="provider === 'auto'" (click)="setProvider('auto')" title="Use whichever provider is currently fastest and healthy">
+               ⚡ Auto
+             </button>
           </div>
           <div class="ai-status" [class.online]="aiOnline" [class.offline]="!aiOnline" id="ai-status-indicator">
             <span class="status-dot"></span>
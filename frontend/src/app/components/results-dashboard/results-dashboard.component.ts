@@ -79,7 +79,8 @@ import { FollowUpChatComponent } from '../follow-up-chat/follow-up-chat.componen
         </div>
         <app-follow-up-chat
           [reportText]="reportText"
-          [analysisSummary]="analysis.summary">
+          [analysisSummary]="analysis.summary"
+          [analysisId]="analysisId">
         </app-follow-up-chat>
       </section>
 
@@ -218,6 +219,7 @@ import { FollowUpChatComponent } from '../follow-up-chat/follow-up-chat.componen
 export class ResultsDashboardComponent {
     @Input() analysis!: ReportSummary;
     @Input() reportText: string = '';
+    @Input() analysisId?: string;
 
     get normalCount(): number {
         return this.analysis.findings?.filter(f => f.status === 'NORMAL').length ?? 0;
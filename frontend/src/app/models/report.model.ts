@@ -28,6 +28,7 @@ export interface ReportAnalysisResponse {
     success: boolean;
     analysis: ReportSummary;
     reportText: string;
+    analysisId?: string;
     error?: string;
 }
 
@@ -37,10 +38,11 @@ export interface ChatMessage {
 }
 
 export interface ChatRequest {
-    reportText: string;
-    analysisSummary: string;
+    analysisId?: string;
+    reportText?: string;
+    analysisSummary?: string;
     question: string;
-    conversationHistory: ChatMessage[];
+    conversationHistory?: ChatMessage[];
 }
 
 export interface ChatResponse {
@@ -55,5 +57,6 @@ export interface HealthStatus {
         available: boolean;
         provider: string;
         model: string;
+        providers?: Record<string, { available: boolean; model: string }>;
     };
 }
@@ -65,7 +65,8 @@ import { ReportSummary } from '../../models/report.model';
         </div>
         <app-results-dashboard
           [analysis]="analysisResult"
-          [reportText]="currentReportText">
+          [reportText]="currentReportText"
+          [analysisId]="currentAnalysisId">
         </app-results-dashboard>
       </section>
 
@@ -218,6 +219,7 @@ export class HomePageComponent {
     isLoading = false;
     analysisResult: ReportSummary | null = null;
     currentReportText = '';
+    currentAnalysisId?: string;
     error: string | null = null;
 
     constructor(private reportService: ReportService) { }
@@ -232,6 +234,7 @@ export class HomePageComponent {
                 if (response.success) {
                     this.analysisResult = response.analysis;
                     this.currentReportText = response.reportText;
+                    this.currentAnalysisId = response.analysisId;
                 } else {
                     this.error = response.error || 'Analysis failed. Please try again.';
                 }
@@ -254,6 +257,7 @@ export class HomePageComponent {
                 if (response.success) {
                     this.analysisResult = response.analysis;
                     this.currentReportText = response.reportText;
+                    this.currentAnalysisId = response.analysisId;
                 } else {
                     this.error = response.error || 'Analysis failed. Please try again.';
                 }
@@ -268,6 +272,7 @@ export class HomePageComponent {
     resetAnalysis() {
         this.analysisResult = null;
         this.currentReportText = '';
+        this.currentAnalysisId = undefined;
         this.error = null;
     }
 }